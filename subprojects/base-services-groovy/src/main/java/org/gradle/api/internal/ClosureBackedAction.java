@@ -53,6 +53,10 @@ public class ClosureBackedAction<T> implements Action<T> {
         new ClosureBackedAction<T>(closure).execute(delegate);
     }
 
+    public Closure getClosure() {
+        return closure;
+    }
+
     public void execute(T delegate) {
         if (closure == null) {
             return;
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Looks up services from a project-like registry, through a chain of parents similar to the global, build session, build, gradle and project scopes.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+@Threads(4)
+public class DefaultServiceRegistryBenchmark {
+    private DefaultServiceRegistry project;
+
+    @Setup
+    public void setup() {
+        DefaultServiceRegistry global = new DefaultServiceRegistry("global");
+        global.addProvider(new GlobalServices());
+        DefaultServiceRegistry buildSession = new DefaultServiceRegistry("build session", global);
+        buildSession.addProvider(new BuildSessionServices());
+        DefaultServiceRegistry build = new DefaultServiceRegistry("build", buildSession);
+        build.addProvider(new BuildServices());
+        DefaultServiceRegistry gradle = new DefaultServiceRegistry("gradle", build);
+        gradle.addProvider(new GradleServices());
+        project = new DefaultServiceRegistry("project", gradle);
+        project.addProvider(new ProjectServices());
+    }
+
+    @Benchmark
+    public void lookupProjectService(Blackhole blackhole) {
+        blackhole.consume(project.get(ProjectService.class));
+    }
+
+    @Benchmark
+    public void lookupGlobalService(Blackhole blackhole) {
+        blackhole.consume(project.get(GlobalService.class));
+    }
+
+    @Benchmark
+    public void lookupServicesFromEachScope(Blackhole blackhole) {
+        blackhole.consume(project.get(ProjectService.class));
+        blackhole.consume(project.get(GradleService.class));
+        blackhole.consume(project.get(BuildService.class));
+        blackhole.consume(project.get(BuildSessionService.class));
+        blackhole.consume(project.get(GlobalService.class));
+    }
+
+    public static class GlobalService {
+    }
+
+    public static class BuildSessionService {
+    }
+
+    public static class BuildService {
+    }
+
+    public static class GradleService {
+    }
+
+    public static class ProjectService {
+    }
+
+    private static class GlobalServices {
+        GlobalService createGlobalService() {
+            return new GlobalService();
+        }
+    }
+
+    private static class BuildSessionServices {
+        BuildSessionService createBuildSessionService(GlobalService globalService) {
+            return new BuildSessionService();
+        }
+    }
+
+    private static class BuildServices {
+        BuildService createBuildService(BuildSessionService buildSessionService) {
+            return new BuildService();
+        }
+    }
+
+    private static class GradleServices {
+        GradleService createGradleService(BuildService buildService) {
+            return new GradleService();
+        }
+    }
+
+    private static class ProjectServices {
+        ProjectService createProjectService(GradleService gradleService) {
+            return new ProjectService();
+        }
+    }
+}
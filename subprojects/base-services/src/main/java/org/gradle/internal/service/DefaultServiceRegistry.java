@@ -79,13 +79,15 @@ public class DefaultServiceRegistry implements ServiceRegistry, Closeable {
 
     private static final ConcurrentMap<Type, BiFunction<ServiceProvider, LookupContext, Provider>> SERVICE_TYPE_PROVIDER_CACHE = new ConcurrentHashMap<Type, BiFunction<ServiceProvider, LookupContext, Provider>>();
     private final Map<Type, ServiceProvider> providerCache = new IdentityHashMap<Type, ServiceProvider>();
+    // Services that have already been located, served without taking the lock. Only populated once the registry can no longer be changed
+    private final ConcurrentMap<Type, Object> locatedServices = new ConcurrentHashMap<Type, Object>();
 
     private final Object lock = new Object();
     private final OwnServices ownServices;
     private final Provider allServices;
     private final Provider parentServices;
     private final String displayName;
-    private boolean closed;
+    private volatile boolean closed;
     private boolean mutable = true; // access under lock
 
     private Provider asParentServicesProvider;
@@ -265,6 +267,7 @@ public class DefaultServiceRegistry implements ServiceRegistry, Closeable {
                 CompositeStoppable.stoppable(allServices).stop();
             } finally {
                 closed = true;
+                locatedServices.clear();
             }
         }
     }
@@ -331,6 +334,10 @@ public class DefaultServiceRegistry implements ServiceRegistry, Closeable {
 
 
     private Object doGet(Type serviceType) throws IllegalArgumentException {
+        Object service = locatedServices.get(serviceType);
+        if (service != null && !closed) {
+            return service;
+        }
         synchronized (lock) {
             mutable = false;
             if (closed) {
@@ -341,7 +348,11 @@ public class DefaultServiceRegistry implements ServiceRegistry, Closeable {
                 provider = getServiceProvider(serviceType);
                 providerCache.put(serviceType, provider);
             }
-            return provider.get();
+            service = provider.get();
+            if (service != null) {
+                locatedServices.put(serviceType, service);
+            }
+            return service;
         }
     }
 
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.http.internal
+
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.BuildCacheService
+import org.gradle.caching.BuildCacheServiceFactory
+import org.gradle.caching.http.HttpBuildCache
+import org.gradle.caching.internal.controller.service.AsyncStoreBuildCacheServiceHandle
+import org.gradle.caching.internal.controller.service.BaseBuildCacheServiceHandle
+import org.gradle.caching.internal.controller.service.BuildCacheServiceHandle
+import org.gradle.caching.internal.controller.service.BuildCacheServiceRole
+import org.gradle.caching.internal.controller.service.StoreTarget
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.test.fixtures.server.http.HttpBuildCacheServer
+import org.junit.Rule
+import spock.lang.Specification
+
+/**
+ * Stores entries in a local HTTP build cache that delays each request, and checks how many of them the server handles at the same time.
+ */
+class HttpBuildCacheServiceConcurrentStoreTest extends Specification {
+    private static final int LATENCY_MILLIS = 100
+    private static final int ENTRY_COUNT = 24
+    private static final int CONCURRENCY = 4
+
+    @Rule
+    TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
+    @Rule
+    HttpBuildCacheServer server = new HttpBuildCacheServer(tempDir)
+
+    def entry = tempDir.file("entry") << ("x" * 64 * 1024)
+
+    def setup() {
+        server.simulateLatency(LATENCY_MILLIS)
+        server.start()
+    }
+
+    def "stores entries one at a time on the calling thread"() {
+        when:
+        storeAll(handle())
+
+        then:
+        server.maxConcurrentRequests == 1
+        server.cacheDir.list().findAll { it.startsWith("entry") }.size() == ENTRY_COUNT
+    }
+
+    def "stores entries concurrently in the background"() {
+        when:
+        storeAll(new AsyncStoreBuildCacheServiceHandle(handle(), new DefaultExecutorFactory().create("store", CONCURRENCY), CONCURRENCY * 4, tempDir.file("tmp")))
+
+        then:
+        server.maxConcurrentRequests > 1
+        server.maxConcurrentRequests <= CONCURRENCY
+        server.cacheDir.list().findAll { it.startsWith("entry") }.size() == ENTRY_COUNT
+    }
+
+    private BuildCacheServiceHandle handle() {
+        def config = new HttpBuildCache()
+        config.url = new URI("${server.uri}/")
+        BuildCacheService service = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(config, new NoopBuildCacheDescriber())
+        return new BaseBuildCacheServiceHandle(service, true, BuildCacheServiceRole.REMOTE, true)
+    }
+
+    private void storeAll(BuildCacheServiceHandle handle) {
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            handle.store(key("entry" + i), new StoreTarget(entry))
+        }
+        // Closing waits for the queued entries to be stored
+        handle.close()
+    }
+
+    private static BuildCacheKey key(String hashCode) {
+        return new BuildCacheKey() {
+            @Override
+            String getHashCode() {
+                return hashCode
+            }
+
+            @Override
+            String getDisplayName() {
+                return hashCode
+            }
+        }
+    }
+
+    private class NoopBuildCacheDescriber implements BuildCacheServiceFactory.Describer {
+
+        @Override
+        BuildCacheServiceFactory.Describer type(String type) { this }
+
+        @Override
+        BuildCacheServiceFactory.Describer config(String name, String value) { this }
+
+    }
+}
@@ -267,7 +267,9 @@ class BuildCacheBuildOperationsIntegrationTest extends AbstractIntegrationSpec i
         packOp.result.archiveEntryCount == 4
         remoteStoreOp.details.archiveSize == packOp.result.archiveSize
 
-        operations.orderedSerialSiblings(remoteMissLoadOp, packOp, remoteStoreOp)
+        operations.orderedSerialSiblings(remoteMissLoadOp, packOp)
+        // Remote stores happen in the background, after the entry has been packed
+        remoteStoreOp.startTime >= packOp.endTime
 
         where:
         config << [
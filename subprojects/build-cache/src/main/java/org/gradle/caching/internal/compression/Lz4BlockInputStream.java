@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compression;
+
+import io.airlift.compress.MalformedInputException;
+import io.airlift.compress.lz4.Lz4Decompressor;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a stream written by {@link Lz4BlockOutputStream}, verifying the checksum of each block.
+ */
+public class Lz4BlockInputStream extends InputStream {
+    private final DataInputStream input;
+    private final Lz4Decompressor decompressor = new Lz4Decompressor();
+    private final CRC32 checksum = new CRC32();
+    private final byte[] buffer = new byte[Lz4BlockOutputStream.BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4BlockOutputStream.BLOCK_SIZE];
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    public Lz4BlockInputStream(InputStream input) {
+        this.input = new DataInputStream(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int chunk = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position == limit) {
+            if (finished) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        int length = input.readInt();
+        if (length == 0) {
+            finished = true;
+            return;
+        }
+        int compressedLength = input.readInt();
+        int expectedChecksum = input.readInt();
+        if (length < 0 || length > buffer.length || compressedLength < 0 || compressedLength > length) {
+            throw new IOException("Corrupt LZ4 block header.");
+        }
+        if (compressedLength == length) {
+            input.readFully(buffer, 0, length);
+        } else {
+            input.readFully(compressed, 0, compressedLength);
+            try {
+                if (decompressor.decompress(compressed, 0, compressedLength, buffer, 0, length) != length) {
+                    throw new IOException("Corrupt LZ4 block: unexpected uncompressed length.");
+                }
+            } catch (MalformedInputException e) {
+                throw new IOException("Corrupt LZ4 block.", e);
+            }
+        }
+        checksum.reset();
+        checksum.update(buffer, 0, length);
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new IOException("Corrupt LZ4 block: checksum mismatch.");
+        }
+        position = 0;
+        limit = length;
+    }
+}
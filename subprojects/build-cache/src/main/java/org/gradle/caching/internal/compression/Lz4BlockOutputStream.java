@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compression;
+
+import io.airlift.compress.lz4.Lz4Compressor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Compresses a stream as a sequence of independent LZ4 blocks.
+ *
+ * <p>Each block starts with its uncompressed length, its compressed length and the CRC32 checksum of its uncompressed data, followed by the compressed data.
+ * A block that does not get smaller when compressed is stored as is, with both lengths equal. The stream ends with a block of length 0.</p>
+ */
+public class Lz4BlockOutputStream extends OutputStream {
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private final DataOutputStream output;
+    private final Lz4Compressor compressor = new Lz4Compressor();
+    private final CRC32 checksum = new CRC32();
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[compressor.maxCompressedLength(BLOCK_SIZE)];
+    private int count;
+    private boolean closed;
+
+    public Lz4BlockOutputStream(OutputStream output) {
+        this.output = new DataOutputStream(output);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == BLOCK_SIZE) {
+            writeBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == BLOCK_SIZE) {
+                writeBlock();
+            }
+            int chunk = Math.min(len, BLOCK_SIZE - count);
+            System.arraycopy(b, off, buffer, count, chunk);
+            count += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            output.writeInt(0);
+        } finally {
+            output.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        checksum.reset();
+        checksum.update(buffer, 0, count);
+        int compressedLength = compressor.compress(buffer, 0, count, compressed, 0, compressed.length);
+        output.writeInt(count);
+        if (compressedLength < count) {
+            output.writeInt(compressedLength);
+            output.writeInt((int) checksum.getValue());
+            output.write(compressed, 0, compressedLength);
+        } else {
+            output.writeInt(count);
+            output.writeInt((int) checksum.getValue());
+            output.write(buffer, 0, count);
+        }
+        count = 0;
+    }
+}
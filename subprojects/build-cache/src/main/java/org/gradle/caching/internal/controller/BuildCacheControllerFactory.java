@@ -29,6 +29,7 @@ import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperation
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
 import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.CallableBuildOperation;
@@ -48,6 +49,12 @@ public final class BuildCacheControllerFactory {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildCacheControllerFactory.class);
 
+    /**
+     * The maximum number of entries stored concurrently in the remote build cache. Entries are stored on the task thread when set to 0.
+     */
+    public static final String REMOTE_STORE_CONCURRENCY_PROPERTY = "org.gradle.caching.remote.storeConcurrency";
+    private static final int DEFAULT_REMOTE_STORE_CONCURRENCY = 4;
+
     public enum BuildCacheMode {
         ENABLED, DISABLED
     }
@@ -64,7 +71,8 @@ public final class BuildCacheControllerFactory {
         final BuildCacheMode buildCacheState,
         final RemoteAccessMode remoteAccessMode,
         final boolean logStackTraces,
-        final Instantiator instantiator
+        final Instantiator instantiator,
+        final ExecutorFactory executorFactory
     ) {
         return buildOperationExecutor.call(new CallableBuildOperation<BuildCacheController>() {
             @Override
@@ -114,7 +122,9 @@ public final class BuildCacheControllerFactory {
                         config,
                         buildOperationExecutor,
                         gradleUserHomeDir,
-                        logStackTraces
+                        logStackTraces,
+                        executorFactory,
+                        Integer.getInteger(REMOTE_STORE_CONCURRENCY_PROPERTY, DEFAULT_REMOTE_STORE_CONCURRENCY)
                     );
                 }
             }
@@ -27,6 +27,7 @@ import org.gradle.caching.internal.controller.operations.PackOperationDetails;
 import org.gradle.caching.internal.controller.operations.PackOperationResult;
 import org.gradle.caching.internal.controller.operations.UnpackOperationDetails;
 import org.gradle.caching.internal.controller.operations.UnpackOperationResult;
+import org.gradle.caching.internal.controller.service.AsyncStoreBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BaseBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
@@ -43,6 +44,7 @@ import org.gradle.caching.local.internal.DefaultBuildCacheTempFileStore;
 import org.gradle.caching.local.internal.LocalBuildCacheService;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.RunnableBuildOperation;
@@ -58,6 +60,8 @@ import java.io.InputStream;
 
 public class DefaultBuildCacheController implements BuildCacheController {
 
+    private static final int PENDING_REMOTE_STORES_PER_THREAD = 4;
+
     @VisibleForTesting
     final BuildCacheServiceHandle legacyLocal;
 
@@ -76,7 +80,9 @@ public class DefaultBuildCacheController implements BuildCacheController {
         BuildCacheServicesConfiguration config,
         BuildOperationExecutor buildOperationExecutor,
         File gradleUserHomeDir,
-        boolean logStackTraces
+        boolean logStackTraces,
+        ExecutorFactory executorFactory,
+        int remoteStoreConcurrency
     ) {
         this.buildOperationExecutor = buildOperationExecutor;
 
@@ -91,7 +97,17 @@ public class DefaultBuildCacheController implements BuildCacheController {
             this.tmp = new DefaultBuildCacheTempFileStore(new File(gradleUserHomeDir, "build-cache-tmp"), BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX);
         }
 
-        this.remote = toHandle(config.remote, config.remotePush, BuildCacheServiceRole.REMOTE, buildOperationExecutor, logStackTraces);
+        BuildCacheServiceHandle remote = toHandle(config.remote, config.remotePush, BuildCacheServiceRole.REMOTE, buildOperationExecutor, logStackTraces);
+        if (remote.canStore() && remoteStoreConcurrency > 0) {
+            // Upload in the background, so that tasks do not wait for the network
+            remote = new AsyncStoreBuildCacheServiceHandle(
+                remote,
+                executorFactory.create("Remote build cache store", remoteStoreConcurrency),
+                remoteStoreConcurrency * PENDING_REMOTE_STORES_PER_THREAD,
+                new File(gradleUserHomeDir, "build-cache-tmp")
+            );
+        }
+        this.remote = remote;
     }
 
     @Nullable
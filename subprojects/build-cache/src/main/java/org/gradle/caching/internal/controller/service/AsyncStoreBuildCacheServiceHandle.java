@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.local.internal.BuildCacheTempFileStore;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stores entries in the background, so that a task does not wait for its outputs to be uploaded to the build cache.
+ *
+ * <p>At most {@code maxPendingStores} entries are queued or being stored at any time. When this limit is reached, storing another entry blocks
+ * until an earlier store has completed. Loads are performed on the calling thread.</p>
+ *
+ * <p>The file of a {@link StoreTarget} is removed once the store method returns, so each queued entry is copied to a temporary file first.
+ * Closing the handle waits for all queued entries to be stored.</p>
+ */
+public class AsyncStoreBuildCacheServiceHandle implements BuildCacheServiceHandle {
+
+    private static final Logger LOGGER = Logging.getLogger(AsyncStoreBuildCacheServiceHandle.class);
+
+    private final BuildCacheServiceHandle delegate;
+    private final ManagedExecutor executor;
+    private final int maxPendingStores;
+    private final Semaphore pendingStores;
+    private final File tempDir;
+
+    public AsyncStoreBuildCacheServiceHandle(BuildCacheServiceHandle delegate, ManagedExecutor executor, int maxPendingStores, File tempDir) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxPendingStores = maxPendingStores;
+        this.pendingStores = new Semaphore(maxPendingStores);
+        this.tempDir = tempDir;
+    }
+
+    @Nullable
+    @Override
+    public BuildCacheService getService() {
+        return delegate.getService();
+    }
+
+    @Override
+    public boolean canLoad() {
+        return delegate.canLoad();
+    }
+
+    @Override
+    public void load(BuildCacheKey key, LoadTarget loadTarget) {
+        delegate.load(key, loadTarget);
+    }
+
+    @Override
+    public boolean canStore() {
+        return delegate.canStore();
+    }
+
+    @Override
+    public void store(BuildCacheKey key, StoreTarget storeTarget) {
+        try {
+            pendingStores.acquire();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+
+        File copy = null;
+        boolean queued = false;
+        try {
+            tempDir.mkdirs();
+            copy = File.createTempFile(key.getHashCode() + "-", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX, tempDir);
+            storeTarget.writeTo(new FileOutputStream(copy));
+            executor.execute(new PendingStore(key, copy));
+            queued = true;
+        } catch (IOException e) {
+            // Let the delegate report the failure, in the same way as any other failure to store an entry
+            if (delegate.canStore()) {
+                delegate.store(key, new FailedStoreTarget(tempDir, e));
+            }
+        } finally {
+            if (!queued) {
+                if (copy != null) {
+                    GFileUtils.deleteQuietly(copy);
+                }
+                pendingStores.release();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        int pending = maxPendingStores - pendingStores.availablePermits();
+        if (pending > 0) {
+            LOGGER.debug("Waiting for {} entries to be stored in the build cache", pending);
+        }
+        try {
+            executor.stop();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    /**
+     * An entry that could not be queued, because copying it failed.
+     */
+    private static class FailedStoreTarget extends StoreTarget {
+        private final IOException failure;
+
+        FailedStoreTarget(File tempDir, IOException failure) {
+            super(tempDir);
+            this.failure = failure;
+        }
+
+        @Override
+        public void writeTo(OutputStream output) throws IOException {
+            output.close();
+            throw failure;
+        }
+
+        @Override
+        public long getSize() {
+            return 0;
+        }
+    }
+
+    private class PendingStore implements Runnable {
+        private final BuildCacheKey key;
+        private final File file;
+
+        PendingStore(BuildCacheKey key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // The cache may have been disabled by a failure since this entry was queued
+                if (delegate.canStore()) {
+                    delegate.store(key, new StoreTarget(file));
+                }
+            } finally {
+                GFileUtils.deleteQuietly(file);
+                pendingStores.release();
+            }
+        }
+    }
+}
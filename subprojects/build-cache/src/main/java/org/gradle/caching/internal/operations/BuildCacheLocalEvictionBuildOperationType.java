@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.operations;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * The removal of the least recently used entries from a local directory build cache, to keep it below its target size.
+ */
+public final class BuildCacheLocalEvictionBuildOperationType implements BuildOperationType<BuildCacheLocalEvictionBuildOperationType.Details, BuildCacheLocalEvictionBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The directory of the cache.
+         */
+        String getCacheDirectory();
+
+        /**
+         * The number of bytes the cache should be reduced to.
+         */
+        long getTargetSize();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The number of entries that were removed.
+         */
+        long getEvictedEntryCount();
+
+        /**
+         * The number of bytes that were reclaimed.
+         */
+        long getEvictedBytes();
+
+        /**
+         * The number of bytes used by the remaining entries.
+         */
+        long getRemainingBytes();
+
+    }
+
+    private BuildCacheLocalEvictionBuildOperationType() {
+    }
+}
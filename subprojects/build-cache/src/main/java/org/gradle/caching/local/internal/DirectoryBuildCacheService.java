@@ -35,19 +35,26 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
 
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
+    private static final long ACCESS_TIME_PRECISION = TimeUnit.HOURS.toMillis(1);
 
     private final PathKeyFileStore fileStore;
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final String failedFileSuffix;
+    private final ReadWriteLock entriesLock;
+    private final LruDirectoryBuildCacheEviction eviction;
 
-    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, String failedFileSuffix) {
+    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, ReadWriteLock entriesLock, BuildCacheTempFileStore tempFileStore, String failedFileSuffix, LruDirectoryBuildCacheEviction eviction) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
+        this.entriesLock = entriesLock;
         this.tempFileStore = tempFileStore;
         this.failedFileSuffix = failedFileSuffix;
+        this.eviction = eviction;
     }
 
     private static class LoadAction implements Action<File> {
@@ -61,9 +68,6 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         @Override
         public void execute(File file) {
             try {
-                // Mark as recently used
-                GFileUtils.touch(file);
-
                 Closer closer = Closer.create();
                 FileInputStream stream = closer.register(new FileInputStream(file));
                 try {
@@ -87,31 +91,41 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
 
     @Override
     public void load(final BuildCacheKey key, final Action<? super File> reader) {
-        // We need to lock here because garbage collection can be under way in another process
-        persistentCache.withFileLock(new Factory<Void>() {
-            @Override
-            public Void create() {
-                LocallyAvailableResource resource = fileStore.get(key.getHashCode());
-                if (resource != null) {
-                    final File file = resource.getFile();
-                    GFileUtils.touch(file); // Mark as recently used
-
-                    try {
-                        reader.execute(file);
-                    } catch (Exception e) {
-                        // Try to move the file out of the way in case its permanently corrupt
-                        // Don't delete, so that it can be potentially used for debugging
-                        File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
-                        GFileUtils.deleteQuietly(failedFile);
-                        //noinspection ResultOfMethodCallIgnored
-                        file.renameTo(failedFile);
-
-                        throw UncheckedException.throwAsUncheckedException(e);
-                    }
+        // We need to lock here because eviction can be under way in this process, and garbage collection in another process
+        entriesLock.readLock().lock();
+        try {
+            persistentCache.withFileLock(new Factory<Void>() {
+                @Override
+                public Void create() {
+                    loadLocked(key, reader);
+                    return null;
                 }
-                return null;
+            });
+        } finally {
+            entriesLock.readLock().unlock();
+        }
+    }
+
+    private void loadLocked(BuildCacheKey key, Action<? super File> reader) {
+        LocallyAvailableResource resource = fileStore.get(key.getHashCode());
+        if (resource != null) {
+            final File file = resource.getFile();
+            eviction.entryUsed(file);
+            markAsRecentlyUsed(file);
+
+            try {
+                reader.execute(file);
+            } catch (Exception e) {
+                // Try to move the file out of the way in case its permanently corrupt
+                // Don't delete, so that it can be potentially used for debugging
+                File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
+                GFileUtils.deleteQuietly(failedFile);
+                //noinspection ResultOfMethodCallIgnored
+                file.renameTo(failedFile);
+
+                throw UncheckedException.throwAsUncheckedException(e);
             }
-        });
+        }
     }
 
     @Override
@@ -137,14 +151,25 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         });
     }
 
+    private static void markAsRecentlyUsed(File file) {
+        // Avoid writing to the file system on every hit, the access time only needs to be precise enough to order the entries for eviction
+        long now = System.currentTimeMillis();
+        if (now - file.lastModified() > ACCESS_TIME_PRECISION) {
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(now);
+        }
+    }
+
     @Override
     public void store(final BuildCacheKey key, final File file) {
+        long size = file.length();
         persistentCache.useCache(new Runnable() {
             @Override
             public void run() {
                 fileStore.move(key.getHashCode(), file);
             }
         });
+        eviction.entryStored(size);
     }
 
     @Override
@@ -154,6 +179,7 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
 
     @Override
     public void close() {
+        eviction.close();
         persistentCache.close();
     }
 }
@@ -18,6 +18,7 @@ package org.gradle.caching.local.internal;
 
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.specs.Spec;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
@@ -27,12 +28,15 @@ import org.gradle.cache.internal.VersionStrategy;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.PathToFileResolver;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.resource.local.PathKeyFileStore;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.gradle.cache.FileLockManager.LockMode.None;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
@@ -49,14 +53,16 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
     private final PathToFileResolver resolver;
     private final BuildOperationExecutor buildOperationExecutor;
     private final DirectoryBuildCacheFileStoreFactory fileStoreFactory;
+    private final ExecutorFactory executorFactory;
 
     @Inject
-    public DirectoryBuildCacheServiceFactory(CacheRepository cacheRepository, CacheScopeMapping cacheScopeMapping, PathToFileResolver resolver, BuildOperationExecutor buildOperationExecutor, DirectoryBuildCacheFileStoreFactory fileStoreFactory) {
+    public DirectoryBuildCacheServiceFactory(CacheRepository cacheRepository, CacheScopeMapping cacheScopeMapping, PathToFileResolver resolver, BuildOperationExecutor buildOperationExecutor, DirectoryBuildCacheFileStoreFactory fileStoreFactory, ExecutorFactory executorFactory) {
         this.cacheRepository = cacheRepository;
         this.cacheScopeMapping = cacheScopeMapping;
         this.resolver = resolver;
         this.buildOperationExecutor = buildOperationExecutor;
         this.fileStoreFactory = fileStoreFactory;
+        this.executorFactory = executorFactory;
     }
 
     @Override
@@ -86,7 +92,10 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
             .open();
         BuildCacheTempFileStore tempFileStore = new DefaultBuildCacheTempFileStore(target, BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX);
 
-        return new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, FAILED_READ_SUFFIX);
+        ReadWriteLock entriesLock = new ReentrantReadWriteLock();
+        LruDirectoryBuildCacheEviction eviction = new LruDirectoryBuildCacheEviction(persistentCache, entriesLock, targetSizeInMB * 1024 * 1024, new EvictableEntries(), executorFactory.create("Build cache eviction"), buildOperationExecutor);
+
+        return new DirectoryBuildCacheService(fileStore, persistentCache, entriesLock, tempFileStore, FAILED_READ_SUFFIX, eviction);
     }
 
     private static void checkDirectory(File directory) {
@@ -106,4 +115,11 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
             }
         }
     }
+
+    private static class EvictableEntries implements Spec<String> {
+        @Override
+        public boolean isSatisfiedBy(String name) {
+            return !(name.endsWith(".properties") || name.endsWith(".lock") || name.endsWith(BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX));
+        }
+    }
 }
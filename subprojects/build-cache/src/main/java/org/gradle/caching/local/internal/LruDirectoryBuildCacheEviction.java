@@ -0,0 +1,281 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.local.internal;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.specs.Spec;
+import org.gradle.cache.PersistentCache;
+import org.gradle.caching.internal.operations.BuildCacheLocalEvictionBuildOperationType;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Keeps a directory build cache below a target size by removing its least recently used entries on a background thread.
+ *
+ * <p>The last modified time of an entry is used as its last access time. The size of the cache is estimated by scanning the cache directory once,
+ * and then adding the size of each stored entry. Eviction starts when the estimate exceeds the target size and removes entries until the cache is
+ * below {@link #LOW_WATER_MARK} of the target size.</p>
+ *
+ * <p>Entries are removed in small batches using the cache, which excludes stores from this and other processes, and holding the write lock of
+ * the entries lock, which excludes loads from this process. Loads from other processes are excluded by the file lock of the cache. This way loads and
+ * stores are only blocked briefly. An entry that has been loaded by this process or modified since the cache directory was scanned is not removed.
+ * Loading an entry only updates its modification time when the previous update is more than an hour old, so entries loaded by other processes
+ * within the last hour may still be removed, though never while they are being loaded.</p>
+ */
+public class LruDirectoryBuildCacheEviction implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LruDirectoryBuildCacheEviction.class);
+    static final double LOW_WATER_MARK = 0.9;
+    private static final int BATCH_SIZE = 100;
+    private static final long UNKNOWN_SIZE = -1;
+
+    private static final Comparator<Entry> OLDEST_FIRST = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry left, Entry right) {
+            return left.lastModified < right.lastModified ? -1 : left.lastModified == right.lastModified ? 0 : 1;
+        }
+    };
+
+    private final PersistentCache persistentCache;
+    private final long targetSizeInBytes;
+    private final Spec<String> eligibleFileNames;
+    private final ManagedExecutor executor;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final AtomicLong estimatedSize = new AtomicLong(UNKNOWN_SIZE);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ReadWriteLock entriesLock;
+    private final Set<String> usedSinceScan = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile boolean closed;
+
+    public LruDirectoryBuildCacheEviction(PersistentCache persistentCache, ReadWriteLock entriesLock, long targetSizeInBytes, Spec<String> eligibleFileNames, ManagedExecutor executor, BuildOperationExecutor buildOperationExecutor) {
+        this.persistentCache = persistentCache;
+        this.entriesLock = entriesLock;
+        this.targetSizeInBytes = targetSizeInBytes;
+        this.eligibleFileNames = eligibleFileNames;
+        this.executor = executor;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    /**
+     * Records that an entry of the given size has been added to the cache, and starts eviction in the background when required.
+     */
+    public void entryStored(long size) {
+        long estimate;
+        do {
+            estimate = estimatedSize.get();
+        } while (estimate != UNKNOWN_SIZE && !estimatedSize.compareAndSet(estimate, estimate + size));
+
+        if (estimate == UNKNOWN_SIZE || estimate + size > targetSizeInBytes) {
+            schedule();
+        }
+    }
+
+    /**
+     * Records that the given entry has been used, so that it is not removed by an eviction that is in progress.
+     */
+    public void entryUsed(File entry) {
+        usedSinceScan.add(entry.getName());
+    }
+
+    private void schedule() {
+        if (closed || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buildOperationExecutor.run(new EvictionOperation());
+                } catch (Exception e) {
+                    LOGGER.warn("Could not evict entries from " + persistentCache + ".", e);
+                } finally {
+                    scheduled.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops any eviction in progress once the current batch of entries has been removed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.stop();
+    }
+
+    private EvictionResult evict() {
+        usedSinceScan.clear();
+        File[] files = persistentCache.getBaseDir().listFiles();
+        if (files == null) {
+            return new EvictionResult(0, 0, 0);
+        }
+        List<Entry> entries = Lists.newArrayListWithCapacity(files.length);
+        long totalSize = 0;
+        for (File file : files) {
+            if (file.isFile() && eligibleFileNames.isSatisfiedBy(file.getName())) {
+                Entry entry = new Entry(file);
+                entries.add(entry);
+                totalSize += entry.size;
+            }
+        }
+        estimatedSize.set(totalSize);
+        if (totalSize <= targetSizeInBytes) {
+            return new EvictionResult(0, 0, totalSize);
+        }
+
+        Collections.sort(entries, OLDEST_FIRST);
+        long goal = (long) (targetSizeInBytes * LOW_WATER_MARK);
+        long evictedBytes = 0;
+        long evictedEntries = 0;
+        int next = 0;
+        while (totalSize - evictedBytes > goal && next < entries.size() && !closed) {
+            final List<Entry> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+            long batchBytes = 0;
+            while (batch.size() < BATCH_SIZE && next < entries.size() && totalSize - evictedBytes - batchBytes > goal) {
+                Entry entry = entries.get(next++);
+                batch.add(entry);
+                batchBytes += entry.size;
+            }
+            long[] removed;
+            entriesLock.writeLock().lock();
+            try {
+                removed = persistentCache.useCache(new Factory<long[]>() {
+                    @Override
+                    public long[] create() {
+                        return removeEntries(batch);
+                    }
+                });
+            } finally {
+                entriesLock.writeLock().unlock();
+            }
+            evictedEntries += removed[0];
+            evictedBytes += removed[1];
+        }
+        long remaining = totalSize - evictedBytes;
+        estimatedSize.addAndGet(-evictedBytes);
+        LOGGER.info("{} removed {} entries ({} bytes), {} bytes remaining (target: {} bytes).", persistentCache, evictedEntries, evictedBytes, remaining, targetSizeInBytes);
+        return new EvictionResult(evictedEntries, evictedBytes, remaining);
+    }
+
+    private long[] removeEntries(List<Entry> entries) {
+        long count = 0;
+        long bytes = 0;
+        for (Entry entry : entries) {
+            // Keep entries that have been used since the cache was scanned
+            if (usedSinceScan.contains(entry.file.getName()) || entry.file.lastModified() != entry.lastModified) {
+                continue;
+            }
+            if (entry.file.delete()) {
+                count++;
+                bytes += entry.size;
+            } else {
+                LOGGER.debug("Could not remove build cache entry {}", entry.file);
+            }
+        }
+        return new long[]{count, bytes};
+    }
+
+    private static class Entry {
+        private final File file;
+        private final long size;
+        private final long lastModified;
+
+        Entry(File file) {
+            this.file = file;
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+        }
+    }
+
+    private class EvictionOperation implements RunnableBuildOperation {
+        @Override
+        public void run(BuildOperationContext context) {
+            context.setResult(evict());
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Evict least recently used entries from " + persistentCache)
+                .details(new EvictionDetails(persistentCache.getBaseDir().getAbsolutePath(), (long) (targetSizeInBytes * LOW_WATER_MARK)));
+        }
+    }
+
+    private static class EvictionDetails implements BuildCacheLocalEvictionBuildOperationType.Details {
+        private final String cacheDirectory;
+        private final long targetSize;
+
+        EvictionDetails(String cacheDirectory, long targetSize) {
+            this.cacheDirectory = cacheDirectory;
+            this.targetSize = targetSize;
+        }
+
+        @Override
+        public String getCacheDirectory() {
+            return cacheDirectory;
+        }
+
+        @Override
+        public long getTargetSize() {
+            return targetSize;
+        }
+    }
+
+    private static class EvictionResult implements BuildCacheLocalEvictionBuildOperationType.Result {
+        private final long evictedEntryCount;
+        private final long evictedBytes;
+        private final long remainingBytes;
+
+        EvictionResult(long evictedEntryCount, long evictedBytes, long remainingBytes) {
+            this.evictedEntryCount = evictedEntryCount;
+            this.evictedBytes = evictedBytes;
+            this.remainingBytes = remainingBytes;
+        }
+
+        @Override
+        public long getEvictedEntryCount() {
+            return evictedEntryCount;
+        }
+
+        @Override
+        public long getEvictedBytes() {
+            return evictedBytes;
+        }
+
+        @Override
+        public long getRemainingBytes() {
+            return remainingBytes;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compression
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class Lz4BlockStreamTest extends Specification {
+
+    @Unroll
+    def "can read back #description"() {
+        def output = new ByteArrayOutputStream()
+        def lz4Output = new Lz4BlockOutputStream(output)
+
+        when:
+        lz4Output.write(data)
+        lz4Output.close()
+        def read = new Lz4BlockInputStream(new ByteArrayInputStream(output.toByteArray())).bytes
+
+        then:
+        read == data
+
+        where:
+        description                       | data
+        "empty stream"                    | new byte[0]
+        "single byte"                     | [42] as byte[]
+        "compressible data"               | ("abc" * 100000).bytes
+        "incompressible data"             | random(3 * Lz4BlockOutputStream.BLOCK_SIZE + 17)
+        "exactly one block"               | random(Lz4BlockOutputStream.BLOCK_SIZE)
+    }
+
+    def "compresses repetitive data"() {
+        def output = new ByteArrayOutputStream()
+        def data = ("abc" * 100000).bytes
+
+        when:
+        def lz4Output = new Lz4BlockOutputStream(output)
+        lz4Output.write(data)
+        lz4Output.close()
+
+        then:
+        output.size() < data.length / 10
+    }
+
+    def "can write and read single bytes"() {
+        def output = new ByteArrayOutputStream()
+        def lz4Output = new Lz4BlockOutputStream(output)
+        def data = random(Lz4BlockOutputStream.BLOCK_SIZE + 10)
+
+        when:
+        data.each { lz4Output.write(it) }
+        lz4Output.close()
+        def input = new Lz4BlockInputStream(new ByteArrayInputStream(output.toByteArray()))
+        def read = new ByteArrayOutputStream()
+        int b
+        while ((b = input.read()) != -1) {
+            read.write(b)
+        }
+
+        then:
+        read.toByteArray() == data
+    }
+
+    def "detects corrupt block"() {
+        def output = new ByteArrayOutputStream()
+        def lz4Output = new Lz4BlockOutputStream(output)
+        lz4Output.write(random(1000))
+        lz4Output.close()
+        def corrupt = output.toByteArray()
+        // Flip a bit in the data of the first block, after its 12 byte header
+        corrupt[20] = (byte) (corrupt[20] ^ 1)
+
+        when:
+        new Lz4BlockInputStream(new ByteArrayInputStream(corrupt)).bytes
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Corrupt LZ4 block: checksum mismatch."
+    }
+
+    def "fails on truncated stream"() {
+        def output = new ByteArrayOutputStream()
+        def lz4Output = new Lz4BlockOutputStream(output)
+        lz4Output.write(random(1000))
+        lz4Output.close()
+        def truncated = Arrays.copyOf(output.toByteArray(), 500)
+
+        when:
+        new Lz4BlockInputStream(new ByteArrayInputStream(truncated)).bytes
+
+        then:
+        thrown(EOFException)
+    }
+
+    private static byte[] random(int length) {
+        def bytes = new byte[length]
+        new Random(1234L).nextBytes(bytes)
+        return bytes
+    }
+}
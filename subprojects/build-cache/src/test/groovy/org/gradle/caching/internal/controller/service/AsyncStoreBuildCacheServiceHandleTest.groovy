@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.service
+
+import org.gradle.caching.BuildCacheKey
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+class AsyncStoreBuildCacheServiceHandleTest extends ConcurrentSpec {
+
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def delegate = Mock(BuildCacheServiceHandle)
+    def tempDir = temporaryFolder.file("tmp")
+
+    def "stores copy of entry in the background"() {
+        def handle = new AsyncStoreBuildCacheServiceHandle(delegate, executorFactory.create("store", 1), 1, tempDir)
+        def entry = temporaryFolder.file("entry") << "content"
+        def stored = new ByteArrayOutputStream()
+
+        when:
+        handle.store(key("first"), new StoreTarget(entry))
+        entry.delete()
+        handle.close()
+
+        then:
+        1 * delegate.canStore() >> true
+        1 * delegate.store({ it.hashCode == "first" }, _) >> { BuildCacheKey key, StoreTarget target ->
+            target.writeTo(stored)
+        }
+
+        then:
+        1 * delegate.close()
+
+        and:
+        stored.toString() == "content"
+        tempDir.list() as List == []
+    }
+
+    def "does not store queued entries once the delegate is disabled"() {
+        def handle = new AsyncStoreBuildCacheServiceHandle(delegate, executorFactory.create("store", 1), 1, tempDir)
+
+        when:
+        handle.store(key("first"), new StoreTarget(temporaryFolder.file("entry") << "content"))
+        handle.close()
+
+        then:
+        1 * delegate.canStore() >> false
+        0 * delegate.store(_, _)
+        1 * delegate.close()
+        tempDir.list() as List == []
+    }
+
+    def "lets the delegate report a failure to copy the entry"() {
+        def handle = new AsyncStoreBuildCacheServiceHandle(delegate, executorFactory.create("store", 1), 1, tempDir)
+        StoreTarget reported = null
+
+        when:
+        handle.store(key("first"), new StoreTarget(temporaryFolder.file("missing")))
+
+        then:
+        1 * delegate.canStore() >> true
+        1 * delegate.store({ it.hashCode == "first" }, _) >> { BuildCacheKey key, StoreTarget target ->
+            reported = target
+        }
+        tempDir.list() as List == []
+
+        when:
+        reported.writeTo(new ByteArrayOutputStream())
+
+        then:
+        thrown(FileNotFoundException)
+        !reported.stored
+    }
+
+    def "blocks when too many entries are pending"() {
+        def handle = new AsyncStoreBuildCacheServiceHandle(delegate, executorFactory.create("store", 1), 1, tempDir)
+        def entry = temporaryFolder.file("entry") << "content"
+        delegate.canStore() >> true
+        delegate.store({ it.hashCode == "first" }, _) >> {
+            instant.firstStoreStarted
+            thread.blockUntil.firstStoreReleased
+        }
+
+        when:
+        async {
+            start {
+                handle.store(key("first"), new StoreTarget(entry))
+                handle.store(key("second"), new StoreTarget(entry))
+                instant.secondQueued
+            }
+            thread.blockUntil.firstStoreStarted
+            thread.block()
+            instant.firstStoreReleased
+        }
+        handle.close()
+
+        then:
+        instant.secondQueued > instant.firstStoreReleased
+    }
+
+    def "loads on the calling thread"() {
+        def handle = new AsyncStoreBuildCacheServiceHandle(delegate, executorFactory.create("store", 1), 1, tempDir)
+        def loadTarget = new LoadTarget(temporaryFolder.file("loaded"))
+        def key = key("first")
+
+        when:
+        handle.load(key, loadTarget)
+
+        then:
+        1 * delegate.load(key, loadTarget)
+    }
+
+    private BuildCacheKey key(String hashCode) {
+        Stub(BuildCacheKey) {
+            getHashCode() >> hashCode
+            getDisplayName() >> hashCode
+        }
+    }
+}
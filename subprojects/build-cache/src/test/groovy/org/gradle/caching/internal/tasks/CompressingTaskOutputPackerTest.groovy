@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks
+
+import org.gradle.api.internal.changedetection.state.FileContentSnapshot
+import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.GZIPOutputStream
+
+class CompressingTaskOutputPackerTest extends Specification {
+    def delegate = Mock(TaskOutputPacker)
+    def propertySpecs = new TreeSet<ResolvedTaskOutputFilePropertySpec>()
+    def outputSnapshots = [:] as Map<String, Map<String, FileContentSnapshot>>
+    def writeOrigin = Stub(TaskOutputOriginWriter)
+    def readOrigin = Stub(TaskOutputOriginReader)
+    def content = ("output " * 100000).bytes
+
+    @Unroll
+    def "can unpack entry packed with #compression"() {
+        def packer = new CompressingTaskOutputPacker(delegate, compression)
+        def output = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(propertySpecs, outputSnapshots, output, writeOrigin)
+
+        then:
+        1 * delegate.pack(propertySpecs, outputSnapshots, _, writeOrigin) >> { specs, snapshots, OutputStream compressedOutput, origin ->
+            compressedOutput.write(content)
+            compressedOutput.close()
+            new TaskOutputPacker.PackResult(1)
+        }
+        output.size() < content.length
+
+        when:
+        def unpacked = unpackWith(TaskOutputCompression.GZIP, output.toByteArray())
+
+        then:
+        unpacked == content
+
+        where:
+        compression << TaskOutputCompression.values()
+    }
+
+    def "entries packed with gzip have the same layout as entries from earlier versions"() {
+        def packer = new CompressingTaskOutputPacker(delegate, TaskOutputCompression.GZIP)
+        def output = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(propertySpecs, outputSnapshots, output, writeOrigin)
+
+        then:
+        1 * delegate.pack(propertySpecs, outputSnapshots, _, writeOrigin) >> { specs, snapshots, OutputStream compressedOutput, origin ->
+            compressedOutput.write(content)
+            compressedOutput.close()
+            new TaskOutputPacker.PackResult(1)
+        }
+        output.toByteArray()[0..1] == [(byte) 0x1f, (byte) 0x8b]
+    }
+
+    @Unroll
+    def "can unpack entry from earlier version when packing with #compression"() {
+        def output = new ByteArrayOutputStream()
+        def gzipOutput = new GZIPOutputStream(output)
+        gzipOutput.write(content)
+        gzipOutput.close()
+
+        expect:
+        unpackWith(compression, output.toByteArray()) == content
+
+        where:
+        compression << TaskOutputCompression.values()
+    }
+
+    def "fails to unpack entry with unknown format"() {
+        def packer = new CompressingTaskOutputPacker(delegate, TaskOutputCompression.LZ4)
+
+        when:
+        packer.unpack(propertySpecs, new ByteArrayInputStream([(byte) 'G', (byte) 'C', (byte) 42] as byte[]), readOrigin)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Build cache entry uses an unknown compression format with id 42."
+        0 * delegate._
+
+        when:
+        packer.unpack(propertySpecs, new ByteArrayInputStream("garbage".bytes), readOrigin)
+
+        then:
+        e = thrown(IOException)
+        e.message == "Build cache entry has an unknown format."
+        0 * delegate._
+    }
+
+    private byte[] unpackWith(TaskOutputCompression compression, byte[] entry) {
+        def unpacked = new ByteArrayOutputStream()
+        def delegate = Stub(TaskOutputPacker) {
+            unpack(_, _, _) >> { specs, InputStream input, origin ->
+                unpacked << input
+                new TaskOutputPacker.UnpackResult(null, 1, null)
+            }
+        }
+        new CompressingTaskOutputPacker(delegate, compression).unpack(propertySpecs, new ByteArrayInputStream(entry), readOrigin)
+        return unpacked.toByteArray()
+    }
+}
@@ -17,8 +17,11 @@
 package org.gradle.caching.local.internal
 
 import org.gradle.cache.PersistentCache
+import org.gradle.caching.BuildCacheEntryReader
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.Factory
+import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.internal.resource.local.PathKeyFileStore
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -26,6 +29,8 @@ import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.locks.ReentrantReadWriteLock
+
 @UsesNativeServices
 @CleanupTestDirectory
 class DirectoryBuildCacheServiceTest extends Specification {
@@ -36,7 +41,8 @@ class DirectoryBuildCacheServiceTest extends Specification {
         getBaseDir() >> cacheDir
     }
     def tempFileStore = new DefaultBuildCacheTempFileStore(cacheDir, ".part")
-    def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, ".failed")
+    def eviction = Mock(LruDirectoryBuildCacheEviction)
+    def service = new DirectoryBuildCacheService(fileStore, persistentCache, new ReentrantReadWriteLock(), tempFileStore, ".failed", eviction)
     def key = Mock(BuildCacheKey)
 
     def "does not store partial result"() {
@@ -68,4 +74,70 @@ class DirectoryBuildCacheServiceTest extends Specification {
         cacheDir.listFiles() as List == []
         1 * key.getHashCode() >> hashCode
     }
+
+    def "records size of stored entry for eviction"() {
+        def hashCode = "1234abcd"
+        def entry = temporaryFolder.file("entry") << "abcd"
+
+        when:
+        service.store(key, entry)
+
+        then:
+        1 * key.getHashCode() >> hashCode
+        1 * persistentCache.useCache(_) >> { Runnable action -> action.run() }
+        1 * fileStore.move(hashCode, entry)
+        1 * eviction.entryStored(4)
+    }
+
+    def "records loaded entry as used for eviction"() {
+        def hashCode = "1234abcd"
+        def entry = cacheDir.file(hashCode) << "abcd"
+        def resource = Stub(LocallyAvailableResource) {
+            getFile() >> entry
+        }
+        def reader = Mock(BuildCacheEntryReader)
+
+        when:
+        def loaded = service.load(key, reader)
+
+        then:
+        loaded
+        1 * key.getHashCode() >> hashCode
+        1 * persistentCache.withFileLock(_ as Factory) >> { Factory factory -> factory.create() }
+        1 * fileStore.get(hashCode) >> resource
+        1 * eviction.entryUsed(entry)
+        1 * reader.readFrom(_)
+    }
+
+    def "moves entry aside and fails when it cannot be read"() {
+        def hashCode = "1234abcd"
+        def entry = cacheDir.file(hashCode) << "abcd"
+        def resource = Stub(LocallyAvailableResource) {
+            getFile() >> entry
+        }
+        def reader = Mock(BuildCacheEntryReader)
+
+        when:
+        service.load(key, reader)
+
+        then:
+        def ex = thrown RuntimeException
+        ex.message == "Simulated read error"
+        1 * key.getHashCode() >> hashCode
+        1 * persistentCache.withFileLock(_ as Factory) >> { Factory factory -> factory.create() }
+        1 * fileStore.get(hashCode) >> resource
+        1 * reader.readFrom(_) >> { throw new RuntimeException("Simulated read error") }
+        cacheDir.listFiles()*.name == [hashCode + ".failed"]
+    }
+
+    def "stops eviction before closing cache"() {
+        when:
+        service.close()
+
+        then:
+        1 * eviction.close()
+
+        then:
+        1 * persistentCache.close()
+    }
 }
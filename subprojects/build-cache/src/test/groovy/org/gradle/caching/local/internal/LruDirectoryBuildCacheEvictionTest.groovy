@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal
+
+import org.gradle.api.specs.Spec
+import org.gradle.cache.PersistentCache
+import org.gradle.caching.internal.operations.BuildCacheLocalEvictionBuildOperationType
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+import java.util.concurrent.locks.ReentrantReadWriteLock
+
+@CleanupTestDirectory
+class LruDirectoryBuildCacheEvictionTest extends ConcurrentSpec {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheDir = temporaryFolder.createDir("cache")
+    def persistentCache = Mock(PersistentCache) {
+        getBaseDir() >> cacheDir
+        useCache(_ as Factory) >> { Factory factory -> factory.create() }
+    }
+    def entriesLock = new ReentrantReadWriteLock()
+    def executor = Mock(ManagedExecutor) {
+        execute(_) >> { Runnable action -> action.run() }
+    }
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def eligibleFileNames = new Spec<String>() {
+        @Override
+        boolean isSatisfiedBy(String name) {
+            return !name.endsWith(".lock")
+        }
+    }
+    def eviction = new LruDirectoryBuildCacheEviction(persistentCache, entriesLock, 1000, eligibleFileNames, executor, buildOperationExecutor)
+
+    def "evicts least recently used entries until cache is below low water mark"() {
+        def oldest = entry("oldest", 400, 1000)
+        def older = entry("older", 400, 2000)
+        def newest = entry("newest", 400, 3000)
+        def lock = entry("cache.lock", 400, 0)
+
+        when:
+        eviction.entryStored(400)
+
+        then:
+        !oldest.exists()
+        older.exists()
+        newest.exists()
+        lock.exists()
+
+        def result = buildOperationExecutor.log.mostRecentResult(BuildCacheLocalEvictionBuildOperationType)
+        result.evictedEntryCount == 1
+        result.evictedBytes == 400
+        result.remainingBytes == 800
+
+        def details = buildOperationExecutor.log.mostRecentDetails(BuildCacheLocalEvictionBuildOperationType)
+        details.cacheDirectory == cacheDir.absolutePath
+        details.targetSize == 900
+    }
+
+    def "does not evict entries when cache is below target size"() {
+        def first = entry("first", 400, 1000)
+        def second = entry("second", 400, 2000)
+
+        when:
+        eviction.entryStored(400)
+
+        then:
+        first.exists()
+        second.exists()
+        buildOperationExecutor.log.mostRecentResult(BuildCacheLocalEvictionBuildOperationType).evictedBytes == 0
+
+        when:
+        eviction.entryStored(100)
+
+        then:
+        0 * executor.execute(_)
+        first.exists()
+        second.exists()
+    }
+
+    def "schedules eviction once estimated size exceeds target size"() {
+        def first = entry("first", 400, 1000)
+        def second = entry("second", 400, 2000)
+        eviction.entryStored(400)
+
+        when:
+        entry("third", 400, 3000)
+        eviction.entryStored(400)
+
+        then:
+        1 * executor.execute(_) >> { Runnable action -> action.run() }
+        !first.exists()
+        second.exists()
+    }
+
+    def "does not evict entries that were used after the cache was scanned"() {
+        def used = entry("used", 400, 1000)
+        def unused = entry("unused", 400, 2000)
+        entry("newest", 400, 3000)
+        def evictionOfUsedEntry = new LruDirectoryBuildCacheEviction(persistentCache, entriesLock, 1000, eligibleFileNames, executor, buildOperationExecutor)
+
+        when:
+        evictionOfUsedEntry.entryStored(400)
+
+        then:
+        2 * persistentCache.useCache(_ as Factory) >> { Factory factory ->
+            used.lastModified = 4000
+            factory.create()
+        }
+        used.exists()
+        !unused.exists()
+    }
+
+    def "does not evict entries that were loaded after the cache was scanned"() {
+        def used = entry("used", 400, 1000)
+        def unused = entry("unused", 400, 2000)
+        entry("newest", 400, 3000)
+        def evictionOfUsedEntry = new LruDirectoryBuildCacheEviction(persistentCache, entriesLock, 1000, eligibleFileNames, executor, buildOperationExecutor)
+
+        when:
+        evictionOfUsedEntry.entryStored(400)
+
+        then:
+        2 * persistentCache.useCache(_ as Factory) >> { Factory factory ->
+            // Loading an entry does not update its modification time when it has been updated recently
+            evictionOfUsedEntry.entryUsed(used)
+            factory.create()
+        }
+        used.exists()
+        !unused.exists()
+    }
+
+    def "does not evict entries while entries are being loaded"() {
+        def oldest = entry("oldest", 400, 1000)
+        entry("older", 400, 2000)
+        entry("newest", 400, 3000)
+
+        when:
+        async {
+            start {
+                entriesLock.readLock().lock()
+                try {
+                    instant.loading
+                    thread.block()
+                    assert oldest.exists()
+                    instant.loaded
+                } finally {
+                    entriesLock.readLock().unlock()
+                }
+            }
+            start {
+                thread.blockUntil.loading
+                eviction.entryStored(400)
+                instant.evicted
+            }
+        }
+
+        then:
+        instant.evicted > instant.loaded
+        !oldest.exists()
+    }
+
+    def "stops executor when closed"() {
+        when:
+        eviction.close()
+        eviction.entryStored(10000)
+
+        then:
+        1 * executor.stop()
+        0 * executor.execute(_)
+    }
+
+    private TestFile entry(String name, int size, long lastModified) {
+        def file = cacheDir.file(name)
+        file.bytes = new byte[size]
+        file.lastModified = lastModified
+        return file
+    }
+}
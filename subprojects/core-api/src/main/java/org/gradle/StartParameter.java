@@ -90,6 +90,7 @@ public class StartParameter implements LoggingConfiguration, ParallelismConfigur
     private boolean recompileScripts;
     private boolean buildCacheEnabled;
     private boolean configureOnDemand;
+    private boolean criticalPathSchedulingEnabled;
     private boolean continuous;
     private List<File> includedBuilds = new ArrayList<File>();
     private boolean buildScan;
@@ -232,6 +233,7 @@ public class StartParameter implements LoggingConfiguration, ParallelismConfigur
         p.setParallelProjectExecutionEnabled(isParallelProjectExecutionEnabled());
         p.buildCacheEnabled = buildCacheEnabled;
         p.configureOnDemand = configureOnDemand;
+        p.criticalPathSchedulingEnabled = criticalPathSchedulingEnabled;
         p.setMaxWorkerCount(getMaxWorkerCount());
         p.systemPropertiesArgs = new HashMap<String, String>(systemPropertiesArgs);
         return p;
@@ -698,6 +700,26 @@ public class StartParameter implements LoggingConfiguration, ParallelismConfigur
         setBuildCacheEnabled(buildCacheEnabled);
     }
 
+    /**
+     * Returns true if tasks should be scheduled according to their estimated remaining critical path, based on the durations recorded by previous builds.
+     *
+     * @since 4.3
+     */
+    @Incubating
+    public boolean isCriticalPathSchedulingEnabled() {
+        return criticalPathSchedulingEnabled;
+    }
+
+    /**
+     * Enables/disables scheduling of tasks according to their estimated remaining critical path.
+     *
+     * @since 4.3
+     */
+    @Incubating
+    public void setCriticalPathSchedulingEnabled(boolean criticalPathSchedulingEnabled) {
+        this.criticalPathSchedulingEnabled = criticalPathSchedulingEnabled;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -748,6 +770,7 @@ public class StartParameter implements LoggingConfiguration, ParallelismConfigur
             + ", configureOnDemand=" + configureOnDemand
             + ", maxWorkerCount=" + getMaxWorkerCount()
             + ", buildCacheEnabled=" + buildCacheEnabled
+            + ", criticalPathSchedulingEnabled=" + criticalPathSchedulingEnabled
             + '}';
     }
 
@@ -52,6 +52,7 @@ class StartParameterTest extends Specification {
         parameter.configureOnDemand = true
         parameter.parallelProjectExecutionEnabled = true
         parameter.buildCacheEnabled = true
+        parameter.criticalPathSchedulingEnabled = true
         parameter.includeBuild(new File('participant'))
 
         when:
@@ -120,6 +121,7 @@ class StartParameterTest extends Specification {
         !parameter.refreshDependencies
         !parameter.parallelProjectExecutionEnabled
         !parameter.buildCacheEnabled
+        !parameter.criticalPathSchedulingEnabled
 
         assertThat(parameter, isSerializable())
     }
@@ -268,6 +270,7 @@ class StartParameterTest extends Specification {
         parameter.logLevel = LogLevel.DEBUG
         parameter.consoleOutput = ConsoleOutput.Plain
         parameter.configureOnDemand = true
+        parameter.criticalPathSchedulingEnabled = true
         parameter.systemPropertiesArgs.put("testprop", "foo")
 
         // Non-copied
@@ -293,6 +296,7 @@ class StartParameterTest extends Specification {
         newParameter != parameter
 
         newParameter.configureOnDemand == parameter.configureOnDemand
+        newParameter.criticalPathSchedulingEnabled == parameter.criticalPathSchedulingEnabled
         newParameter.gradleUserHomeDir == parameter.gradleUserHomeDir
         newParameter.logLevel == parameter.logLevel
         newParameter.consoleOutput == parameter.consoleOutput
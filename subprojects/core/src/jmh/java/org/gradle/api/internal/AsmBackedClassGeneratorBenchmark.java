@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up classes that have already been generated by {@link AsmBackedClassGenerator}, from several threads at once, as happens when projects are
+ * configured in parallel.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(8)
+@State(Scope.Benchmark)
+public class AsmBackedClassGeneratorBenchmark {
+    private final AsmBackedClassGenerator generator = new AsmBackedClassGenerator();
+
+    @Setup
+    public void setup() {
+        generator.generate(Bean.class);
+        generator.generate(OtherBean.class);
+    }
+
+    @Benchmark
+    public Class<?> generateSameType() {
+        return generator.generate(Bean.class);
+    }
+
+    @Benchmark
+    public Object newInstance() {
+        return generator.newInstance(OtherBean.class);
+    }
+
+    public static class Bean {
+        private String prop;
+
+        public String getProp() {
+            return prop;
+        }
+
+        public void setProp(String prop) {
+            this.prop = prop;
+        }
+    }
+
+    public static class OtherBean extends Bean {
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.collections.DefaultDirectoryFileTreeFactory;
+import org.gradle.initialization.DefaultParallelismConfigurationManager;
+import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration;
+import org.gradle.internal.event.DefaultListenerManager;
+import org.gradle.internal.hash.DefaultContentHasherFactory;
+import org.gradle.internal.hash.DefaultFileHasher;
+import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.nativeintegration.services.NativeServices;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.work.DefaultWorkerLeaseService;
+import org.gradle.internal.work.WorkerLeaseService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+/**
+ * Compares snapshotting a directory tree on the calling thread with snapshotting it using {@link ParallelFileTreeHasher}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+@SuppressWarnings("Since15")
+public class DirectoryTreeSnapshottingBenchmark {
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    @Param({"500", "5000", "50000"})
+    int fileCount;
+
+    @Param({"1", "4", "8"})
+    int maxWorkerCount;
+
+    private File tempDir;
+    private File treeRoot;
+    private FileHasher fileHasher;
+    private FileSystem fileSystem;
+    private WorkerLeaseService workerLeaseService;
+    private ParallelFileTreeHasher treeHasher;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("tree-snapshotting").toFile();
+        NativeServices.initialize(new File(tempDir, "native"));
+        fileSystem = FileSystems.getDefault();
+        fileHasher = new DefaultFileHasher(new DefaultStreamHasher(new DefaultContentHasherFactory()));
+        DefaultParallelismConfigurationManager parallelismConfigurationManager = new DefaultParallelismConfigurationManager(new DefaultListenerManager());
+        parallelismConfigurationManager.setParallelismConfiguration(new DefaultParallelismConfiguration(false, maxWorkerCount));
+        DefaultResourceLockCoordinationService coordinationService = new DefaultResourceLockCoordinationService();
+        workerLeaseService = new DefaultWorkerLeaseService(coordinationService, parallelismConfigurationManager);
+        treeHasher = new ParallelFileTreeHasher(workerLeaseService, coordinationService, new DefaultExecutorFactory());
+
+        treeRoot = new File(tempDir, "tree");
+        byte[] content = new byte[4096];
+        for (int i = 0; i < fileCount; i++) {
+            File dir = new File(treeRoot, "dir" + (i / FILES_PER_DIRECTORY));
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Could not create " + dir);
+            }
+            content[0] = (byte) i;
+            content[1] = (byte) (i >> 8);
+            content[2] = (byte) (i >> 16);
+            Files.write(new File(dir, "file" + i + ".txt").toPath(), content);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        treeHasher.stop();
+        workerLeaseService.stop();
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        // Use a new mirror each time, so that the tree is scanned again
+        DefaultFileSystemSnapshotter snapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), fileSystem, new DefaultDirectoryFileTreeFactory(), new DefaultFileSystemMirror(Collections.<CachedJarFileStore>emptyList()));
+        blackhole.consume(snapshotter.snapshotDirectoryTree(treeRoot));
+    }
+
+    @Benchmark
+    public void parallel(final Blackhole blackhole) {
+        // Use a new mirror each time, so that the tree is scanned again
+        final DefaultFileSystemSnapshotter snapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), fileSystem, new DefaultDirectoryFileTreeFactory(), new DefaultFileSystemMirror(Collections.<CachedJarFileStore>emptyList()), treeHasher);
+        // Snapshot while holding a worker lease, like a task does
+        workerLeaseService.withLocks(Collections.singleton(workerLeaseService.getWorkerLease()), new Runnable() {
+            @Override
+            public void run() {
+                blackhole.consume(snapshotter.snapshotDirectoryTree(treeRoot));
+            }
+        });
+    }
+}
@@ -16,22 +16,62 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.FileUtils;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.file.DefaultFileHierarchySet;
 import org.gradle.internal.file.FileHierarchySet;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+import org.gradle.util.GFileUtils;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * See {@link DefaultFileSystemSnapshotter} for some more details
+ *
+ * <p>When a {@link FileWatcherFactory} is provided, the state for files that do not live in an append-only cache is retained between builds. The snapshotted
+ * directory trees are watched, and the state for any path that changes is discarded at the start of the next build. State for files outside of a watched directory
+ * tree is not retained. State is only retained for paths that were already watched when the build started, so that changes made between taking a snapshot and
+ * starting to watch the path cannot be missed. This means state for a new path is retained from the third build that uses it.</p>
+ *
+ * <p>At the start of each build, a barrier file is written and the state is only kept when the watcher delivers the change to the barrier file in time, which means
+ * all earlier changes have been delivered as well. All retained state is discarded when the watcher overflows, fails, falls behind or a watched directory is removed.
+ * Watchers that poll the file system, such as the one used on macOS, cannot keep up with this, so the state should only be retained with a native watcher.</p>
  */
-public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGenerationListener, RootBuildLifecycleListener {
+public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGenerationListener, RootBuildLifecycleListener, Stoppable {
+    /**
+     * Enables retaining file system state between builds, invalidated by a file watcher.
+     */
+    public static final String RETAIN_STATE_SYSPROP = "org.gradle.internal.filewatch.retain.state";
+    private static final Logger LOGGER = Logging.getLogger(DefaultFileSystemMirror.class);
+    // When more changes than this are pending, all retained state is discarded instead of checking each change
+    private static final int MAX_PENDING_CHANGES = 10000;
+    // How long to wait at the start of a build for the watcher to deliver the changes made before the build started
+    private static final long BARRIER_TIMEOUT_MILLIS = 1000;
+
     // Maps from interned absolute path for a file to known details for the file.
     private final Map<String, FileSnapshot> files = new ConcurrentHashMap<String, FileSnapshot>();
     private final Map<String, FileSnapshot> cacheFiles = new ConcurrentHashMap<String, FileSnapshot>();
@@ -43,7 +83,32 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
     private final Map<String, Snapshot> cacheSnapshots = new ConcurrentHashMap<String, Snapshot>();
     private final FileHierarchySet cachedDirectories;
 
+    @Nullable
+    private final FileWatcherFactory fileWatcherFactory;
+    @Nullable
+    private final TemporaryFileProvider temporaryFileProvider;
+    // Guards the watcher and the watched roots. The watcher's listener must not take this lock, as the watcher holds its own lock while notifying the listener
+    private final Object watchLock = new Object();
+    private FileWatcher fileWatcher;
+    private File barrierDir;
+    private int barrierCount;
+    private FileHierarchySet watchedRoots = DefaultFileHierarchySet.of();
+    private final Set<String> watchedRootPaths = new HashSet<String>();
+    private FileHierarchySet watchedAtBuildStart = DefaultFileHierarchySet.of();
+    // Guards the changes received from the watcher
+    private final Object changesLock = new Object();
+    private final Set<String> changedPaths = new HashSet<String>();
+    private boolean discardAll;
+    private boolean watcherFailed;
+    private File pendingBarrier;
+
     public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores) {
+        this(fileStores, null, null);
+    }
+
+    public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores, @Nullable FileWatcherFactory fileWatcherFactory, @Nullable TemporaryFileProvider temporaryFileProvider) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.temporaryFileProvider = temporaryFileProvider;
         FileHierarchySet cachedDirectories = DefaultFileHierarchySet.of();
         for (CachedJarFileStore fileStore : fileStores) {
             for (File file : fileStore.getFileStoreRoots()) {
@@ -125,16 +190,230 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
 
     @Override
     public void afterStart() {
+        if (fileWatcherFactory == null) {
+            return;
+        }
+        synchronized (watchLock) {
+            boolean received = fileWatcher == null || awaitPendingChanges();
+            Set<String> changed;
+            boolean discard;
+            boolean failed;
+            synchronized (changesLock) {
+                changed = new HashSet<String>(changedPaths);
+                discard = discardAll;
+                failed = watcherFailed;
+                changedPaths.clear();
+                discardAll = false;
+                watcherFailed = false;
+            }
+            if (!received) {
+                LOGGER.info("File system changes were not received in time, discarding retained file system state.");
+                discard = true;
+            }
+            if (!discard && !Collections.disjoint(changed, watchedRootPaths)) {
+                // A watched directory has been removed, so it is no longer watched
+                LOGGER.info("A watched directory was removed, discarding retained file system state.");
+                failed = true;
+            }
+            if (failed || (fileWatcher != null && !fileWatcher.isRunning())) {
+                stopWatching();
+                discard = true;
+            }
+            if (discard) {
+                LOGGER.info("File system changes were not tracked since the last build, discarding retained file system state.");
+                files.clear();
+                trees.clear();
+                snapshots.clear();
+            } else if (!changed.isEmpty()) {
+                discardChanged(changed);
+            }
+            watchedAtBuildStart = watchedRoots;
+        }
     }
 
     @Override
     public void beforeComplete() {
-        // We throw away all state between builds
-        files.clear();
         cacheFiles.clear();
-        trees.clear();
         cacheTrees.clear();
-        snapshots.clear();
         cacheSnapshots.clear();
+        if (fileWatcherFactory == null) {
+            // We throw away all state between builds
+            files.clear();
+            trees.clear();
+            snapshots.clear();
+            return;
+        }
+
+        synchronized (watchLock) {
+            // Keep the state for paths that have been watched since the start of the build, and start watching the remaining directory trees for the next build.
+            // Watching a directory watches everything beneath it, so the parent directories of individual files are not watched
+            List<File> unwatched = new ArrayList<File>();
+            discardUnwatched(trees.keySet(), unwatched);
+            discardUnwatched(files.keySet(), null);
+            discardUnwatched(snapshots.keySet(), null);
+            if (!unwatched.isEmpty()) {
+                watch(FileUtils.calculateRoots(unwatched));
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (watchLock) {
+            stopWatching();
+        }
+    }
+
+    /**
+     * Waits for the watcher to deliver the changes made before this method was called. Changes are delivered in the order they happen,
+     * so once a change made to the barrier file is received, all earlier changes have been received as well.
+     *
+     * @return true when all earlier changes have been received, false when this could not be confirmed in time.
+     */
+    private boolean awaitPendingChanges() {
+        // Use a new file for each barrier, so that a late change to an earlier barrier file is not mistaken for this one
+        File barrier = new File(barrierDir, "barrier-" + (++barrierCount));
+        synchronized (changesLock) {
+            pendingBarrier = barrier;
+        }
+        try {
+            GFileUtils.touch(barrier);
+            long deadline = System.currentTimeMillis() + BARRIER_TIMEOUT_MILLIS;
+            synchronized (changesLock) {
+                while (pendingBarrier != null) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    try {
+                        changesLock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+                return true;
+            }
+        } catch (UncheckedIOException e) {
+            LOGGER.info("Could not write the file system barrier file.", e);
+            return false;
+        } finally {
+            GFileUtils.deleteQuietly(barrier);
+        }
+    }
+
+    private void discardChanged(Set<String> changedPaths) {
+        FileHierarchySet changed = DefaultFileHierarchySet.of();
+        for (String path : changedPaths) {
+            changed = changed.plus(new File(path));
+        }
+        discardContainedIn(changed, files.keySet());
+        discardContainedIn(changed, trees.keySet());
+        discardContainedIn(changed, snapshots.keySet());
+
+        // Trees and content snapshots also cover the descendants of their path
+        for (String path : changedPaths) {
+            for (File ancestor = new File(path).getParentFile(); ancestor != null; ancestor = ancestor.getParentFile()) {
+                trees.remove(ancestor.getPath());
+                snapshots.remove(ancestor.getPath());
+            }
+        }
+    }
+
+    private static void discardContainedIn(FileHierarchySet changed, Set<String> paths) {
+        for (Iterator<String> iterator = paths.iterator(); iterator.hasNext();) {
+            if (changed.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void discardUnwatched(Set<String> paths, @Nullable List<File> unwatched) {
+        for (Iterator<String> iterator = paths.iterator(); iterator.hasNext();) {
+            String path = iterator.next();
+            if (!watchedAtBuildStart.contains(path)) {
+                iterator.remove();
+                if (unwatched != null) {
+                    unwatched.add(new File(path));
+                }
+            }
+        }
+    }
+
+    private void watch(Collection<? extends File> roots) {
+        try {
+            FileSystemSubset.Builder builder = FileSystemSubset.builder();
+            if (fileWatcher == null) {
+                barrierDir = temporaryFileProvider.createTemporaryDirectory("file-system-mirror", null);
+                builder.add(barrierDir);
+                fileWatcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                    @Override
+                    public void execute(Throwable throwable) {
+                        LOGGER.info("Watching the file system failed, discarding retained file system state.", throwable);
+                        synchronized (changesLock) {
+                            watcherFailed = true;
+                            discardAll = true;
+                        }
+                    }
+                }, new ChangeListener(barrierDir));
+            }
+            for (File root : roots) {
+                builder.add(root);
+            }
+            fileWatcher.watch(builder.build());
+            for (File root : roots) {
+                // A directory that does not exist is not watched, so its creation would go unnoticed. Check this after registering the watch,
+                // as the removal of a directory that is watched is received as a change
+                if (root.isDirectory()) {
+                    watchedRoots = watchedRoots.plus(root);
+                    watchedRootPaths.add(root.getPath());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.info("Could not watch the file system, discarding retained file system state.", e);
+            stopWatching();
+            synchronized (changesLock) {
+                discardAll = true;
+            }
+        }
+    }
+
+    private void stopWatching() {
+        if (fileWatcher != null) {
+            fileWatcher.stop();
+            fileWatcher = null;
+        }
+        if (barrierDir != null) {
+            GFileUtils.deleteQuietly(barrierDir);
+            barrierDir = null;
+        }
+        watchedRoots = DefaultFileHierarchySet.of();
+        watchedRootPaths.clear();
+        watchedAtBuildStart = watchedRoots;
+    }
+
+    private class ChangeListener implements FileWatcherListener {
+        private final File barrierDir;
+
+        ChangeListener(File barrierDir) {
+            this.barrierDir = barrierDir;
+        }
+
+        @Override
+        public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+            synchronized (changesLock) {
+                if (event.getFile() != null && barrierDir.equals(event.getFile().getParentFile())) {
+                    if (event.getFile().equals(pendingBarrier)) {
+                        pendingBarrier = null;
+                        changesLock.notifyAll();
+                    }
+                } else if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null || changedPaths.size() >= MAX_PENDING_CHANGES) {
+                    // The watcher has overflowed, or there are too many changes to be worth tracking individually
+                    discardAll = true;
+                    changedPaths.clear();
+                } else if (!discardAll) {
+                    changedPaths.add(event.getFile().getAbsolutePath());
+                }
+            }
+        }
     }
 }
@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import org.gradle.api.Transformer;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
@@ -37,6 +38,7 @@ import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.normalization.internal.InputNormalizationStrategy;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 
@@ -61,9 +63,22 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
     private final ProducerGuard<String> producingTrees = ProducerGuard.striped();
     private final ProducerGuard<String> producingAllSnapshots = ProducerGuard.striped();
     private final DefaultGenericFileCollectionSnapshotter snapshotter;
+    @Nullable
+    private final ParallelFileTreeHasher treeHasher;
+    private final Transformer<FileSnapshot, FileVisitDetails> elementSnapshotter = new Transformer<FileSnapshot, FileVisitDetails>() {
+        @Override
+        public FileSnapshot transform(FileVisitDetails details) {
+            return snapshotElement(details);
+        }
+    };
 
     public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+        this(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, null);
+    }
+
+    public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, @Nullable ParallelFileTreeHasher treeHasher) {
         this.hasher = hasher;
+        this.treeHasher = treeHasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
@@ -162,9 +177,33 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
 
     private FileTreeSnapshot doSnapshot(DirectoryFileTree directoryTree) {
         String path = getPath(directoryTree.getDir());
-        List<FileSnapshot> elements = Lists.newArrayList();
-        directoryTree.visit(new FileVisitorImpl(elements));
-        return new DirectoryTreeDetails(path, ImmutableList.copyOf(elements));
+        if (treeHasher == null) {
+            List<FileSnapshot> elements = Lists.newArrayList();
+            directoryTree.visit(new FileVisitorImpl(elements));
+            return new DirectoryTreeDetails(path, ImmutableList.copyOf(elements));
+        }
+
+        // Walk the tree first, so that the potentially expensive hashing of the files can be split up
+        final List<FileVisitDetails> visited = Lists.newArrayList();
+        directoryTree.visit(new FileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+                visited.add(dirDetails);
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                visited.add(fileDetails);
+            }
+        });
+        return new DirectoryTreeDetails(path, treeHasher.snapshot(visited, elementSnapshotter));
+    }
+
+    private FileSnapshot snapshotElement(FileVisitDetails details) {
+        if (details.isDirectory()) {
+            return new DirectoryFileSnapshot(getPath(details.getFile()), details.getRelativePath(), false);
+        }
+        return new RegularFileSnapshot(getPath(details.getFile()), details.getRelativePath(), false, fileSnapshot(details));
     }
 
     private String getPath(File file) {
@@ -216,12 +255,12 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
 
         @Override
         public void visitDir(FileVisitDetails dirDetails) {
-            fileTreeElements.add(new DirectoryFileSnapshot(getPath(dirDetails.getFile()), dirDetails.getRelativePath(), false));
+            fileTreeElements.add(snapshotElement(dirDetails));
         }
 
         @Override
         public void visitFile(FileVisitDetails fileDetails) {
-            fileTreeElements.add(new RegularFileSnapshot(getPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, fileSnapshot(fileDetails)));
+            fileTreeElements.add(snapshotElement(fileDetails));
         }
     }
 }
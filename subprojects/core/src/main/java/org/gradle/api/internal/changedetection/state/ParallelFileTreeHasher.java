@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.Transformer;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.resources.ResourceLockCoordinationService;
+import org.gradle.internal.work.NoAvailableWorkerLeaseException;
+import org.gradle.internal.work.WorkerLeaseRegistry;
+import org.gradle.internal.work.WorkerLeaseService;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.tryLock;
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.unlock;
+
+/**
+ * Creates the snapshots for the elements of a directory tree, hashing the regular files of large trees on several threads.
+ *
+ * <p>The elements are visited by the caller, so the snapshots are always in the order of the directory walker, regardless of how the hashing is split.
+ * Trees with fewer than {@link #PARALLEL_THRESHOLD} regular files, and trees snapshotted by a thread that does not hold a worker lease, are hashed on the calling thread.</p>
+ *
+ * <p>The calling thread hashes chunks of the tree itself. Other threads only help while they hold a worker lease of their own, which they take without waiting
+ * when one is free. So hashing never uses more threads than the max worker count, together with the tasks and other work of the build.</p>
+ */
+public class ParallelFileTreeHasher implements Stoppable {
+    static final int PARALLEL_THRESHOLD = 1000;
+    private static final int CHUNK_SIZE = 128;
+
+    private final WorkerLeaseService workerLeaseService;
+    private final ResourceLockCoordinationService coordinationService;
+    private final ManagedExecutor executor;
+
+    public ParallelFileTreeHasher(WorkerLeaseService workerLeaseService, ResourceLockCoordinationService coordinationService, ExecutorFactory executorFactory) {
+        this.workerLeaseService = workerLeaseService;
+        this.coordinationService = coordinationService;
+        this.executor = executorFactory.create("File tree hasher");
+    }
+
+    public List<FileSnapshot> snapshot(List<FileVisitDetails> elements, Transformer<FileSnapshot, FileVisitDetails> snapshotter) {
+        FileSnapshot[] snapshots = new FileSnapshot[elements.size()];
+        if (workerLeaseService.getMaxWorkerCount() > 1 && countFiles(elements) >= PARALLEL_THRESHOLD && holdsWorkerLease()) {
+            new Chunks(elements, snapshotter, snapshots).snapshot();
+        } else {
+            for (int i = 0; i < snapshots.length; i++) {
+                snapshots[i] = snapshotter.transform(elements.get(i));
+            }
+        }
+        return ImmutableList.copyOf(snapshots);
+    }
+
+    private boolean holdsWorkerLease() {
+        try {
+            workerLeaseService.getCurrentWorkerLease();
+            return true;
+        } catch (NoAvailableWorkerLeaseException e) {
+            return false;
+        }
+    }
+
+    private static int countFiles(List<FileVisitDetails> elements) {
+        int files = 0;
+        for (FileVisitDetails element : elements) {
+            if (!element.isDirectory()) {
+                files++;
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+
+    private class Chunks {
+        private final List<FileVisitDetails> elements;
+        private final Transformer<FileSnapshot, FileVisitDetails> snapshotter;
+        private final FileSnapshot[] snapshots;
+        private final int chunkCount;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final CountDownLatch completedChunks;
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        Chunks(List<FileVisitDetails> elements, Transformer<FileSnapshot, FileVisitDetails> snapshotter, FileSnapshot[] snapshots) {
+            this.elements = elements;
+            this.snapshotter = snapshotter;
+            this.snapshots = snapshots;
+            this.chunkCount = (snapshots.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            this.completedChunks = new CountDownLatch(chunkCount);
+        }
+
+        void snapshot() {
+            int helpers = Math.min(workerLeaseService.getMaxWorkerCount(), chunkCount) - 1;
+            for (int i = 0; i < helpers; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        helpWithSpareLease();
+                    }
+                });
+            }
+
+            // The calling thread holds a worker lease, and hashes any chunks that no other thread has taken
+            snapshotRemainingChunks();
+            try {
+                completedChunks.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            Throwable failure = this.failure.get();
+            if (failure != null) {
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
+        }
+
+        private void helpWithSpareLease() {
+            if (nextChunk.get() >= chunkCount) {
+                return;
+            }
+            WorkerLeaseRegistry.WorkerLease lease = workerLeaseService.getWorkerLease();
+            if (!coordinationService.withStateLock(tryLock(lease))) {
+                // All worker leases are in use, leave the work to the threads that hold one
+                return;
+            }
+            try {
+                snapshotRemainingChunks();
+            } finally {
+                coordinationService.withStateLock(unlock(lease));
+            }
+        }
+
+        private void snapshotRemainingChunks() {
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                try {
+                    int end = Math.min((chunk + 1) * CHUNK_SIZE, snapshots.length);
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        snapshots[i] = snapshotter.transform(elements.get(i));
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    completedChunks.countDown();
+                }
+            }
+        }
+    }
+}
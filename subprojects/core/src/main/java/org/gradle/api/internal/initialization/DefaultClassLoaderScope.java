@@ -25,6 +25,10 @@ import org.gradle.internal.classpath.ClassPath;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A scope whose class loaders are created lazily. The scope of a project is the parent of the scopes of its scripts and child projects, which may be
+ * used by several threads when projects are configured concurrently, so access to the state of the scope is synchronized.
+ */
 public class DefaultClassLoaderScope extends AbstractClassLoaderScope {
 
     public static final String STRICT_MODE_PROPERTY = "org.gradle.classloaderscope.strict";
@@ -132,13 +136,13 @@ public class DefaultClassLoaderScope extends AbstractClassLoaderScope {
     }
 
     @Override
-    public ClassLoader getExportClassLoader() {
+    public synchronized ClassLoader getExportClassLoader() {
         buildEffectiveLoaders();
         return effectiveExportClassLoader;
     }
 
     @Override
-    public ClassLoader getLocalClassLoader() {
+    public synchronized ClassLoader getLocalClassLoader() {
         buildEffectiveLoaders();
         return effectiveLocalClassLoader;
     }
@@ -149,7 +153,7 @@ public class DefaultClassLoaderScope extends AbstractClassLoaderScope {
     }
 
     @Override
-    public boolean defines(Class<?> clazz) {
+    public synchronized boolean defines(Class<?> clazz) {
         if (ownLoaders != null) {
             for (ClassLoader ownLoader : ownLoaders) {
                 if (ownLoader.equals(clazz.getClassLoader())) {
@@ -170,7 +174,7 @@ public class DefaultClassLoaderScope extends AbstractClassLoaderScope {
     }
 
     @Override
-    public ClassLoaderScope local(ClassPath classPath) {
+    public synchronized ClassLoaderScope local(ClassPath classPath) {
         if (classPath.isEmpty()) {
             return this;
         }
@@ -187,7 +191,7 @@ public class DefaultClassLoaderScope extends AbstractClassLoaderScope {
     }
 
     @Override
-    public ClassLoaderScope export(ClassPath classPath) {
+    public synchronized ClassLoaderScope export(ClassPath classPath) {
         if (classPath.isEmpty()) {
             return this;
         }
@@ -203,7 +207,7 @@ public class DefaultClassLoaderScope extends AbstractClassLoaderScope {
     }
 
     @Override
-    public ClassLoaderScope export(ClassLoader classLoader) {
+    public synchronized ClassLoaderScope export(ClassLoader classLoader) {
         assertNotLocked();
         if (exportingClassLoader != null) {
             exportingClassLoader.addParent(classLoader);
@@ -224,13 +228,13 @@ public class DefaultClassLoaderScope extends AbstractClassLoaderScope {
     }
 
     @Override
-    public ClassLoaderScope lock() {
+    public synchronized ClassLoaderScope lock() {
         locked = true;
         return this;
     }
 
     @Override
-    public boolean isLocked() {
+    public synchronized boolean isLocked() {
         return locked;
     }
 }
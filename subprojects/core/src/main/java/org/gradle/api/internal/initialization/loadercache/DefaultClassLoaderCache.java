@@ -32,20 +32,44 @@ import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.hash.HashCode;
 
 import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Caches class loaders by id and by spec, sharing a loader between all ids with the same parent, classpath, implementation hash and filter.
+ *
+ * <p>Unfiltered loaders that are no longer used by any id are retained, least recently released first out, so that a later
+ * build asking for the same classpath gets the loader and its already loaded classes back. At most 8 loaders are retained,
+ * which can be changed using the {@value #MAX_RETAINED_PROPERTY} system property, and none are retained while metaspace
+ * usage is above 80% of its maximum.</p>
+ */
 public class DefaultClassLoaderCache implements ClassLoaderCache, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(DefaultClassLoaderCache.class);
+    public static final String MAX_RETAINED_PROPERTY = "org.gradle.classloaders.maxRetained";
+    private static final int DEFAULT_MAX_RETAINED = 8;
+    private static final int MAX_METASPACE_USAGE_PERCENTAGE = 80;
 
     private final Object lock = new Object();
     private final Map<ClassLoaderId, CachedClassLoader> byId = Maps.newHashMap();
     private final Map<ClassLoaderSpec, CachedClassLoader> bySpec = Maps.newHashMap();
+    private final Map<ClassLoaderSpec, CachedClassLoader> retained = new LinkedHashMap<ClassLoaderSpec, CachedClassLoader>();
     private final ClasspathHasher classpathHasher;
     private final HashingClassLoaderFactory classLoaderFactory;
+    private final int maxRetained;
+    private int reusedCount;
 
     public DefaultClassLoaderCache(HashingClassLoaderFactory classLoaderFactory, ClasspathHasher classpathHasher) {
+        this(classLoaderFactory, classpathHasher, Integer.getInteger(MAX_RETAINED_PROPERTY, DEFAULT_MAX_RETAINED));
+    }
+
+    DefaultClassLoaderCache(HashingClassLoaderFactory classLoaderFactory, ClasspathHasher classpathHasher, int maxRetained) {
         this.classLoaderFactory = classLoaderFactory;
         this.classpathHasher = classpathHasher;
+        this.maxRetained = maxRetained;
     }
 
     @Override
@@ -103,6 +127,14 @@ public class DefaultClassLoaderCache implements ClassLoaderCache, Stoppable {
 
     private CachedClassLoader getAndRetainLoader(ClassPath classPath, ManagedClassLoaderSpec spec, ClassLoaderId id) {
         CachedClassLoader cachedLoader = bySpec.get(spec);
+        if (cachedLoader == null) {
+            cachedLoader = retained.remove(spec);
+            if (cachedLoader != null) {
+                reusedCount++;
+                LOGGER.info("Reusing retained classloader for {} ({} retained classloader(s) reused so far)", id, reusedCount);
+                bySpec.put(spec, cachedLoader);
+            }
+        }
         if (cachedLoader == null) {
             ClassLoader classLoader;
             CachedClassLoader parentCachedLoader = null;
@@ -119,6 +151,38 @@ public class DefaultClassLoaderCache implements ClassLoaderCache, Stoppable {
         return cachedLoader.retain(id);
     }
 
+    private void retainUnused(CachedClassLoader cachedLoader) {
+        if (maxRetained <= 0 || cachedLoader.parent != null || !(cachedLoader.spec instanceof ManagedClassLoaderSpec)) {
+            return;
+        }
+        if (isMetaspaceNearlyFull()) {
+            if (!retained.isEmpty()) {
+                LOGGER.debug("Metaspace is nearly full, discarding {} retained classloader(s)", retained.size());
+                retained.clear();
+            }
+            return;
+        }
+        retained.put(cachedLoader.spec, cachedLoader);
+        Iterator<CachedClassLoader> iterator = retained.values().iterator();
+        while (retained.size() > maxRetained) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static boolean isMetaspaceNearlyFull() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().equals("Metaspace")) {
+                MemoryUsage usage = pool.getUsage();
+                return usage.getMax() > 0 && usage.getUsed() * 100 > usage.getMax() * MAX_METASPACE_USAGE_PERCENTAGE;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of class loaders currently in use.
+     */
     @Override
     public int size() {
         synchronized (lock) {
@@ -126,6 +190,12 @@ public class DefaultClassLoaderCache implements ClassLoaderCache, Stoppable {
         }
     }
 
+    int retainedSize() {
+        synchronized (lock) {
+            return retained.size();
+        }
+    }
+
     @Override
     public void stop() {
         synchronized (lock) {
@@ -134,6 +204,7 @@ public class DefaultClassLoaderCache implements ClassLoaderCache, Stoppable {
             }
             byId.clear();
             bySpec.clear();
+            retained.clear();
         }
     }
 
@@ -221,6 +292,7 @@ public class DefaultClassLoaderCache implements ClassLoaderCache, Stoppable {
                         parent.release(loaderId);
                     }
                     bySpec.remove(spec);
+                    retainUnused(this);
                 }
             } else {
                 throw new IllegalStateException("Classloader '" + this + "' not used by '" + loaderId + "'");
@@ -20,9 +20,11 @@ import org.gradle.api.ProjectState;
 import org.gradle.internal.UncheckedException;
 
 public class ProjectStateInternal implements ProjectState {
-    private boolean executing;
-    private boolean executed;
-    private Throwable failure;
+    private volatile boolean executing;
+    private volatile boolean executed;
+    private volatile Throwable failure;
+    private Thread evaluatingThread;
+    private int evaluationDepth;
 
     public boolean getExecuted() {
         return executed;
@@ -46,6 +48,38 @@ public class ProjectStateInternal implements ProjectState {
         this.executing = executing;
     }
 
+    /**
+     * Marks the project as being evaluated by the current thread. When another thread is evaluating the project, waits for that thread to finish.
+     *
+     * @return true when the project has already been evaluated by another thread, false when the current thread should evaluate the project.
+     */
+    public synchronized boolean awaitEvaluationByOtherThread() {
+        Thread currentThread = Thread.currentThread();
+        while (evaluatingThread != null && evaluatingThread != currentThread) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        if (executed) {
+            return true;
+        }
+        evaluatingThread = currentThread;
+        evaluationDepth++;
+        return false;
+    }
+
+    /**
+     * Marks the end of an evaluation started by {@link #awaitEvaluationByOtherThread()}, releasing any threads waiting for it.
+     */
+    public synchronized void evaluationFinished() {
+        if (--evaluationDepth == 0) {
+            evaluatingThread = null;
+            notifyAll();
+        }
+    }
+
     public boolean hasFailure() {
         return failure != null;
     }
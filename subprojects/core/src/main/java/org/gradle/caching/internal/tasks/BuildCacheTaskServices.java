@@ -19,10 +19,13 @@ package org.gradle.caching.internal.tasks;
 import org.gradle.BuildResult;
 import org.gradle.StartParameter;
 import org.gradle.api.Action;
+import org.gradle.api.JavaVersion;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.InstantiatorFactory;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.FileSystemMirror;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.logging.configuration.ShowStacktrace;
 import org.gradle.caching.configuration.internal.BuildCacheConfigurationInternal;
 import org.gradle.caching.internal.controller.BuildCacheController;
@@ -31,6 +34,7 @@ import org.gradle.caching.internal.controller.BuildCacheControllerFactory.BuildC
 import org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteAccessMode;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -51,9 +55,19 @@ import static org.gradle.caching.internal.controller.BuildCacheControllerFactory
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.RemoteAccessMode.ONLINE;
 
 public class BuildCacheTaskServices {
+    private static final Logger LOGGER = Logging.getLogger(BuildCacheTaskServices.class);
 
-    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner) {
-        return new GZipTaskOutputPacker(new TarTaskOutputPacker(fileSystem, fileHasher, stringInterner));
+    TaskOutputCompression createTaskOutputCompression() {
+        TaskOutputCompression compression = TaskOutputCompression.forDisplayName(System.getProperty(TaskOutputCompression.SYSTEM_PROPERTY, TaskOutputCompression.GZIP.getDisplayName()));
+        if (!compression.isAvailable()) {
+            LOGGER.warn("Build cache compression '{}' is not supported on Java {}, using '{}' instead.", compression.getDisplayName(), JavaVersion.current(), TaskOutputCompression.GZIP.getDisplayName());
+            return TaskOutputCompression.GZIP;
+        }
+        return compression;
+    }
+
+    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner, TaskOutputCompression compression) {
+        return new CompressingTaskOutputPacker(new TarTaskOutputPacker(fileSystem, fileHasher, stringInterner), compression);
     }
 
     TaskOutputOriginFactory createTaskOutputOriginFactory(
@@ -84,7 +98,8 @@ public class BuildCacheTaskServices {
         BuildCacheConfigurationInternal buildCacheConfiguration,
         BuildOperationExecutor buildOperationExecutor,
         InstantiatorFactory instantiatorFactory,
-        GradleInternal gradle
+        GradleInternal gradle,
+        ExecutorFactory executorFactory
     ) {
         StartParameter startParameter = gradle.getStartParameter();
         Path buildIdentityPath = gradle.getIdentityPath();
@@ -105,7 +120,8 @@ public class BuildCacheTaskServices {
             buildCacheMode,
             remoteAccessMode,
             logStackTraces,
-            instantiatorFactory.inject(serviceRegistry)
+            instantiatorFactory.inject(serviceRegistry),
+            executorFactory
         );
 
         // Stop the controller early so that any logging emitted during stopping is visible.
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.internal.changedetection.state.FileContentSnapshot;
+import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec;
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Compresses the packed task output, and detects the compression of an entry when unpacking it.
+ *
+ * <p>Entries compressed with {@link TaskOutputCompression#GZIP} are written without a header, so that they have the same layout as the entries
+ * created by earlier Gradle versions. Entries in any other format start with two magic bytes followed by the id of the format.
+ * Since earlier Gradle versions can only read gzip entries, the compression is also part of the cache key of entries in other formats,
+ * see {@link TaskOutputCachingBuildCacheKeyBuilder#appendCompression(TaskOutputCompression)}.</p>
+ */
+public class CompressingTaskOutputPacker implements TaskOutputPacker {
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int HEADER_MAGIC_1 = 'G';
+    private static final int HEADER_MAGIC_2 = 'C';
+
+    private final TaskOutputPacker delegate;
+    private final TaskOutputCompression compression;
+
+    public CompressingTaskOutputPacker(TaskOutputPacker delegate, TaskOutputCompression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    public PackResult pack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, Map<String, Map<String, FileContentSnapshot>> outputSnapshots, OutputStream output, TaskOutputOriginWriter writeOrigin) throws IOException {
+        if (compression != TaskOutputCompression.GZIP) {
+            output.write(HEADER_MAGIC_1);
+            output.write(HEADER_MAGIC_2);
+            output.write(compression.getId());
+        }
+        OutputStream compressedOutput = compression.compress(output);
+        try {
+            return delegate.pack(propertySpecs, outputSnapshots, compressedOutput, writeOrigin);
+        } finally {
+            IOUtils.closeQuietly(compressedOutput);
+        }
+    }
+
+    @Override
+    public UnpackResult unpack(SortedSet<ResolvedTaskOutputFilePropertySpec> propertySpecs, InputStream input, TaskOutputOriginReader readOrigin) throws IOException {
+        PushbackInputStream headerInput = new PushbackInputStream(input, 2);
+        InputStream decompressedInput = readCompression(headerInput).decompress(headerInput);
+        try {
+            return delegate.unpack(propertySpecs, decompressedInput, readOrigin);
+        } finally {
+            IOUtils.closeQuietly(decompressedInput);
+        }
+    }
+
+    private static TaskOutputCompression readCompression(PushbackInputStream input) throws IOException {
+        int first = input.read();
+        int second = input.read();
+        if (first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2) {
+            input.unread(second);
+            input.unread(first);
+            return TaskOutputCompression.GZIP;
+        }
+        if (first == HEADER_MAGIC_1 && second == HEADER_MAGIC_2) {
+            return TaskOutputCompression.forId(input.read());
+        }
+        throw new IOException("Build cache entry has an unknown format.");
+    }
+}
@@ -104,6 +104,15 @@ public class DefaultTaskOutputCachingBuildCacheKeyBuilder implements TaskOutputC
         log("outputPropertyName", propertyName);
     }
 
+    @Override
+    public void appendCompression(TaskOutputCompression compression) {
+        // Entries compressed with gzip keep the keys of earlier Gradle versions, which can only read gzip entries
+        if (compression != TaskOutputCompression.GZIP) {
+            hasher.putString(compression.getDisplayName());
+            log("compression", compression.getDisplayName());
+        }
+    }
+
     private static void log(String name, Object value) {
         LOGGER.info("Appending {} to build cache key: {}", name, value);
     }
@@ -29,7 +29,7 @@ import java.util.SortedSet;
 
 public class TaskCacheKeyCalculator {
 
-    public static TaskOutputCachingBuildCacheKey calculate(TaskInternal task, TaskExecution execution) {
+    public static TaskOutputCachingBuildCacheKey calculate(TaskInternal task, TaskExecution execution, TaskOutputCompression compression) {
         TaskOutputCachingBuildCacheKeyBuilder builder = new DefaultTaskOutputCachingBuildCacheKeyBuilder(task.getIdentityPath());
         builder.appendTaskImplementation(execution.getTaskImplementation());
         builder.appendTaskActionImplementations(execution.getTaskActionImplementations());
@@ -53,6 +53,8 @@ public class TaskCacheKeyCalculator {
             builder.appendOutputPropertyName(cacheableOutputPropertyName);
         }
 
+        builder.appendCompression(compression);
+
         return builder.build();
     }
 }
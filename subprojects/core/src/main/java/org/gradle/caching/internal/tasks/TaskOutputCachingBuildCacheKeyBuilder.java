@@ -30,5 +30,7 @@ public interface TaskOutputCachingBuildCacheKeyBuilder {
 
     void appendOutputPropertyName(String propertyName);
 
+    void appendCompression(TaskOutputCompression compression);
+
     TaskOutputCachingBuildCacheKey build();
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.caching.internal.compression.Lz4BlockInputStream;
+import org.gradle.caching.internal.compression.Lz4BlockOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression formats that can be used for build cache entries.
+ */
+public enum TaskOutputCompression {
+    /**
+     * Deflate with CRC32 checks, readable by all Gradle versions.
+     */
+    GZIP(0, "gzip") {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new GZIPInputStream(input);
+        }
+    },
+
+    /**
+     * LZ4 blocks with CRC32 checks, trading a larger archive for much faster packing and unpacking.
+     */
+    LZ4(1, "lz4") {
+        @Override
+        public boolean isAvailable() {
+            // The LZ4 implementation from aircompressor requires Java 8
+            return JavaVersion.current().isJava8Compatible();
+        }
+
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            checkAvailable();
+            return new Lz4BlockOutputStream(output);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            checkAvailable();
+            return new Lz4BlockInputStream(input);
+        }
+    };
+
+    /**
+     * The system property used to select the compression of new build cache entries.
+     */
+    public static final String SYSTEM_PROPERTY = "org.gradle.caching.compression";
+
+    private final int id;
+    private final String displayName;
+
+    TaskOutputCompression(int id, String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+    }
+
+    /**
+     * The identifier of the format in the header of a build cache entry.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Whether entries in this format can be packed and unpacked by the current JVM.
+     */
+    public boolean isAvailable() {
+        return true;
+    }
+
+    protected void checkAvailable() throws IOException {
+        if (!isAvailable()) {
+            throw new IOException(String.format("Build cache compression '%s' is not supported on Java %s.", displayName, JavaVersion.current()));
+        }
+    }
+
+    public abstract OutputStream compress(OutputStream output) throws IOException;
+
+    public abstract InputStream decompress(InputStream input) throws IOException;
+
+    public static TaskOutputCompression forId(int id) throws IOException {
+        for (TaskOutputCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IOException("Build cache entry uses an unknown compression format with id " + id + ".");
+    }
+
+    public static TaskOutputCompression forDisplayName(String displayName) {
+        for (TaskOutputCompression compression : values()) {
+            if (compression.displayName.equals(displayName)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown build cache compression '%s' set by system property '%s'. Supported values are 'gzip' and 'lz4'.", displayName, SYSTEM_PROPERTY));
+    }
+}
@@ -43,11 +43,23 @@ public class LifecycleProjectEvaluator implements ProjectEvaluator {
     }
 
     public void evaluate(final ProjectInternal project, final ProjectStateInternal state) {
-        if (state.getExecuted() || state.getExecuting()) {
+        if (state.getExecuted()) {
+            return;
+        }
+        if (state.awaitEvaluationByOtherThread()) {
+            // Projects may be configured concurrently, and another thread got there first
             return;
         }
 
-        buildOperationExecutor.run(new ConfigureProject(project, state));
+        try {
+            if (state.getExecuting()) {
+                // Already being configured further up the stack of the current thread
+                return;
+            }
+            buildOperationExecutor.run(new ConfigureProject(project, state));
+        } finally {
+            state.evaluationFinished();
+        }
     }
 
     private void doConfigure(ProjectInternal project, ProjectStateInternal state) {
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.gradle.StartParameter;
+import org.gradle.api.Action;
+import org.gradle.api.initialization.Settings;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.MultipleBuildOperationFailures;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.util.SingleMessageLogger;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates the build scripts of independent projects concurrently, using the worker leases of the build operation executor.
+ *
+ * <p>Projects are evaluated in waves, in the order they are given. As the effect of a build script cannot be known before running it,
+ * a project is evaluated serially unless its build script can be shown to be independent: it must be a Groovy script that does not
+ * reach into the model of another project or of the build, for example through {@code allprojects}, {@code evaluationDependsOn},
+ * {@code gradle} or {@code project(':other').tasks}, and the only plugins it applies are the core plugins in {@link #INDEPENDENT_PLUGINS},
+ * referenced by id. Other plugins may reach into other projects, so a project that uses a {@code buildscript} block or applies any other
+ * plugin is evaluated serially. Consecutive independent projects form a wave. Any other project ends the current wave and is evaluated
+ * on its own, as is a project whose ancestor is still part of the current wave.</p>
+ *
+ * <p>The scripts are only matched against patterns, which is a heuristic: Groovy can reach any object dynamically. So a script that uses
+ * dynamic code that the patterns cannot see through, such as {@code Eval}, property or method names computed at runtime, reflection or
+ * unicode escapes, is treated as reaching into other projects.</p>
+ *
+ * <p>Project evaluation listeners and other build level state are shared by all projects and are not thread-safe. So projects are only
+ * evaluated concurrently when the root build script is independent and the settings script and init scripts do not register hooks on
+ * the build, apply plugins or use dynamic code. Otherwise, all projects are evaluated serially.</p>
+ *
+ * <p>This is experimental, and disabled unless parallel execution is enabled and the {@link #ENABLED_PROPERTY} system property is {@code true}.</p>
+ */
+class ParallelProjectConfigurer {
+    static final String ENABLED_PROPERTY = "org.gradle.configure.parallel.experimental";
+    private static final String CORE_PLUGIN_NAMESPACE = "org.gradle.";
+    private static final Logger LOGGER = Logging.getLogger(ParallelProjectConfigurer.class);
+
+    /**
+     * Core plugins that only configure the project they are applied to.
+     */
+    static final Set<String> INDEPENDENT_PLUGINS = ImmutableSet.of(
+        "base", "java", "java-library", "groovy", "scala", "application", "war", "distribution", "java-library-distribution",
+        "maven-publish", "ivy-publish", "signing", "checkstyle", "pmd", "codenarc", "antlr"
+    );
+
+    /**
+     * Matches access to other projects and to shared build state. Plain {@code project(':other')} dependency notations
+     * are allowed, as long as the result is not dereferenced or configured.
+     */
+    private static final Pattern CROSS_PROJECT_ACCESS = Pattern.compile(
+        "\\b(?:rootProject|allprojects|subprojects|evaluationDependsOn\\w*|parent|findProject|childProjects|gradle|apply\\s*\\(?\\s*from)\\b"
+            + "|\\bproject\\s*\\(\\s*(?:path\\s*[:=]\\s*)?['\"][^'\"]*['\"]\\s*\\)\\s*[.{]"
+            + "|\\bproject\\s*\\(\\s*['\"][^'\"]*['\"]\\s*,"
+    );
+
+    /**
+     * Matches ways to bring in or apply plugins that are not referenced by a literal id.
+     */
+    private static final Pattern UNVERIFIABLE_PLUGINS = Pattern.compile(
+        "\\b(?:buildscript|pluginManager|import)\\b"
+            + "|\\bplugins\\s*\\.\\s*apply\\b"
+            + "|\\bapply\\b(?!\\s*\\(?\\s*plugin\\s*:\\s*['\"])"
+            + "|\\bto\\s*:"
+    );
+
+    /**
+     * Matches code that reaches objects in ways the other patterns cannot see through: evaluating code, names computed at runtime,
+     * subscripts, method pointers and field access, meta-programming, reflection and unicode escapes, which Groovy resolves before parsing.
+     */
+    private static final Pattern DYNAMIC_CODE = Pattern.compile(
+        "\\b(?:Eval|evaluate|GroovyShell|metaClass|invokeMethod|getProperty|setProperty|property|findProperty|hasProperty|properties"
+            + "|methodMissing|propertyMissing|forName|newInstance|classLoader|ClassLoader|getDeclaredMethod|getMethod|getDeclaredField|getField)\\b"
+            + "|\\.\\s*[\"'$&@]"
+            + "|[\"']\\s*\\("
+            + "|\\w\\s*\\[\\s*[\"'$]"
+            + "|\\\\u[0-9a-fA-F]{4}"
+    );
+
+    /**
+     * Matches plugins referenced by id, through {@code apply plugin: 'id'} or {@code id 'id'} in the {@code plugins} block.
+     */
+    private static final Pattern PLUGIN_ID = Pattern.compile("\\b(?:plugin\\s*:|id\\s*\\(?)\\s*['\"]([^'\"]*)['\"]");
+
+    /**
+     * Matches hooks that settings and init scripts can register on all projects or on the build.
+     */
+    private static final Pattern BUILD_HOOKS = Pattern.compile(
+        "\\b(?:gradle|allprojects|subprojects|beforeProject|afterProject|projectsLoaded|projectsEvaluated|addListener|addProjectEvaluationListener|apply|plugins)\\b"
+    );
+
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final TaskPathProjectEvaluator evaluator;
+
+    ParallelProjectConfigurer(BuildOperationExecutor buildOperationExecutor, TaskPathProjectEvaluator evaluator) {
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.evaluator = evaluator;
+    }
+
+    static boolean isEnabled(ProjectInternal project) {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY) || !project.getGradle().getStartParameter().isParallelProjectExecutionEnabled()) {
+            return false;
+        }
+        if (!hasIndependentBuildLogic(project.getRootProject())) {
+            LOGGER.info("Configuring projects serially, as the root project, settings or init scripts may configure other projects.");
+            return false;
+        }
+        SingleMessageLogger.incubatingFeatureUsed("Concurrent project configuration");
+        return true;
+    }
+
+    private static boolean hasIndependentBuildLogic(ProjectInternal rootProject) {
+        if (!isIndependent(rootProject)) {
+            return false;
+        }
+        StartParameter startParameter = rootProject.getGradle().getStartParameter();
+        File settingsFile = startParameter.getSettingsFile() != null ? startParameter.getSettingsFile() : new File(rootProject.getProjectDir(), Settings.DEFAULT_SETTINGS_FILE);
+        if (registersBuildHooks(settingsFile)) {
+            return false;
+        }
+        for (File initScript : startParameter.getAllInitScripts()) {
+            if (registersBuildHooks(initScript)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void configure(Iterable<ProjectInternal> projects) {
+        List<ProjectInternal> wave = new ArrayList<ProjectInternal>();
+        for (ProjectInternal project : projects) {
+            if (project.getState().getExecuted()) {
+                continue;
+            }
+            if (!isIndependent(project)) {
+                configureWave(wave);
+                evaluator.configure(project);
+            } else {
+                if (hasAncestorIn(project, wave)) {
+                    configureWave(wave);
+                }
+                wave.add(project);
+            }
+        }
+        configureWave(wave);
+    }
+
+    private void configureWave(final List<ProjectInternal> wave) {
+        if (wave.isEmpty()) {
+            return;
+        }
+        final List<ProjectInternal> projects = new ArrayList<ProjectInternal>(wave);
+        wave.clear();
+        if (projects.size() == 1) {
+            evaluator.configure(projects.get(0));
+            return;
+        }
+        LOGGER.info("Configuring {} projects concurrently", projects.size());
+        buildOperationExecutor.run(new ConfigureProjects(projects));
+    }
+
+    private static boolean hasAncestorIn(ProjectInternal project, List<ProjectInternal> wave) {
+        for (ProjectInternal ancestor = project.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (wave.contains(ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isIndependent(ProjectInternal project) {
+        File buildFile = project.getBuildFile();
+        if (buildFile == null || !buildFile.exists()) {
+            // Nothing to evaluate apart from what the build level scripts do
+            return true;
+        }
+        if (!buildFile.getName().endsWith(".gradle")) {
+            return false;
+        }
+        String buildScript = read(buildFile);
+        return buildScript != null && isIndependent(buildScript);
+    }
+
+    static boolean isIndependent(String buildScript) {
+        if (DYNAMIC_CODE.matcher(buildScript).find() || UNVERIFIABLE_PLUGINS.matcher(buildScript).find()) {
+            return false;
+        }
+        Matcher pluginIds = PLUGIN_ID.matcher(buildScript);
+        while (pluginIds.find()) {
+            String id = pluginIds.group(1);
+            if (!INDEPENDENT_PLUGINS.contains(id.startsWith(CORE_PLUGIN_NAMESPACE) ? id.substring(CORE_PLUGIN_NAMESPACE.length()) : id)) {
+                return false;
+            }
+        }
+        // Plugin ids such as 'org.gradle.java' would otherwise look like access to the build
+        return !CROSS_PROJECT_ACCESS.matcher(pluginIds.replaceAll("id ''")).find();
+    }
+
+    private static boolean registersBuildHooks(File script) {
+        if (!script.exists()) {
+            return false;
+        }
+        String text = read(script);
+        return text == null || registersBuildHooks(text);
+    }
+
+    static boolean registersBuildHooks(String script) {
+        return BUILD_HOOKS.matcher(script).find() || DYNAMIC_CODE.matcher(script).find();
+    }
+
+    @Nullable
+    private static String read(File script) {
+        try {
+            return Files.toString(script, Charsets.UTF_8);
+        } catch (IOException e) {
+            // Let the serial evaluation report the problem
+            return null;
+        }
+    }
+
+    private class ConfigureProjects implements RunnableBuildOperation {
+        private final List<ProjectInternal> projects;
+
+        ConfigureProjects(List<ProjectInternal> projects) {
+            this.projects = projects;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            try {
+                buildOperationExecutor.runAll(new Action<BuildOperationQueue<EvaluateProject>>() {
+                    @Override
+                    public void execute(BuildOperationQueue<EvaluateProject> queue) {
+                        for (ProjectInternal project : projects) {
+                            queue.add(new EvaluateProject(project));
+                        }
+                    }
+                });
+            } catch (MultipleBuildOperationFailures e) {
+                if (e.getCauses().size() == 1) {
+                    // Report the failure the same way as a serially configured project
+                    throw UncheckedException.throwAsUncheckedException(e.getCauses().get(0));
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Configure " + projects.size() + " projects concurrently");
+        }
+    }
+
+    private class EvaluateProject implements RunnableBuildOperation {
+        private final ProjectInternal project;
+
+        EvaluateProject(ProjectInternal project) {
+            this.project = project;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            evaluator.configure(project);
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Evaluate " + project.getIdentityPath() + " concurrently");
+        }
+    }
+}
@@ -20,12 +20,23 @@ import org.gradle.api.BuildCancelledException;
 import org.gradle.api.Project;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.internal.operations.BuildOperationExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class TaskPathProjectEvaluator implements ProjectConfigurer {
     private final BuildCancellationToken cancellationToken;
+    private final ParallelProjectConfigurer parallelConfigurer;
 
     public TaskPathProjectEvaluator(BuildCancellationToken cancellationToken) {
         this.cancellationToken = cancellationToken;
+        this.parallelConfigurer = null;
+    }
+
+    public TaskPathProjectEvaluator(BuildCancellationToken cancellationToken, BuildOperationExecutor buildOperationExecutor) {
+        this.cancellationToken = cancellationToken;
+        this.parallelConfigurer = new ParallelProjectConfigurer(buildOperationExecutor, this);
     }
 
     public void configure(ProjectInternal project) {
@@ -58,6 +69,14 @@ public class TaskPathProjectEvaluator implements ProjectConfigurer {
 
     public void configureHierarchy(ProjectInternal project) {
         configure(project);
+        if (parallelConfigurer != null && ParallelProjectConfigurer.isEnabled(project)) {
+            List<ProjectInternal> subprojects = new ArrayList<ProjectInternal>();
+            for (Project sub : project.getSubprojects()) {
+                subprojects.add((ProjectInternal) sub);
+            }
+            parallelConfigurer.configure(subprojects);
+            return;
+        }
         for (Project sub : project.getSubprojects()) {
             configure((ProjectInternal) sub);
         }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution.taskgraph;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Orders the tasks of an execution plan so that tasks which start the longest remaining chain of work are offered to workers first.
+ *
+ * <p>The remaining chain of a task is its own estimated duration plus the longest remaining chain of the tasks that depend on it or finalize it.
+ * Durations are taken from previous executions. Tasks without a recorded duration are assumed to take the average of the known durations.
+ * When no durations are known at all, the original order is kept.</p>
+ *
+ * <p>The result is always consistent with the dependency, must run after and should run after relationships between the tasks, and ties are
+ * broken using the original order. Tasks accepted by the given barrier predicate (e.g. tasks that destroy files) are never moved: tasks are only
+ * reordered within the ranges between such tasks.</p>
+ */
+public class CriticalPathTaskPrioritizer {
+    private final TaskDurationRepository durations;
+
+    public CriticalPathTaskPrioritizer(TaskDurationRepository durations) {
+        this.durations = durations;
+    }
+
+    public List<TaskInfo> prioritize(Collection<TaskInfo> plan, Predicate<? super TaskInfo> barrier) {
+        List<TaskInfo> original = new ArrayList<TaskInfo>(plan);
+        Map<TaskInfo, Long> estimates = estimateDurations(original);
+        if (estimates == null) {
+            return original;
+        }
+        Map<TaskInfo, Long> remaining = remainingCriticalPaths(original, estimates);
+
+        List<TaskInfo> result = new ArrayList<TaskInfo>(original.size());
+        List<TaskInfo> segment = new ArrayList<TaskInfo>();
+        for (TaskInfo taskInfo : original) {
+            if (barrier.apply(taskInfo)) {
+                result.addAll(orderSegment(segment, remaining));
+                segment.clear();
+                result.add(taskInfo);
+            } else {
+                segment.add(taskInfo);
+            }
+        }
+        result.addAll(orderSegment(segment, remaining));
+        return result;
+    }
+
+    private Map<TaskInfo, Long> estimateDurations(List<TaskInfo> plan) {
+        Map<TaskInfo, Long> estimates = Maps.newHashMapWithExpectedSize(plan.size());
+        long total = 0;
+        int known = 0;
+        for (TaskInfo taskInfo : plan) {
+            Long duration = durations.getPreviousDuration(taskInfo.getTask());
+            if (duration != null) {
+                estimates.put(taskInfo, duration);
+                total += duration;
+                known++;
+            }
+        }
+        if (known == 0) {
+            return null;
+        }
+        long average = total / known;
+        for (TaskInfo taskInfo : plan) {
+            if (!estimates.containsKey(taskInfo)) {
+                estimates.put(taskInfo, average);
+            }
+        }
+        return estimates;
+    }
+
+    /**
+     * Tasks that depend on or finalize a task always come later in the plan, so walking the plan backwards visits them first.
+     */
+    private static Map<TaskInfo, Long> remainingCriticalPaths(List<TaskInfo> plan, Map<TaskInfo, Long> estimates) {
+        Map<TaskInfo, Long> remaining = Maps.newHashMapWithExpectedSize(plan.size());
+        for (int i = plan.size() - 1; i >= 0; i--) {
+            TaskInfo taskInfo = plan.get(i);
+            long longestFollowingChain = 0;
+            for (TaskInfo follower : Iterables.concat(taskInfo.getDependencyPredecessors(), taskInfo.getFinalizers())) {
+                Long followerRemaining = remaining.get(follower);
+                if (followerRemaining != null && followerRemaining > longestFollowingChain) {
+                    longestFollowingChain = followerRemaining;
+                }
+            }
+            remaining.put(taskInfo, estimates.get(taskInfo) + longestFollowingChain);
+        }
+        return remaining;
+    }
+
+    private static List<TaskInfo> orderSegment(List<TaskInfo> segment, final Map<TaskInfo, Long> remaining) {
+        if (segment.size() < 2) {
+            return segment;
+        }
+
+        final Map<TaskInfo, Integer> originalIndex = Maps.newHashMapWithExpectedSize(segment.size());
+        for (TaskInfo taskInfo : segment) {
+            originalIndex.put(taskInfo, originalIndex.size());
+        }
+
+        // Count the unscheduled predecessors of each task within this segment, and remember the reverse edges
+        Map<TaskInfo, Integer> waitingFor = Maps.newHashMapWithExpectedSize(segment.size());
+        Map<TaskInfo, List<TaskInfo>> waiters = Maps.newHashMapWithExpectedSize(segment.size());
+        for (TaskInfo taskInfo : segment) {
+            int count = 0;
+            for (TaskInfo predecessor : Iterables.concat(taskInfo.getDependencySuccessors(), taskInfo.getMustSuccessors(), taskInfo.getShouldSuccessors())) {
+                if (originalIndex.containsKey(predecessor)) {
+                    count++;
+                    List<TaskInfo> predecessorWaiters = waiters.get(predecessor);
+                    if (predecessorWaiters == null) {
+                        predecessorWaiters = new ArrayList<TaskInfo>();
+                        waiters.put(predecessor, predecessorWaiters);
+                    }
+                    predecessorWaiters.add(taskInfo);
+                }
+            }
+            waitingFor.put(taskInfo, count);
+        }
+
+        PriorityQueue<TaskInfo> available = new PriorityQueue<TaskInfo>(segment.size(), new Comparator<TaskInfo>() {
+            @Override
+            public int compare(TaskInfo left, TaskInfo right) {
+                int result = remaining.get(right).compareTo(remaining.get(left));
+                if (result != 0) {
+                    return result;
+                }
+                return originalIndex.get(left).compareTo(originalIndex.get(right));
+            }
+        });
+        for (TaskInfo taskInfo : segment) {
+            if (waitingFor.get(taskInfo) == 0) {
+                available.add(taskInfo);
+            }
+        }
+
+        List<TaskInfo> ordered = new ArrayList<TaskInfo>(segment.size());
+        while (!available.isEmpty()) {
+            TaskInfo next = available.poll();
+            ordered.add(next);
+            List<TaskInfo> nextWaiters = waiters.get(next);
+            if (nextWaiters != null) {
+                for (TaskInfo waiter : nextWaiters) {
+                    int count = waitingFor.get(waiter) - 1;
+                    waitingFor.put(waiter, count);
+                    if (count == 0) {
+                        available.add(waiter);
+                    }
+                }
+            }
+        }
+        if (ordered.size() != segment.size()) {
+            // Should not happen, as the original order satisfies all of the relationships. Be conservative and keep it.
+            return segment;
+        }
+        return ordered;
+    }
+}
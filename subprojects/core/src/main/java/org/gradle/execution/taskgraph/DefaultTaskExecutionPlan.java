@@ -99,6 +99,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     private TaskFailureHandler failureHandler = new RethrowingFailureHandler();
+    private TaskDurationRepository taskDurations = TaskDurationRepository.NO_HISTORY;
 
     private final BuildCancellationToken cancellationToken;
     private final Set<TaskInfo> runningTasks = Sets.newIdentityHashSet();
@@ -354,8 +355,16 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
         }
         executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
-
+        if (taskDurations == TaskDurationRepository.NO_HISTORY) {
+            executionQueue.addAll(executionPlan.values());
+        } else {
+            executionQueue.addAll(new CriticalPathTaskPrioritizer(taskDurations).prioritize(executionPlan.values(), new Predicate<TaskInfo>() {
+                @Override
+                public boolean apply(TaskInfo taskInfo) {
+                    return !getDestroyablePaths(taskInfo).isEmpty();
+                }
+            }));
+        }
     }
 
     private TaskMutationInfo getOrCreateMutationsOf(TaskInfo taskInfo) {
@@ -538,6 +547,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         this.failureHandler = handler;
     }
 
+    /**
+     * Ready tasks are offered to workers in order of their estimated remaining critical path, based on the given durations of previous executions.
+     */
+    public void useTaskDurations(TaskDurationRepository taskDurations) {
+        this.taskDurations = taskDurations;
+    }
+
     @Override
     public boolean executeWithTask(final WorkerLease workerLease, final Action<TaskInfo> taskExecution) {
         final AtomicReference<TaskInfo> selected = new AtomicReference<TaskInfo>();
@@ -15,40 +15,128 @@
  */
 package org.gradle.groovy.scripts.internal;
 
-import com.google.common.collect.Maps;
 import groovy.lang.Script;
 import org.codehaus.groovy.ast.ClassNode;
 import org.gradle.api.Action;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderId;
+import org.gradle.cache.internal.ProducerGuard;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.internal.Cast;
+import org.gradle.internal.Factory;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This in-memory cache is responsible for caching compiled build scripts during a build session.
  * If the compiled script is not found in this cache, it will try to find it in the global cache,
  * which will use the delegate script class compiler in case of a miss.
+ *
+ * <p>Each miss runs as a {@link LoadScriptClassesBuildOperationType} build operation, whose result tells whether the classes of a previous build were reused.</p>
+ *
+ * <p>Projects may be configured concurrently, so a script is loaded by one thread at a time and other threads asking for the same script wait for it.</p>
  */
 public class BuildScopeInMemoryCachingScriptClassCompiler implements ScriptClassCompiler {
     private final CrossBuildInMemoryCachingScriptClassCache cache;
     private final ScriptClassCompiler scriptClassCompiler;
-    private final Map<ScriptCacheKey, CompiledScript<?, ?>> cachedCompiledScripts = Maps.newHashMap();
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final ConcurrentMap<ScriptCacheKey, CompiledScript<?, ?>> cachedCompiledScripts = new ConcurrentHashMap<ScriptCacheKey, CompiledScript<?, ?>>();
+    private final ProducerGuard<ScriptCacheKey> guard = ProducerGuard.adaptive();
 
-    public BuildScopeInMemoryCachingScriptClassCompiler(CrossBuildInMemoryCachingScriptClassCache cache, ScriptClassCompiler scriptClassCompiler) {
+    public BuildScopeInMemoryCachingScriptClassCompiler(CrossBuildInMemoryCachingScriptClassCache cache, ScriptClassCompiler scriptClassCompiler, BuildOperationExecutor buildOperationExecutor) {
         this.cache = cache;
         this.scriptClassCompiler = scriptClassCompiler;
+        this.buildOperationExecutor = buildOperationExecutor;
     }
 
     @Override
-    public <T extends Script, M> CompiledScript<T, M> compile(ScriptSource source, ClassLoader classLoader, ClassLoaderId classLoaderId, CompileOperation<M> operation, Class<T> scriptBaseClass, Action<? super ClassNode> verifier) {
-        ScriptCacheKey key = new ScriptCacheKey(source.getClassName(), classLoader, operation.getId());
+    public <T extends Script, M> CompiledScript<T, M> compile(final ScriptSource source, final ClassLoader classLoader, final ClassLoaderId classLoaderId, final CompileOperation<M> operation, final Class<T> scriptBaseClass, final Action<? super ClassNode> verifier) {
+        final ScriptCacheKey key = new ScriptCacheKey(source.getClassName(), classLoader, operation.getId());
         CompiledScript<T, M> compiledScript = Cast.uncheckedCast(cachedCompiledScripts.get(key));
-        if (compiledScript == null) {
-            compiledScript = cache.getOrCompile(source, classLoader, classLoaderId, operation, scriptBaseClass, verifier, scriptClassCompiler);
-            cachedCompiledScripts.put(key, compiledScript);
+        if (compiledScript != null) {
+            return compiledScript;
+        }
+        return guard.guardByKey(key, new Factory<CompiledScript<T, M>>() {
+            @Override
+            public CompiledScript<T, M> create() {
+                CompiledScript<T, M> compiledScript = Cast.uncheckedCast(cachedCompiledScripts.get(key));
+                if (compiledScript == null) {
+                    compiledScript = load(source, classLoader, classLoaderId, operation, scriptBaseClass, verifier);
+                    cachedCompiledScripts.put(key, compiledScript);
+                }
+                return compiledScript;
+            }
+        });
+    }
+
+    private <T extends Script, M> CompiledScript<T, M> load(final ScriptSource source, final ClassLoader classLoader, final ClassLoaderId classLoaderId, final CompileOperation<M> operation, final Class<T> scriptBaseClass, final Action<? super ClassNode> verifier) {
+        return buildOperationExecutor.call(new CallableBuildOperation<CompiledScript<T, M>>() {
+            @Override
+            public CompiledScript<T, M> call(BuildOperationContext context) {
+                CountingScriptClassCompiler compiler = new CountingScriptClassCompiler(scriptClassCompiler);
+                CompiledScript<T, M> compiledScript = cache.getOrCompile(source, classLoader, classLoaderId, operation, scriptBaseClass, verifier, compiler);
+                context.setResult(new OperationResult(compiler.compiled == 0));
+                return compiledScript;
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Load classes for " + source.getDisplayName())
+                    .details(new OperationDetails(source.getClassName(), operation.getId()));
+            }
+        });
+    }
+
+    private static class CountingScriptClassCompiler implements ScriptClassCompiler {
+        private final ScriptClassCompiler delegate;
+        private int compiled;
+
+        CountingScriptClassCompiler(ScriptClassCompiler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T extends Script, M> CompiledScript<T, M> compile(ScriptSource source, ClassLoader classLoader, ClassLoaderId classLoaderId, CompileOperation<M> operation, Class<T> scriptBaseClass, Action<? super ClassNode> verifier) {
+            compiled++;
+            return delegate.compile(source, classLoader, classLoaderId, operation, scriptBaseClass, verifier);
+        }
+    }
+
+    private static class OperationDetails implements LoadScriptClassesBuildOperationType.Details {
+        private final String className;
+        private final String dslId;
+
+        OperationDetails(String className, String dslId) {
+            this.className = className;
+            this.dslId = dslId;
+        }
+
+        @Override
+        public String getClassName() {
+            return className;
+        }
+
+        @Override
+        public String getDslId() {
+            return dslId;
+        }
+    }
+
+    private static class OperationResult implements LoadScriptClassesBuildOperationType.Result {
+        private final boolean reusedFromPreviousBuild;
+
+        OperationResult(boolean reusedFromPreviousBuild) {
+            this.reusedFromPreviousBuild = reusedFromPreviousBuild;
+        }
+
+        @Override
+        public boolean isReusedFromPreviousBuild() {
+            return reusedFromPreviousBuild;
         }
-        return compiledScript;
     }
 
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.groovy.scripts.internal;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Loading the classes of a script for the first time in a build, either from the in-memory cache of a previous build, the compiled script cache or by compiling the script.
+ *
+ * @since 4.3
+ */
+public final class LoadScriptClassesBuildOperationType implements BuildOperationType<LoadScriptClassesBuildOperationType.Details, LoadScriptClassesBuildOperationType.Result> {
+
+    public interface Details {
+        /**
+         * The class name of the script.
+         */
+        String getClassName();
+
+        /**
+         * The identifier of the compile operation, for example the pass of a build script that is compiled.
+         */
+        String getDslId();
+    }
+
+    public interface Result {
+        /**
+         * True when the classes loaded by a previous build in this process were reused, so that no classes were defined or loaded from disk.
+         */
+        boolean isReusedFromPreviousBuild();
+    }
+
+    private LoadScriptClassesBuildOperationType() {
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.initialization;
+
+import org.gradle.BuildAdapter;
+import org.gradle.StartParameter;
+import org.gradle.api.Project;
+import org.gradle.api.initialization.Settings;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.SettingsInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.groovy.scripts.Script;
+import org.gradle.groovy.scripts.ScriptExecutionListener;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A diagnostic that logs, after the projects of a build have been configured, which of the tracked configuration inputs changed since
+ * the previous build of the same root directory in this process.
+ *
+ * <p>The tracked inputs are the requested tasks and start parameters, the init, settings, build and applied scripts, the gradle.properties
+ * files, the build script classpath of each project including buildSrc, and the environment variables and system properties.
+ * Plugins and scripts can read other inputs, such as arbitrary files or network resources, so an unchanged set of tracked inputs
+ * does not mean that the build configures the same model. Nothing is reused.</p>
+ *
+ * <p>Disabled unless the {@link #ENABLED_PROPERTY} system property is {@code true}.</p>
+ */
+public class ConfigurationInputChangesDiagnostic extends BuildAdapter implements ScriptExecutionListener {
+    public static final String ENABLED_PROPERTY = "org.gradle.diagnostics.configurationInputChanges";
+    private static final Logger LOGGER = Logging.getLogger(ConfigurationInputChangesDiagnostic.class);
+
+    private final ConfigurationInputsHistory history;
+    private final FileHasher fileHasher;
+    private final Map<String, ScriptSource> executedScripts = new LinkedHashMap<String, ScriptSource>();
+    private File settingsFile;
+
+    public ConfigurationInputChangesDiagnostic(ConfigurationInputsHistory history, FileHasher fileHasher) {
+        this.history = history;
+        this.fileHasher = fileHasher;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Override
+    public void scriptClassLoaded(ScriptSource source, Class<? extends Script> scriptClass) {
+        synchronized (executedScripts) {
+            executedScripts.put(source.getDisplayName(), source);
+        }
+    }
+
+    @Override
+    public void settingsEvaluated(Settings settings) {
+        settingsFile = ((SettingsInternal) settings).getSettingsScript().getResource().getFile();
+    }
+
+    @Override
+    public void projectsEvaluated(Gradle gradle) {
+        File rootDir = gradle.getRootProject().getProjectDir();
+        ConfigurationInputs current = snapshot(gradle);
+        ConfigurationInputs previous = history.replace(rootDir, current);
+        if (previous == null) {
+            LOGGER.lifecycle("Tracked configuration inputs: no previous build of {} in this process.", rootDir);
+            return;
+        }
+        List<String> changes = current.changesSince(previous);
+        if (changes.isEmpty()) {
+            LOGGER.lifecycle("Tracked configuration inputs: none changed since the previous build.");
+            return;
+        }
+        StringBuilder message = new StringBuilder("Tracked configuration inputs: changed since the previous build:");
+        for (String change : changes) {
+            message.append(String.format("%n  - ")).append(change);
+        }
+        LOGGER.lifecycle(message.toString());
+    }
+
+    private ConfigurationInputs snapshot(Gradle gradle) {
+        StartParameter startParameter = gradle.getStartParameter();
+        Project rootProject = gradle.getRootProject();
+        ClassLoaderHierarchyHasher classLoaderHasher = ((GradleInternal) gradle).getServices().get(ClassLoaderHierarchyHasher.class);
+        ConfigurationInputs.Builder inputs = new ConfigurationInputs.Builder();
+        inputs.add("Start parameters", hashStartParameter(startParameter));
+        Set<File> scriptFiles = new HashSet<File>();
+        for (File initScript : startParameter.getAllInitScripts()) {
+            inputs.add("Init script " + initScript, hashFile(initScript));
+            scriptFiles.add(initScript);
+        }
+        if (settingsFile != null) {
+            inputs.add("Settings file " + settingsFile, hashFile(settingsFile));
+            scriptFiles.add(settingsFile);
+        }
+        inputs.add("Properties file " + new File(startParameter.getGradleUserHomeDir(), Project.GRADLE_PROPERTIES), hashFile(new File(startParameter.getGradleUserHomeDir(), Project.GRADLE_PROPERTIES)));
+        for (Project project : rootProject.getAllprojects()) {
+            File propertiesFile = new File(project.getProjectDir(), Project.GRADLE_PROPERTIES);
+            inputs.add("Properties file " + propertiesFile, hashFile(propertiesFile));
+            inputs.add("Build file of " + project, hashFile(project.getBuildFile()));
+            scriptFiles.add(project.getBuildFile());
+            // Includes buildSrc and the classpath of every plugin visible to the build script
+            HashCode classpathHash = classLoaderHasher.getClassLoaderHash(((ProjectInternal) project).getClassLoaderScope().getLocalClassLoader());
+            if (classpathHash != null) {
+                inputs.add("Build script classpath of " + project, classpathHash);
+            } else {
+                inputs.addUnknown("Build script classpath of " + project);
+            }
+        }
+        synchronized (executedScripts) {
+            for (ScriptSource script : executedScripts.values()) {
+                File file = script.getResource().getFile();
+                if (file == null) {
+                    inputs.add("Script " + script.getDisplayName(), Hashing.md5().hashString(script.getResource().getText()));
+                } else if (!scriptFiles.contains(file)) {
+                    inputs.add("Script " + script.getDisplayName(), hashFile(file));
+                }
+            }
+        }
+        for (Map.Entry<String, String> entry : new TreeMap<String, String>(System.getenv()).entrySet()) {
+            inputs.add("Environment variable " + entry.getKey(), Hashing.md5().hashString(entry.getValue()));
+        }
+        for (String name : new TreeSet<String>(System.getProperties().stringPropertyNames())) {
+            String value = System.getProperty(name);
+            inputs.add("System property " + name, value == null ? null : Hashing.md5().hashString(value));
+        }
+        return inputs.build();
+    }
+
+    @Nullable
+    private HashCode hashFile(@Nullable File file) {
+        return file != null && file.isFile() ? fileHasher.hash(file) : null;
+    }
+
+    private static HashCode hashStartParameter(StartParameter startParameter) {
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putString(startParameter.getTaskNames().toString());
+        hasher.putString(startParameter.getExcludedTaskNames().toString());
+        hasher.putString(new TreeMap<String, String>(startParameter.getProjectProperties()).toString());
+        hasher.putString(new TreeMap<String, String>(startParameter.getSystemPropertiesArgs()).toString());
+        hasher.putBoolean(startParameter.isOffline());
+        hasher.putBoolean(startParameter.isRefreshDependencies());
+        hasher.putBoolean(startParameter.isRerunTasks());
+        hasher.putBoolean(startParameter.isConfigureOnDemand());
+        hasher.putBoolean(startParameter.isBuildProjectDependencies());
+        hasher.putBoolean(startParameter.isDryRun());
+        return hasher.hash();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.initialization;
+
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The hashes of the configuration inputs of a build that are tracked by {@link ConfigurationInputChangesDiagnostic}.
+ */
+public class ConfigurationInputs {
+    private final Map<String, HashCode> inputs;
+    private final Set<String> unknownInputs;
+
+    private ConfigurationInputs(Map<String, HashCode> inputs, Set<String> unknownInputs) {
+        this.inputs = inputs;
+        this.unknownInputs = unknownInputs;
+    }
+
+    /**
+     * Describes the inputs that differ from the given previous inputs, or returns an empty list when all inputs are the same.
+     */
+    public List<String> changesSince(ConfigurationInputs previous) {
+        Set<String> names = new LinkedHashSet<String>(previous.inputs.keySet());
+        names.addAll(inputs.keySet());
+        List<String> changes = new ArrayList<String>();
+        for (String name : names) {
+            if (unknownInputs.contains(name) || previous.unknownInputs.contains(name)) {
+                changes.add(name + " cannot be compared");
+            } else if (!previous.inputs.containsKey(name)) {
+                changes.add(name + " has been added");
+            } else if (!inputs.containsKey(name)) {
+                changes.add(name + " has been removed");
+            } else if (!equal(previous.inputs.get(name), inputs.get(name))) {
+                changes.add(name + " has changed");
+            }
+        }
+        return changes;
+    }
+
+    private static boolean equal(@Nullable HashCode a, @Nullable HashCode b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public static class Builder {
+        private final Map<String, HashCode> inputs = new LinkedHashMap<String, HashCode>();
+        private final Set<String> unknownInputs = new LinkedHashSet<String>();
+
+        /**
+         * Adds an input. A null hash marks an input that does not exist, such as a missing properties file.
+         */
+        public Builder add(String name, @Nullable HashCode hash) {
+            inputs.put(name, hash);
+            return this;
+        }
+
+        /**
+         * Adds an input whose hash cannot be calculated, such as a classpath loaded by an unknown classloader. Such an input is always reported.
+         */
+        public Builder addUnknown(String name) {
+            inputs.put(name, null);
+            unknownInputs.add(name);
+            return this;
+        }
+
+        public ConfigurationInputs build() {
+            return new ConfigurationInputs(Collections.unmodifiableMap(new LinkedHashMap<String, HashCode>(inputs)), Collections.unmodifiableSet(new LinkedHashSet<String>(unknownInputs)));
+        }
+    }
+}
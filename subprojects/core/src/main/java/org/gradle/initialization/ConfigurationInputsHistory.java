@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.initialization;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the configuration inputs of the most recent build of each root directory, for the lifetime of the process.
+ */
+public class ConfigurationInputsHistory {
+    private final ConcurrentMap<File, ConfigurationInputs> previousInputs = new ConcurrentHashMap<File, ConfigurationInputs>();
+
+    /**
+     * Records the inputs of a build, returning the inputs of the previous build of the same root directory, if any.
+     */
+    public ConfigurationInputs replace(File rootDir, ConfigurationInputs inputs) {
+        return previousInputs.put(rootDir, inputs);
+    }
+}
@@ -39,6 +39,7 @@ import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.featurelifecycle.LoggingDeprecatedFeatureHandler;
 import org.gradle.internal.featurelifecycle.ScriptUsageLocationReporter;
+import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.invocation.BuildController;
 import org.gradle.internal.invocation.GradleBuildController;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
@@ -122,6 +123,10 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
             }
         });
 
+        if (ConfigurationInputChangesDiagnostic.isEnabled()) {
+            launcher.getGradle().addListener(new ConfigurationInputChangesDiagnostic(parentRegistry.get(ConfigurationInputsHistory.class), parentRegistry.get(FileHasher.class)));
+        }
+
         // Start collecting operations for this build invocation
         parentRegistry.get(BuildOperationNotificationBridge.class).start(launcher.getGradle());
 
@@ -56,6 +56,7 @@ import org.gradle.cli.CommandLineConverter;
 import org.gradle.configuration.DefaultImportsReader;
 import org.gradle.configuration.ImportsReader;
 import org.gradle.initialization.ClassLoaderRegistry;
+import org.gradle.initialization.ConfigurationInputsHistory;
 import org.gradle.initialization.DefaultClassLoaderRegistry;
 import org.gradle.initialization.DefaultCommandLineConverter;
 import org.gradle.initialization.DefaultGradleLauncherFactory;
@@ -158,6 +159,10 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
         return new DefaultGradleLauncherFactory(listenerManager, progressLoggerFactory, userHomeScopeServiceRegistry);
     }
 
+    ConfigurationInputsHistory createConfigurationInputsHistory() {
+        return new ConfigurationInputsHistory();
+    }
+
     BuildOperationListenerManager createBuildOperationService(ListenerManager listenerManager) {
         return new DefaultBuildOperationListenerManager(listenerManager);
     }
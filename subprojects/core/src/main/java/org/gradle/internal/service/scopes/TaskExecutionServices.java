@@ -65,6 +65,9 @@ import org.gradle.cache.PersistentCache;
 import org.gradle.caching.internal.controller.BuildCacheController;
 import org.gradle.caching.internal.tasks.BuildCacheTaskServices;
 import org.gradle.caching.internal.tasks.TaskOutputCacheCommandFactory;
+import org.gradle.caching.internal.tasks.TaskOutputCompression;
+import org.gradle.execution.taskgraph.CacheBackedTaskDurationRepository;
+import org.gradle.execution.taskgraph.TaskDurationRepository;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
 import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
@@ -201,7 +204,7 @@ public class TaskExecutionServices {
         return new DefaultTaskOutputFilesRepository(cacheAccess, fileSystemMirror, inMemoryCacheDecoratorFactory);
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, StartParameter startParameter, TaskHistoryRepository taskHistoryRepository, TaskOutputFilesRepository taskOutputsRepository) {
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, StartParameter startParameter, TaskHistoryRepository taskHistoryRepository, TaskOutputFilesRepository taskOutputsRepository, TaskOutputCompression taskOutputCompression) {
 
         return new ShortCircuitTaskArtifactStateRepository(
             startParameter,
@@ -209,11 +212,19 @@ public class TaskExecutionServices {
             new DefaultTaskArtifactStateRepository(
                 taskHistoryRepository,
                 instantiator,
-                taskOutputsRepository
+                taskOutputsRepository,
+                taskOutputCompression
             )
         );
     }
 
+    TaskDurationRepository createTaskDurationRepository(StartParameter startParameter, ServiceRegistry serviceRegistry) {
+        if (startParameter.isCriticalPathSchedulingEnabled()) {
+            return new CacheBackedTaskDurationRepository(serviceRegistry.get(TaskHistoryStore.class));
+        }
+        return TaskDurationRepository.NO_HISTORY;
+    }
+
     TaskPlanExecutor createTaskExecutorFactory(ParallelismConfigurationManager parallelismConfigurationManager, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService) {
         return new TaskPlanExecutorFactory(parallelismConfigurationManager, executorFactory, workerLeaseService).create();
     }
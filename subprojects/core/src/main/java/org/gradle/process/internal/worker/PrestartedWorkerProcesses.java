@@ -0,0 +1,581 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.worker;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedScheduledExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleBuilder;
+import org.gradle.process.internal.ExecHandleFactory;
+import org.gradle.process.internal.ExecHandleListener;
+import org.gradle.process.internal.ExecHandleState;
+import org.gradle.process.internal.health.memory.MaximumHeapHelper;
+import org.gradle.process.internal.health.memory.MemoryAmount;
+import org.gradle.process.internal.health.memory.MemoryHolder;
+import org.gradle.process.internal.health.memory.MemoryManager;
+import org.gradle.process.internal.health.memory.TotalPhysicalMemoryProvider;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps worker JVMs started ahead of time, so that a worker can skip the JVM startup when one with the same command line is requested.
+ *
+ * <p>A worker process reads its configuration from its standard input before doing anything else, so a process started with the same command line,
+ * working directory and environment can be handed the configuration of a later request. Each pre-started process is leased at most once and is never
+ * returned to the pool, so no state leaks from one worker to the next.</p>
+ *
+ * <p>A process is pre-started only for a command line that has been requested before, to replace the process that was just leased or started.
+ * Idle processes are stopped after {@link #MAX_IDLE_SECONDS_PROPERTY} seconds, when they exit, when the {@link MemoryManager} requests memory to be
+ * released, or when this pool is stopped.</p>
+ */
+public class PrestartedWorkerProcesses implements MemoryHolder, Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.workers.prestart";
+    public static final String MAX_IDLE_SECONDS_PROPERTY = "org.gradle.workers.prestart.maxIdleSeconds";
+    private static final int DEFAULT_MAX_IDLE_SECONDS = 180;
+    private static final Logger LOGGER = Logging.getLogger(PrestartedWorkerProcesses.class);
+
+    private final ExecHandleFactory execHandleFactory;
+    private final MemoryManager memoryManager;
+    private final ManagedScheduledExecutor executor;
+    private final int maxIdleProcesses;
+    private final long maxIdleMillis;
+    private final long osTotalMemory;
+    private final Object lock = new Object();
+    private final Set<Key> requested = new HashSet<Key>();
+    // Keeps the processes in the order they were started, so the ones idle for the longest are released first
+    private final ListMultimap<Key, IdleProcess> idle = LinkedListMultimap.create();
+    private int starting;
+    private boolean stopped;
+
+    public PrestartedWorkerProcesses(ExecHandleFactory execHandleFactory, ExecutorFactory executorFactory, MemoryManager memoryManager, int maxIdleProcesses, long maxIdleMillis) {
+        this.execHandleFactory = execHandleFactory;
+        this.memoryManager = memoryManager;
+        this.maxIdleProcesses = maxIdleProcesses;
+        this.maxIdleMillis = maxIdleMillis;
+        this.osTotalMemory = maxIdleProcesses > 0 ? getTotalPhysicalMemory() : -1;
+        this.executor = maxIdleProcesses > 0 ? executorFactory.createScheduled("Prestart worker processes", 1) : null;
+        if (maxIdleProcesses > 0) {
+            memoryManager.addMemoryHolder(this);
+        }
+    }
+
+    /**
+     * Creates the pool configured by the system properties, which is disabled unless {@link #ENABLED_PROPERTY} is {@code true}.
+     */
+    public static PrestartedWorkerProcesses create(ExecHandleFactory execHandleFactory, ExecutorFactory executorFactory, MemoryManager memoryManager) {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return disabled();
+        }
+        long maxIdleSeconds = Long.getLong(MAX_IDLE_SECONDS_PROPERTY, DEFAULT_MAX_IDLE_SECONDS);
+        return new PrestartedWorkerProcesses(execHandleFactory, executorFactory, memoryManager, Runtime.getRuntime().availableProcessors(), TimeUnit.SECONDS.toMillis(maxIdleSeconds));
+    }
+
+    public static PrestartedWorkerProcesses disabled() {
+        return new PrestartedWorkerProcesses(null, null, null, 0, 0);
+    }
+
+    /**
+     * Returns a handle for a worker process equivalent to the requested one, which may be a pre-started process. The returned handle writes the given
+     * standard input to the process when started. Returns the requested handle when there is no matching idle process.
+     */
+    public ExecHandle lease(ExecHandle requestedHandle, InputStream standardInput) {
+        if (maxIdleProcesses == 0) {
+            return requestedHandle;
+        }
+
+        Key key = Key.of(requestedHandle);
+        LeasedExecHandle leased = null;
+        List<IdleProcess> exited = new ArrayList<IdleProcess>();
+        boolean prestart;
+        synchronized (lock) {
+            if (stopped) {
+                return requestedHandle;
+            }
+            List<IdleProcess> candidates = idle.get(key);
+            while (leased == null && !candidates.isEmpty()) {
+                IdleProcess candidate = candidates.remove(0);
+                candidate.expiry.cancel(false);
+                LeasedExecHandle handle = new LeasedExecHandle(candidate, standardInput, requestedHandle.toString());
+                if (candidate.lease(handle)) {
+                    leased = handle;
+                } else {
+                    exited.add(candidate);
+                }
+            }
+            prestart = !requested.add(key) && idle.size() + starting < maxIdleProcesses;
+            if (prestart) {
+                starting++;
+            }
+        }
+
+        for (IdleProcess process : exited) {
+            LOGGER.debug("Discarding pre-started worker process {} as it is no longer running.", process.handle);
+            process.stop();
+        }
+        if (prestart) {
+            executor.execute(new Prestart(key, requestedHandle));
+        }
+        if (leased == null) {
+            return requestedHandle;
+        }
+        LOGGER.debug("Using pre-started worker process {} for {}.", leased.process.handle, requestedHandle);
+        return leased;
+    }
+
+    @Override
+    public long attemptToRelease(long memoryAmountBytes) throws IllegalArgumentException {
+        if (memoryAmountBytes < 0) {
+            throw new IllegalArgumentException("Negative memory amount");
+        }
+        long releasedBytes = 0;
+        List<IdleProcess> released = new ArrayList<IdleProcess>();
+        synchronized (lock) {
+            Iterator<IdleProcess> iterator = idle.values().iterator();
+            while (releasedBytes < memoryAmountBytes && iterator.hasNext()) {
+                IdleProcess process = iterator.next();
+                iterator.remove();
+                released.add(process);
+                releasedBytes += process.memoryUsage;
+            }
+        }
+        for (IdleProcess process : released) {
+            LOGGER.debug("Stopping pre-started worker process {} to free some system memory.", process.handle);
+            process.expiry.cancel(false);
+            process.stop();
+        }
+        return releasedBytes;
+    }
+
+    @Override
+    public void stop() {
+        List<IdleProcess> processes;
+        synchronized (lock) {
+            stopped = true;
+            processes = new ArrayList<IdleProcess>(idle.values());
+            idle.clear();
+        }
+        for (IdleProcess process : processes) {
+            process.expiry.cancel(false);
+            process.stop();
+        }
+        if (executor != null) {
+            executor.stop();
+            memoryManager.removeMemoryHolder(this);
+        }
+    }
+
+    private void expire(Key key, IdleProcess process) {
+        synchronized (lock) {
+            if (!idle.remove(key, process)) {
+                // Already leased
+                return;
+            }
+        }
+        LOGGER.debug("Stopping pre-started worker process {} as it has been idle for too long.", process.handle);
+        process.stop();
+    }
+
+    private void exited(IdleProcess process) {
+        synchronized (lock) {
+            if (!idle.remove(process.key, process)) {
+                // Already leased, stopped or not yet idle
+                return;
+            }
+        }
+        LOGGER.debug("Discarding pre-started worker process {} as it is no longer running.", process.handle);
+        process.expiry.cancel(false);
+        process.stop();
+    }
+
+    private long estimateMemoryUsage(Key key) {
+        long maxHeapSize = key.getMaxHeapSize();
+        if (maxHeapSize != -1) {
+            return maxHeapSize;
+        }
+        // Approximate the default maximum heap of the worker JVM, as WorkerDaemonExpiration does
+        if (osTotalMemory != -1) {
+            return new MaximumHeapHelper().getDefaultMaximumHeapSize(osTotalMemory);
+        }
+        return 0;
+    }
+
+    private static long getTotalPhysicalMemory() {
+        try {
+            return TotalPhysicalMemoryProvider.getTotalPhysicalMemory();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private class Prestart implements Runnable {
+        private final Key key;
+        private final ExecHandle template;
+
+        Prestart(Key key, ExecHandle template) {
+            this.key = key;
+            this.template = template;
+        }
+
+        @Override
+        public void run() {
+            DeferredInputStream standardInput = new DeferredInputStream();
+            ExecHandleBuilder builder = execHandleFactory.newExec();
+            builder.setExecutable(template.getCommand());
+            builder.setArgs(template.getArguments());
+            builder.setEnvironment(template.getEnvironment());
+            builder.setWorkingDir(template.getDirectory());
+            builder.setStandardInput(standardInput);
+
+            IdleProcess process = null;
+            try {
+                ExecHandle handle = builder.build();
+                process = new IdleProcess(key, handle, standardInput, estimateMemoryUsage(key));
+                // Listen before starting, so that an exit is never missed
+                handle.addListener(process);
+                handle.start();
+            } catch (Exception e) {
+                LOGGER.debug("Could not pre-start worker process for {}.", template, e);
+                standardInput.close();
+                process = null;
+            }
+
+            boolean discard;
+            synchronized (lock) {
+                starting--;
+                discard = process != null && (stopped || !process.isAlive());
+                if (process != null && !discard) {
+                    final IdleProcess idleProcess = process;
+                    idleProcess.expiry = executor.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            expire(key, idleProcess);
+                        }
+                    }, maxIdleMillis, TimeUnit.MILLISECONDS);
+                    idle.put(key, idleProcess);
+                }
+            }
+            if (discard) {
+                process.stop();
+            }
+        }
+    }
+
+    /**
+     * A pre-started process, which listens to its own exit from the moment it is started. Before it is leased, an exit discards the process from the
+     * pool. Once it is leased, the exit is forwarded to the listeners of the lease, including those added after the process exited.
+     */
+    private class IdleProcess implements ExecHandleListener {
+        private final Key key;
+        private final ExecHandle handle;
+        private final DeferredInputStream standardInput;
+        private final long memoryUsage;
+        private final List<ExecHandleListener> listeners = new ArrayList<ExecHandleListener>();
+        private Future<?> expiry;
+        private ExecHandle leasedHandle;
+        private ExecResult result;
+
+        IdleProcess(Key key, ExecHandle handle, DeferredInputStream standardInput, long memoryUsage) {
+            this.key = key;
+            this.handle = handle;
+            this.standardInput = standardInput;
+            this.memoryUsage = memoryUsage;
+        }
+
+        synchronized boolean isAlive() {
+            return result == null && handle.getState() == ExecHandleState.STARTED;
+        }
+
+        /**
+         * Hands this process to the given lease, unless the process is no longer running.
+         */
+        synchronized boolean lease(ExecHandle leasedHandle) {
+            if (!isAlive()) {
+                return false;
+            }
+            this.leasedHandle = leasedHandle;
+            return true;
+        }
+
+        void addListener(ExecHandleListener listener) {
+            ExecHandle leasedHandle;
+            ExecResult finished;
+            synchronized (this) {
+                leasedHandle = this.leasedHandle;
+                finished = result;
+                if (finished == null) {
+                    listeners.add(listener);
+                }
+            }
+            if (finished != null) {
+                listener.executionFinished(leasedHandle, finished);
+            }
+        }
+
+        synchronized void removeListener(ExecHandleListener listener) {
+            listeners.remove(listener);
+        }
+
+        void started() {
+            List<ExecHandleListener> listeners;
+            synchronized (this) {
+                listeners = new ArrayList<ExecHandleListener>(this.listeners);
+            }
+            for (ExecHandleListener listener : listeners) {
+                listener.executionStarted(leasedHandle);
+            }
+        }
+
+        @Override
+        public void executionStarted(ExecHandle execHandle) {
+        }
+
+        @Override
+        public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+            ExecHandle leasedHandle;
+            List<ExecHandleListener> listeners;
+            synchronized (this) {
+                result = execResult;
+                leasedHandle = this.leasedHandle;
+                listeners = new ArrayList<ExecHandleListener>(this.listeners);
+            }
+            if (leasedHandle == null) {
+                exited(this);
+                return;
+            }
+            for (ExecHandleListener listener : listeners) {
+                listener.executionFinished(leasedHandle, execResult);
+            }
+        }
+
+        void stop() {
+            handle.abort();
+            standardInput.close();
+        }
+    }
+
+    /**
+     * Identifies the processes that can stand in for each other. The last argument of a worker command line is its display name, which is ignored.
+     * Arguments that refer to an options file are compared by the content of the file, as each worker is given its own options file.
+     */
+    private static class Key {
+        private final String command;
+        private final List<String> arguments;
+        private final Map<String, String> environment;
+        private final File directory;
+
+        private Key(String command, List<String> arguments, Map<String, String> environment, File directory) {
+            this.command = command;
+            this.arguments = arguments;
+            this.environment = environment;
+            this.directory = directory;
+        }
+
+        static Key of(ExecHandle handle) {
+            List<String> handleArguments = handle.getArguments();
+            List<String> arguments = new ArrayList<String>(handleArguments.size());
+            for (String argument : handleArguments.subList(0, Math.max(0, handleArguments.size() - 1))) {
+                if (argument.startsWith("@")) {
+                    File optionsFile = new File(argument.substring(1));
+                    if (optionsFile.isFile()) {
+                        argument = "@" + GFileUtils.readFileQuietly(optionsFile);
+                    }
+                }
+                arguments.add(argument);
+            }
+            return new Key(handle.getCommand(), arguments, new HashMap<String, String>(handle.getEnvironment()), handle.getDirectory());
+        }
+
+        /**
+         * Returns the maximum heap size given on the command line, or -1 when there is none.
+         */
+        long getMaxHeapSize() {
+            long maxHeapSize = -1;
+            for (String argument : arguments) {
+                if (argument.startsWith("-Xmx")) {
+                    try {
+                        maxHeapSize = MemoryAmount.parseNotation(argument.substring(4));
+                    } catch (IllegalArgumentException e) {
+                        // Not understood, the JVM will report it
+                    }
+                }
+            }
+            return maxHeapSize;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return command.equals(other.command) && arguments.equals(other.arguments) && environment.equals(other.environment) && directory.equals(other.directory);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((command.hashCode() * 31 + arguments.hashCode()) * 31 + environment.hashCode()) * 31 + directory.hashCode();
+        }
+    }
+
+    /**
+     * Writes the standard input of a lease to the pre-started process, and delegates everything else to it.
+     */
+    private static class LeasedExecHandle implements ExecHandle {
+        private final IdleProcess process;
+        private final InputStream standardInput;
+        private final String displayName;
+
+        LeasedExecHandle(IdleProcess process, InputStream standardInput, String displayName) {
+            this.process = process;
+            this.standardInput = standardInput;
+            this.displayName = displayName;
+        }
+
+        @Override
+        public File getDirectory() {
+            return process.handle.getDirectory();
+        }
+
+        @Override
+        public String getCommand() {
+            return process.handle.getCommand();
+        }
+
+        @Override
+        public List<String> getArguments() {
+            return process.handle.getArguments();
+        }
+
+        @Override
+        public Map<String, String> getEnvironment() {
+            return process.handle.getEnvironment();
+        }
+
+        @Override
+        public ExecHandle start() {
+            process.standardInput.connect(standardInput);
+            process.started();
+            return this;
+        }
+
+        @Override
+        public ExecHandleState getState() {
+            return process.handle.getState();
+        }
+
+        @Override
+        public void abort() {
+            process.stop();
+        }
+
+        @Override
+        public ExecResult waitForFinish() {
+            return process.handle.waitForFinish();
+        }
+
+        @Override
+        public void addListener(ExecHandleListener listener) {
+            process.addListener(listener);
+        }
+
+        @Override
+        public void removeListener(ExecHandleListener listener) {
+            process.removeListener(listener);
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * The standard input of a pre-started process, which blocks until the input of the lease is connected, or the process is stopped.
+     */
+    static class DeferredInputStream extends InputStream {
+        private InputStream delegate;
+        private boolean closed;
+
+        synchronized void connect(InputStream delegate) {
+            this.delegate = delegate;
+            notifyAll();
+        }
+
+        @Override
+        public int read() throws IOException {
+            InputStream delegate = awaitDelegate();
+            return delegate == null ? -1 : delegate.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            InputStream delegate = awaitDelegate();
+            return delegate == null ? -1 : delegate.read(buffer, offset, length);
+        }
+
+        @Override
+        public void close() {
+            InputStream delegate;
+            synchronized (this) {
+                closed = true;
+                delegate = this.delegate;
+                notifyAll();
+            }
+            if (delegate != null) {
+                try {
+                    delegate.close();
+                } catch (IOException e) {
+                    // Ignore, the process has been stopped
+                }
+            }
+        }
+
+        private synchronized InputStream awaitDelegate() throws InterruptedIOException {
+            while (delegate == null && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            return closed ? null : delegate;
+        }
+    }
+}
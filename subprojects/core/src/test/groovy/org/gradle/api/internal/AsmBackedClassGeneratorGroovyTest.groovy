@@ -18,6 +18,7 @@ package org.gradle.api.internal
 
 import com.google.common.base.Function
 import org.gradle.api.Action
+import org.gradle.api.GradleException
 import org.gradle.api.NonExtensible
 import org.gradle.api.plugins.ExtensionAware
 import org.gradle.internal.BiAction
@@ -30,6 +31,7 @@ import spock.lang.Issue
 import spock.lang.Specification
 
 import javax.inject.Inject
+import java.util.concurrent.CountDownLatch
 
 class AsmBackedClassGeneratorGroovyTest extends Specification {
 
@@ -40,6 +42,41 @@ class AsmBackedClassGeneratorGroovyTest extends Specification {
         instantiator.newInstance(clazz, args) as T
     }
 
+    def "generates a type once when it is requested concurrently"() {
+        def generated = Collections.synchronizedSet(new HashSet<Class<?>>())
+        def start = new CountDownLatch(1)
+
+        when:
+        def threads = (1..8).collect {
+            Thread.start {
+                start.await()
+                generated << generator.generate(ConcurrentlyGeneratedBean)
+            }
+        }
+        start.countDown()
+        threads*.join()
+
+        then:
+        generated.size() == 1
+        generator.generate(ConcurrentlyGeneratedBean) == generated.first()
+    }
+
+    def "reports failure to generate a type for each request"() {
+        when:
+        generator.generate(AbstractGeneratedBean)
+
+        then:
+        def e = thrown(GradleException)
+        e.message == "Cannot create a proxy class for abstract class 'AbstractGeneratedBean'."
+
+        when:
+        generator.generate(AbstractGeneratedBean)
+
+        then:
+        e = thrown(GradleException)
+        e.message == "Cannot create a proxy class for abstract class 'AbstractGeneratedBean'."
+    }
+
     @Issue("GRADLE-2417")
     def "can use dynamic object as closure delegate"() {
         given:
@@ -600,3 +637,10 @@ class BeanWithMutableServices extends BeanWithServices {
 
     void setThing(Runnable runnnable) { throw new UnsupportedOperationException() }
 }
+
+class ConcurrentlyGeneratedBean {
+    String prop
+}
+
+abstract class AbstractGeneratedBean {
+}
@@ -40,6 +40,7 @@ import org.gradle.cache.CacheRepository
 import org.gradle.cache.internal.CacheScopeMapping
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory
 import org.gradle.cache.internal.DefaultCacheRepository
+import org.gradle.caching.internal.tasks.TaskOutputCompression
 import org.gradle.internal.classloader.ConfigurableClassLoaderHierarchyHasher
 import org.gradle.internal.event.DefaultListenerManager
 import org.gradle.internal.hash.HashCode
@@ -108,7 +109,7 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
             snapshotterRegistry,
             TestFiles.fileCollectionFactory(),
             buildScopeId)
-        repository = new DefaultTaskArtifactStateRepository(taskHistoryRepository, DirectInstantiator.INSTANCE, taskOutputFilesRepository)
+        repository = new DefaultTaskArtifactStateRepository(taskHistoryRepository, DirectInstantiator.INSTANCE, taskOutputFilesRepository, TaskOutputCompression.GZIP)
     }
 
     def "artifacts are not up to date when cache is empty"() {
@@ -18,7 +18,15 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.BuildResult
 import org.gradle.api.internal.GradleInternal
+import org.gradle.api.Action
+import org.gradle.api.internal.file.FileSystemSubset
+import org.gradle.api.internal.file.TemporaryFileProvider
 import org.gradle.internal.classpath.CachedJarFileStore
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
+import org.gradle.test.fixtures.ConcurrentTestUtil
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -31,11 +39,34 @@ class DefaultFileSystemMirrorTest extends Specification {
     DefaultFileSystemMirror mirror
     TestFile cacheDir
 
+    def watcherFactory = Mock(FileWatcherFactory)
+    def watcher = Mock(FileWatcher)
+    def temporaryFileProvider = Stub(TemporaryFileProvider)
+    DefaultFileSystemMirror retainingMirror
+    TestFile barrierDir
+    TestFile srcFile
+    def fileSnapshot = Stub(FileSnapshot)
+    def fileTreeSnapshot = Stub(FileTreeSnapshot)
+    def snapshot = Stub(Snapshot)
+    FileWatcherListener listener
+
     def setup() {
         cacheDir = tmpDir.createDir("cache")
         def fileStore = Stub(CachedJarFileStore)
         fileStore.fileStoreRoots >> [cacheDir]
         mirror = new DefaultFileSystemMirror([fileStore])
+
+        barrierDir = tmpDir.file("barrier")
+        srcFile = tmpDir.createFile("src/a")
+        temporaryFileProvider.createTemporaryDirectory(*_) >> { barrierDir.createDir() }
+        retainingMirror = new DefaultFileSystemMirror([], watcherFactory, temporaryFileProvider)
+        _ * fileSnapshot.path >> srcFile.path
+        _ * fileTreeSnapshot.path >> srcFile.parentFile.path
+        _ * watcher.running >> true
+        _ * watcherFactory.watch(_ as Action, _ as FileWatcherListener) >> { Action onError, FileWatcherListener l ->
+            listener = l
+            watcher
+        }
     }
 
     def "keeps state about a file until task outputs are generated"() {
@@ -141,4 +172,137 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getDirectoryTree(file.path) == null
         mirror.getContent(file.path) == null
     }
+
+    def "retains state about a watched file between builds until it changes"() {
+        when:
+        retainingMirror.afterStart()
+        putState()
+        retainingMirror.beforeComplete()
+
+        then:
+        1 * watcher.watch({ FileSystemSubset subset -> subset.contains(srcFile) && subset.contains(barrierDir) })
+
+        and: "state is not retained for paths that were not watched when the build started"
+        !hasState()
+
+        when:
+        startBuild()
+        putState()
+        retainingMirror.beforeComplete()
+        startBuild()
+
+        then:
+        0 * watcher.watch(_)
+        retainingMirror.getFile(srcFile.path) == fileSnapshot
+        retainingMirror.getDirectoryTree(srcFile.parentFile.path) == fileTreeSnapshot
+        retainingMirror.getContent(srcFile.path) == snapshot
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.modify(srcFile))
+        retainingMirror.beforeComplete()
+        startBuild()
+
+        then:
+        !hasState()
+    }
+
+    def "does not watch the parent directories of files that are not part of a directory tree"() {
+        when:
+        2.times {
+            retainingMirror.afterStart()
+            retainingMirror.putFile(fileSnapshot)
+            retainingMirror.beforeComplete()
+        }
+        retainingMirror.afterStart()
+
+        then:
+        0 * watcherFactory._
+        retainingMirror.getFile(srcFile.path) == null
+    }
+
+    def "discards all retained state when the watcher overflows"() {
+        given:
+        retainState()
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.undefined())
+        retainingMirror.beforeComplete()
+        startBuild()
+
+        then:
+        !hasState()
+    }
+
+    def "discards all retained state and stops watching when a watched directory is removed"() {
+        given:
+        retainState()
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.delete(srcFile.parentFile))
+        retainingMirror.beforeComplete()
+        startBuild()
+
+        then:
+        1 * watcher.stop()
+        !hasState()
+    }
+
+    def "discards all retained state when changes are not received in time"() {
+        given:
+        retainState()
+        retainingMirror.beforeComplete()
+
+        when:
+        retainingMirror.afterStart()
+
+        then:
+        !hasState()
+    }
+
+    def "stops watching when stopped"() {
+        when:
+        retainingMirror.afterStart()
+        putState()
+        retainingMirror.beforeComplete()
+        retainingMirror.stop()
+
+        then:
+        1 * watcher.stop()
+        !barrierDir.exists()
+    }
+
+    private void retainState() {
+        retainingMirror.afterStart()
+        putState()
+        retainingMirror.beforeComplete()
+        startBuild()
+        putState()
+        retainingMirror.beforeComplete()
+        startBuild()
+        assert hasState()
+    }
+
+    /**
+     * Starts a build, delivering the change to the barrier file once it has been written.
+     */
+    private void startBuild() {
+        def build = Thread.start { retainingMirror.afterStart() }
+        File barrier = null
+        ConcurrentTestUtil.poll {
+            barrier = barrierDir.listFiles().find()
+            assert barrier != null
+        }
+        listener.onChange(watcher, FileWatcherEvent.create(barrier))
+        build.join()
+    }
+
+    private void putState() {
+        retainingMirror.putFile(fileSnapshot)
+        retainingMirror.putDirectory(fileTreeSnapshot)
+        retainingMirror.putContent(srcFile.path, snapshot)
+    }
+
+    private boolean hasState() {
+        return retainingMirror.getFile(srcFile.path) != null || retainingMirror.getDirectoryTree(srcFile.parentFile.path) != null || retainingMirror.getContent(srcFile.path) != null
+    }
 }
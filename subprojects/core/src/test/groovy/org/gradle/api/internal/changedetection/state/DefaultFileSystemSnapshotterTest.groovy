@@ -20,7 +20,11 @@ import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.internal.hash.TestFileHasher
 import org.gradle.caching.internal.DefaultBuildCacheHasher
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ParallelismConfigurationManagerFixture
 import org.gradle.internal.file.FileType
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService
+import org.gradle.internal.work.DefaultWorkerLeaseService
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -203,4 +207,31 @@ class DefaultFileSystemSnapshotterTest extends Specification {
         snapshot.appendToHasher(builder)
         return builder.hash()
     }
+
+    def "snapshots large directory trees in parallel in the order of the directory walker"() {
+        def coordinationService = new DefaultResourceLockCoordinationService()
+        def workerLeaseService = new DefaultWorkerLeaseService(coordinationService, new ParallelismConfigurationManagerFixture(true, 4))
+        def treeHasher = new ParallelFileTreeHasher(workerLeaseService, coordinationService, new DefaultExecutorFactory())
+        def parallelSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror([]), treeHasher)
+        def d = tmpDir.createDir("d")
+        (ParallelFileTreeHasher.PARALLEL_THRESHOLD + 10).times {
+            d.createFile("d${it % 10}/f${it}").text = "content ${it}"
+        }
+
+        when:
+        def expected = snapshotter.snapshotDirectoryTree(d)
+        def actual = null
+        workerLeaseService.withLocks([workerLeaseService.workerLease]) {
+            actual = parallelSnapshotter.snapshotDirectoryTree(d)
+        }
+
+        then:
+        actual.path == expected.path
+        actual.descendants*.path == expected.descendants*.path
+        actual.descendants*.relativePath == expected.descendants*.relativePath
+        actual.descendants*.content == expected.descendants*.content
+
+        cleanup:
+        treeHasher.stop()
+    }
 }
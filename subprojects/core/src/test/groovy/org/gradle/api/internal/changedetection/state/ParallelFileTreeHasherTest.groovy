@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.Transformer
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.internal.concurrent.ParallelismConfigurationManagerFixture
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService
+import org.gradle.internal.work.DefaultWorkerLeaseService
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.CopyOnWriteArraySet
+
+class ParallelFileTreeHasherTest extends ConcurrentSpec {
+    def coordinationService = new DefaultResourceLockCoordinationService()
+    def elements = Collections.nCopies(ParallelFileTreeHasher.PARALLEL_THRESHOLD, Stub(FileVisitDetails))
+    def snapshot = Stub(FileSnapshot)
+    def threads = new CopyOnWriteArraySet<Thread>()
+
+    def "hashes large trees only on threads that hold a worker lease"() {
+        def workerLeaseService = workerLeaseService(4)
+        def hasher = new ParallelFileTreeHasher(workerLeaseService, coordinationService, executorFactory)
+        def snapshots = null
+
+        when:
+        workerLeaseService.withLocks([workerLeaseService.workerLease]) {
+            snapshots = hasher.snapshot(elements, snapshotter(workerLeaseService))
+        }
+
+        then:
+        snapshots.size() == elements.size()
+        threads.size() <= 4
+
+        cleanup:
+        hasher.stop()
+    }
+
+    def "hashes on the calling thread when all other worker leases are in use"() {
+        def workerLeaseService = workerLeaseService(2)
+        def hasher = new ParallelFileTreeHasher(workerLeaseService, coordinationService, executorFactory)
+        def snapshots = null
+
+        when:
+        async {
+            start {
+                workerLeaseService.withLocks([workerLeaseService.workerLease]) {
+                    instant.otherLeaseTaken
+                    thread.blockUntil.hashed
+                }
+            }
+            thread.blockUntil.otherLeaseTaken
+            workerLeaseService.withLocks([workerLeaseService.workerLease]) {
+                snapshots = hasher.snapshot(elements, snapshotter(workerLeaseService))
+            }
+            instant.hashed
+        }
+
+        then:
+        snapshots.size() == elements.size()
+        threads.size() == 1
+
+        cleanup:
+        hasher.stop()
+    }
+
+    def "hashes on the calling thread when it does not hold a worker lease"() {
+        def workerLeaseService = workerLeaseService(4)
+        def hasher = new ParallelFileTreeHasher(workerLeaseService, coordinationService, executorFactory)
+
+        when:
+        def snapshots = hasher.snapshot(elements, new Transformer<FileSnapshot, FileVisitDetails>() {
+            @Override
+            FileSnapshot transform(FileVisitDetails details) {
+                threads.add(Thread.currentThread())
+                return snapshot
+            }
+        })
+
+        then:
+        snapshots.size() == elements.size()
+        threads == [Thread.currentThread()] as Set
+
+        cleanup:
+        hasher.stop()
+    }
+
+    private DefaultWorkerLeaseService workerLeaseService(int maxWorkers) {
+        return new DefaultWorkerLeaseService(coordinationService, new ParallelismConfigurationManagerFixture(true, maxWorkers))
+    }
+
+    private Transformer<FileSnapshot, FileVisitDetails> snapshotter(DefaultWorkerLeaseService workerLeaseService) {
+        return new Transformer<FileSnapshot, FileVisitDetails>() {
+            @Override
+            FileSnapshot transform(FileVisitDetails details) {
+                // Fails when the current thread does not hold a worker lease
+                workerLeaseService.currentWorkerLease
+                threads.add(Thread.currentThread())
+                return snapshot
+            }
+        }
+    }
+}
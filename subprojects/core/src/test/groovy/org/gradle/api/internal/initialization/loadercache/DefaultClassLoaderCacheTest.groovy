@@ -222,4 +222,80 @@ class DefaultClassLoaderCacheTest extends Specification {
         then:
         cache.size() == 1
     }
+
+    def "released loaders are retained and handed out again for the same spec"() {
+        def root = classLoader(classPath("root"))
+        def c1 = cache.get(id1, classPath("c1"), root, null)
+
+        when:
+        cache.remove(id1)
+
+        then:
+        cache.size() == 0
+        cache.retainedSize() == 1
+
+        when:
+        def reused = cache.get(id2, classPath("c1"), root, null)
+
+        then:
+        reused.is(c1)
+        cache.size() == 1
+        cache.retainedSize() == 0
+    }
+
+    def "loader replaced for an id is retained"() {
+        def root = classLoader(classPath("root"))
+
+        when:
+        def c1 = cache.get(id1, classPath("c1"), root, null)
+        cache.get(id1, classPath("c2"), root, null)
+
+        then:
+        cache.size() == 1
+        cache.retainedSize() == 1
+        cache.get(id1, classPath("c1"), root, null).is(c1)
+    }
+
+    def "retains only unfiltered loaders"() {
+        def root = classLoader(classPath("root"))
+        def f1 = new FilteringClassLoader.Spec(["1"], [], [], [], [], [], [])
+
+        when:
+        cache.get(id1, classPath("c1"), root, f1)
+        cache.remove(id1)
+
+        then:
+        cache.size() == 0
+        cache.retainedSize() == 1
+    }
+
+    def "discards least recently released loaders when too many are retained"() {
+        def cache = new DefaultClassLoaderCache(new DefaultHashingClassLoaderFactory(classpathHasher), classpathHasher, 2)
+        def root = classLoader(classPath("root"))
+
+        when:
+        def c1 = cache.get(id1, classPath("c1"), root, null)
+        def c2 = cache.get(id1, classPath("c2"), root, null)
+        def c3 = cache.get(id1, classPath("c3"), root, null)
+        cache.remove(id1)
+
+        then:
+        cache.retainedSize() == 2
+        cache.get(id1, classPath("c3"), root, null).is(c3)
+        cache.get(id1, classPath("c2"), root, null).is(c2)
+        !cache.get(id1, classPath("c1"), root, null).is(c1)
+    }
+
+    def "does not retain loaders when retention is disabled"() {
+        def cache = new DefaultClassLoaderCache(new DefaultHashingClassLoaderFactory(classpathHasher), classpathHasher, 0)
+        def root = classLoader(classPath("root"))
+
+        when:
+        def c1 = cache.get(id1, classPath("c1"), root, null)
+        cache.remove(id1)
+
+        then:
+        cache.retainedSize() == 0
+        !cache.get(id1, classPath("c1"), root, null).is(c1)
+    }
 }
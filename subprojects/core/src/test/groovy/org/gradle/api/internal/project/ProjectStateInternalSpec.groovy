@@ -15,10 +15,10 @@
  */
 package org.gradle.api.internal.project
 
-import spock.lang.*
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.util.ConfigureUtil
 
-class ProjectStateInternalSpec extends Specification {
+class ProjectStateInternalSpec extends ConcurrentSpec {
 	
 	def "to string representation"() {
 		expect:
@@ -28,6 +28,40 @@ class ProjectStateInternalSpec extends Specification {
 		stateString { executed(new Error("bang")) } == "FAILED (bang)"
 	}
 	
+	def "waits for evaluation by another thread to finish"() {
+		def state = new ProjectStateInternal()
+
+		when:
+		async {
+			start {
+				assert !state.awaitEvaluationByOtherThread()
+				instant.claimed
+				thread.block()
+				state.executed()
+				instant.finished
+				state.evaluationFinished()
+			}
+			start {
+				thread.blockUntil.claimed
+				assert state.awaitEvaluationByOtherThread()
+				instant.waited
+			}
+		}
+
+		then:
+		instant.waited > instant.finished
+	}
+
+	def "evaluation is reentrant"() {
+		def state = new ProjectStateInternal()
+
+		expect:
+		!state.awaitEvaluationByOtherThread()
+		!state.awaitEvaluationByOtherThread()
+		state.evaluationFinished()
+		state.evaluationFinished()
+	}
+
 	String stateString(Closure closure) {
 		def state = ConfigureUtil.configure(closure, new ProjectStateInternal())
 		def matcher = state.toString() =~ /^project state '(.*?)'$/
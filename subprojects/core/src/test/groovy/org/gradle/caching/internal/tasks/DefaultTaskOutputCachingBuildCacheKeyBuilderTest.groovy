@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.tasks
+
+import org.gradle.api.internal.changedetection.state.ImplementationSnapshot
+import org.gradle.internal.hash.HashCode
+import org.gradle.util.Path
+import spock.lang.Specification
+
+class DefaultTaskOutputCachingBuildCacheKeyBuilderTest extends Specification {
+
+    def "gzip compression does not change the cache key"() {
+        expect:
+        cacheKey(null).hashCode == cacheKey(TaskOutputCompression.GZIP).hashCode
+    }
+
+    def "other compressions change the cache key"() {
+        expect:
+        cacheKey(TaskOutputCompression.LZ4).hashCode != cacheKey(TaskOutputCompression.GZIP).hashCode
+    }
+
+    private static TaskOutputCachingBuildCacheKey cacheKey(TaskOutputCompression compression) {
+        def builder = new DefaultTaskOutputCachingBuildCacheKeyBuilder(Path.path(":test"))
+        builder.appendTaskImplementation(new ImplementationSnapshot("org.gradle.TestTask", HashCode.fromInt(123)))
+        builder.appendTaskActionImplementations([])
+        builder.appendInputPropertyHash("input", HashCode.fromInt(456))
+        builder.appendOutputPropertyName("output")
+        if (compression != null) {
+            builder.appendCompression(compression)
+        }
+        return builder.build()
+    }
+}
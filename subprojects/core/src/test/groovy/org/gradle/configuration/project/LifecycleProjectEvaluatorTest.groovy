@@ -24,10 +24,10 @@ import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.project.ProjectStateInternal
 import org.gradle.internal.progress.BuildOperationDescriptor
 import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.util.Path
-import spock.lang.Specification
 
-class LifecycleProjectEvaluatorTest extends Specification {
+class LifecycleProjectEvaluatorTest extends ConcurrentSpec {
     private project = Mock(ProjectInternal)
     private gradle = Mock(GradleInternal)
     private listener = Mock(ProjectEvaluationListener)
@@ -68,6 +68,33 @@ class LifecycleProjectEvaluatorTest extends Specification {
         0 * delegate._
     }
 
+    void "waits for the project to be configured when another thread is configuring it"() {
+        def state = new ProjectStateInternal()
+
+        when:
+        async {
+            start {
+                assert !state.awaitEvaluationByOtherThread()
+                state.executing = true
+                instant.configuring
+                thread.block()
+                state.executing = false
+                state.executed()
+                instant.configured
+                state.evaluationFinished()
+            }
+            start {
+                thread.blockUntil.configuring
+                evaluator.evaluate(project, state)
+                instant.returned
+            }
+        }
+
+        then:
+        instant.returned > instant.configured
+        0 * delegate._
+    }
+
     void "evaluates the project firing all necessary listeners and updating the state"() {
         when:
         evaluator.evaluate(project, state)
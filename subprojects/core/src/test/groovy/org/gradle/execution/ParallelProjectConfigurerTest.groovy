@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution
+
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectStateInternal
+import org.gradle.initialization.BuildCancellationToken
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Path
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ParallelProjectConfigurerTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def evaluator = new TaskPathProjectEvaluator(Stub(BuildCancellationToken), buildOperationExecutor)
+    def configurer = new ParallelProjectConfigurer(buildOperationExecutor, evaluator)
+
+    @Unroll
+    def "build script '#script' is independent of other projects: #independent"() {
+        expect:
+        ParallelProjectConfigurer.isIndependent(script) == independent
+
+        where:
+        script                                                       | independent
+        "apply plugin: 'java'"                                       | true
+        "apply plugin: 'org.gradle.java-library'"                    | true
+        "plugins { id 'java-library' }"                              | true
+        "plugins {\n id('groovy')\n id 'maven-publish'\n}"           | true
+        "dependencies { compile project(':core') }"                  | true
+        "dependencies { compile project(path: ':core') }"            | true
+        "dependencies {\n compile project(':core')\n}"               | true
+        "description = 'my project'"                                 | true
+        "apply plugin: 'idea'"                                       | false
+        "apply plugin: 'com.example.conventions'"                    | false
+        "plugins { id 'com.example.conventions' version '1.0' }"     | false
+        "apply plugin: ConventionsPlugin"                            | false
+        "pluginManager.apply('java')"                                | false
+        "plugins.apply('java')"                                      | false
+        "buildscript { dependencies { classpath 'org:plugin:1.0' } }" | false
+        "import org.example.Conventions"                             | false
+        "evaluationDependsOn(':core')"                               | false
+        "evaluationDependsOnChildren()"                              | false
+        "allprojects { apply plugin: 'java' }"                       | false
+        "subprojects { apply plugin: 'java' }"                       | false
+        "rootProject.ext.version"                                    | false
+        "parent.description"                                         | false
+        "findProject(':core')"                                       | false
+        "gradle.projectsEvaluated { }"                               | false
+        "apply from: 'other.gradle'"                                 | false
+        "project(':core').tasks.compileJava"                         | false
+        "project(':core') { apply plugin: 'java' }"                  | false
+        "project(':core', { apply plugin: 'java' })"                 | false
+        "apply([from: 'other.gradle'])"                              | false
+        "apply plugin: 'java', to: project(':core')"                 | false
+        "Eval.x(project, 'x.rootProject')"                           | false
+        "evaluate(new File('other.gradle'))"                         | false
+        'project."root${"Project"}".description'                    | false
+        '"allprojects"() { }'                                        | false
+        "project['rootProject']"                                     | false
+        "project.properties.rootProject"                             | false
+        "project.metaClass.getMetaProperty('parent')"                | false
+        '\\u0072ootProject.description'                              | false
+    }
+
+    @Unroll
+    def "settings or init script '#script' registers build hooks: #hooks"() {
+        expect:
+        ParallelProjectConfigurer.registersBuildHooks(script) == hooks
+
+        where:
+        script                                       | hooks
+        "rootProject.name = 'root'\ninclude 'a', 'b'" | false
+        "gradle.beforeProject { }"                   | true
+        "allprojects { repositories { jcenter() } }" | true
+        "apply from: 'other.gradle'"                 | true
+        "apply plugin: SettingsPlugin"               | true
+        "Eval.me('gradle.beforeProject { }')"        | true
+        'include "${"a"}"'                           | false
+    }
+
+    def "projects with build scripts in other languages are not independent"() {
+        def buildFile = tmpDir.file("a", "build.gradle.kts")
+        buildFile.text = 'description = "my project"'
+        def project = Stub(ProjectInternal) {
+            getBuildFile() >> buildFile
+        }
+
+        expect:
+        !ParallelProjectConfigurer.isIndependent(project)
+    }
+
+    def "configures consecutive independent projects concurrently"() {
+        def a = project("a", "apply plugin: 'java'")
+        def b = project("b", "dependencies { compile project(':a') }")
+        def c = project("c", null)
+
+        when:
+        configurer.configure([a, b, c])
+
+        then:
+        1 * a.evaluate()
+        1 * b.evaluate()
+        1 * c.evaluate()
+
+        and:
+        buildOperationExecutor.operations*.displayName == [
+            "Configure 3 projects concurrently",
+            "Evaluate :a concurrently",
+            "Evaluate :b concurrently",
+            "Evaluate :c concurrently"
+        ]
+    }
+
+    def "configures other projects and children of projects being configured on their own"() {
+        def a = project("a", null)
+        def b = project("b", "evaluationDependsOn(':a')")
+        def c = project("c", null)
+        def d = project("d", null, c)
+        def e = project("e", null)
+
+        when:
+        configurer.configure([a, b, c, d, e])
+
+        then:
+        1 * a.evaluate()
+
+        then:
+        1 * b.evaluate()
+
+        then:
+        1 * c.evaluate()
+
+        then:
+        1 * d.evaluate()
+        1 * e.evaluate()
+
+        and:
+        buildOperationExecutor.operations*.displayName == [
+            "Configure 2 projects concurrently",
+            "Evaluate :d concurrently",
+            "Evaluate :e concurrently"
+        ]
+    }
+
+    def "does not configure projects that have already been configured"() {
+        def a = project("a", null)
+        def b = project("b", null)
+        b.state.executed()
+
+        when:
+        configurer.configure([a, b])
+
+        then:
+        1 * a.evaluate()
+        0 * b.evaluate()
+        buildOperationExecutor.operations.empty
+    }
+
+    private ProjectInternal project(String name, String script, ProjectInternal parent = null) {
+        def buildFile = tmpDir.file(name, "build.gradle")
+        if (script != null) {
+            buildFile.text = script
+        }
+        def project = Mock(ProjectInternal)
+        def state = new ProjectStateInternal()
+        _ * project.buildFile >> buildFile
+        _ * project.state >> state
+        _ * project.parent >> parent
+        _ * project.identityPath >> Path.path(":" + name)
+        return project
+    }
+}
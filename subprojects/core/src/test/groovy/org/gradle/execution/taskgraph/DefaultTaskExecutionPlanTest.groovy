@@ -603,6 +603,67 @@ class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
 """)
     }
 
+    def "starts tasks heading the longest remaining chain first when task durations are known"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d")
+
+        when:
+        executionPlan.useTaskDurations(taskDurations(a: 10, b: 10, c: 100, d: 50))
+        addToGraphAndPopulate([a, c, d])
+
+        then:
+        executes(a, b, c, d)
+        executedTasks == [b, c, d, a]
+    }
+
+    def "uses average duration for tasks that have not executed before"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c")
+
+        when:
+        executionPlan.useTaskDurations(taskDurations(a: 10, c: 50))
+        addToGraphAndPopulate([a, b, c])
+
+        then:
+        executedTasks == [c, b, a]
+    }
+
+    def "keeps the original order when no task durations are known"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+
+        when:
+        executionPlan.useTaskDurations(taskDurations([:]))
+        addToGraphAndPopulate([a, c])
+
+        then:
+        executedTasks == [a, b, c]
+    }
+
+    @Unroll
+    def "honours #orderingRule ordering when prioritizing by task durations"() {
+        given:
+        Task a = task("a")
+        Task b = task("b", (orderingRule): [a])
+
+        when:
+        executionPlan.useTaskDurations(taskDurations(a: 1, b: 100))
+        addToGraphAndPopulate([a, b])
+
+        then:
+        executedTasks == [a, b]
+
+        where:
+        orderingRule << ['mustRunAfter', 'shouldRunAfter']
+    }
+
     def "stops returning tasks on task execution failure"() {
         RuntimeException exception = new RuntimeException("failure");
 
@@ -905,6 +966,12 @@ class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
         return tasks
     }
 
+    private TaskDurationRepository taskDurations(Map<String, Integer> durations) {
+        Stub(TaskDurationRepository) {
+            getPreviousDuration(_) >> { TaskInternal task -> durations[task.name] as Long }
+        }
+    }
+
     private TaskDependency taskDependencyResolvingTo(TaskInternal task, List<Task> tasks) {
         Mock(TaskDependency) {
             getDependencies(task) >> tasks
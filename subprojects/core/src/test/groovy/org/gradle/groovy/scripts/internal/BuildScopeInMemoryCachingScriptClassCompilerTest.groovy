@@ -21,9 +21,10 @@ import org.gradle.groovy.scripts.Script
 import org.gradle.groovy.scripts.ScriptSource
 import org.gradle.groovy.scripts.TestScript
 import org.gradle.groovy.scripts.Transformer
-import spock.lang.Specification
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
-class BuildScopeInMemoryCachingScriptClassCompilerTest extends Specification {
+class BuildScopeInMemoryCachingScriptClassCompilerTest extends ConcurrentSpec {
     private final ScriptClassCompiler target = Mock()
     private final CrossBuildInMemoryCachingScriptClassCache cache = Mock() {
         getOrCompile(_, _, _, _, _, _, _) >> { args ->
@@ -31,7 +32,8 @@ class BuildScopeInMemoryCachingScriptClassCompilerTest extends Specification {
             d.compile(source, classLoader, classLoaderId, operation, scriptBaseClass, verifier)
         }
     }
-    private final BuildScopeInMemoryCachingScriptClassCompiler compiler = new BuildScopeInMemoryCachingScriptClassCompiler(cache, target)
+    private final TestBuildOperationExecutor buildOperationExecutor = new TestBuildOperationExecutor()
+    private final BuildScopeInMemoryCachingScriptClassCompiler compiler = new BuildScopeInMemoryCachingScriptClassCompiler(cache, target, buildOperationExecutor)
     private final CompiledScript<?, ?> compiledScript = Mock(CompiledScript)
     private final String classpathClosureName = "buildscript"
     final verifier = Mock(Action)
@@ -64,8 +66,8 @@ class BuildScopeInMemoryCachingScriptClassCompilerTest extends Specification {
         compiler.compile(script2, parentClassLoader, classLoaderId, transformer, Script.class, verifier)
 
         then:
-        1 * target.compile(script1, parentClassLoader, classLoaderId, transformer, Script.class, verifier)
-        1 * target.compile(script2, parentClassLoader, classLoaderId, transformer, Script.class, verifier)
+        1 * target.compile(script1, parentClassLoader, classLoaderId, transformer, Script.class, verifier) >> compiledScript
+        1 * target.compile(script2, parentClassLoader, classLoaderId, transformer, Script.class, verifier) >> compiledScript
     }
 
     def "does not cache script class for different transformers"() {
@@ -80,8 +82,8 @@ class BuildScopeInMemoryCachingScriptClassCompilerTest extends Specification {
         compiler.compile(script2, parentClassLoader, classLoaderId, transformer2, Script.class, verifier)
 
         then:
-        1 * target.compile(script1, parentClassLoader, classLoaderId, transformer1, Script.class, verifier)
-        1 * target.compile(script2, parentClassLoader, classLoaderId, transformer2, Script.class, verifier)
+        1 * target.compile(script1, parentClassLoader, classLoaderId, transformer1, Script.class, verifier) >> compiledScript
+        1 * target.compile(script2, parentClassLoader, classLoaderId, transformer2, Script.class, verifier) >> compiledScript
     }
 
     def "does not cache script class for different classloaders"() {
@@ -96,8 +98,8 @@ class BuildScopeInMemoryCachingScriptClassCompilerTest extends Specification {
         compiler.compile(script2, parentClassLoader2, classLoaderId, transformer, Script.class, verifier)
 
         then:
-        1 * target.compile(script1, parentClassLoader1, classLoaderId, transformer, Script.class, verifier)
-        1 * target.compile(script2, parentClassLoader2, classLoaderId, transformer, Script.class, verifier)
+        1 * target.compile(script1, parentClassLoader1, classLoaderId, transformer, Script.class, verifier) >> compiledScript
+        1 * target.compile(script2, parentClassLoader2, classLoaderId, transformer, Script.class, verifier) >> compiledScript
     }
 
     def "does not cache script class for different base classes"() {
@@ -111,8 +113,62 @@ class BuildScopeInMemoryCachingScriptClassCompilerTest extends Specification {
         compiler.compile(script2, parentClassLoader, classLoaderId, transformer, TestScript.class, verifier)
 
         then:
-        1 * target.compile(script1, parentClassLoader, classLoaderId, transformer, Script.class, verifier)
-        1 * target.compile(script2, parentClassLoader, classLoaderId, transformer, TestScript.class, verifier)
+        1 * target.compile(script1, parentClassLoader, classLoaderId, transformer, Script.class, verifier) >> compiledScript
+        1 * target.compile(script2, parentClassLoader, classLoaderId, transformer, TestScript.class, verifier) >> compiledScript
+    }
+
+    def "loads a script once when it is requested by several threads at the same time"() {
+        ScriptSource script = scriptSource('script')
+        ClassLoader parentClassLoader = Mock()
+        CompileOperation<?> transformer = operation()
+        def results = [].asSynchronized()
+
+        when:
+        async {
+            start {
+                results << compiler.compile(script, parentClassLoader, classLoaderId, transformer, Script.class, verifier)
+            }
+            start {
+                thread.blockUntil.compiling
+                instant.requested
+                results << compiler.compile(script, parentClassLoader, classLoaderId, transformer, Script.class, verifier)
+            }
+        }
+
+        then:
+        1 * target.compile(script, parentClassLoader, classLoaderId, transformer, Script.class, verifier) >> {
+            instant.compiling
+            thread.blockUntil.requested
+            compiledScript
+        }
+        0 * target._
+        results == [compiledScript, compiledScript]
+    }
+
+    def "reports whether the classes of a previous build were reused"() {
+        ScriptSource script1 = scriptSource('script')
+        ScriptSource script2 = scriptSource('other')
+        ClassLoader parentClassLoader = Mock()
+        CompileOperation<?> transformer = operation()
+        def crossBuildCache = Mock(CrossBuildInMemoryCachingScriptClassCache)
+        def compiler = new BuildScopeInMemoryCachingScriptClassCompiler(crossBuildCache, target, buildOperationExecutor)
+
+        when:
+        compiler.compile(script1, parentClassLoader, classLoaderId, transformer, Script.class, verifier)
+        compiler.compile(script2, parentClassLoader, classLoaderId, transformer, Script.class, verifier)
+
+        then:
+        1 * crossBuildCache.getOrCompile(script1, _, _, _, _, _, _) >> compiledScript
+        1 * crossBuildCache.getOrCompile(script2, _, _, _, _, _, _) >> { args -> args[6].compile(script2, parentClassLoader, classLoaderId, transformer, Script.class, verifier) }
+        1 * target.compile(script2, parentClassLoader, classLoaderId, transformer, Script.class, verifier) >> compiledScript
+
+        and:
+        def operations = buildOperationExecutor.log.all(LoadScriptClassesBuildOperationType)
+        operations.size() == 2
+        operations[0].descriptor.details.className == 'script'
+        operations[0].result.reusedFromPreviousBuild
+        operations[1].descriptor.details.className == 'other'
+        !operations[1].result.reusedFromPreviousBuild
     }
 
     def scriptSource(String className = 'script') {
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.initialization
+
+import org.gradle.internal.hash.HashCode
+import spock.lang.Specification
+
+class ConfigurationInputsTest extends Specification {
+    def hash1 = HashCode.fromInt(1)
+    def hash2 = HashCode.fromInt(2)
+
+    def "reports no changes when inputs are the same"() {
+        def previous = new ConfigurationInputs.Builder().add("a", hash1).add("b", null).build()
+        def current = new ConfigurationInputs.Builder().add("a", hash1).add("b", null).build()
+
+        expect:
+        current.changesSince(previous).empty
+    }
+
+    def "reports each changed input"() {
+        def previous = new ConfigurationInputs.Builder().add("a", hash1).add("b", hash1).add("c", null).add("d", hash1).build()
+        def current = new ConfigurationInputs.Builder().add("a", hash1).add("b", hash2).add("c", hash1).add("e", hash1).build()
+
+        expect:
+        current.changesSince(previous) == [
+            "b has changed",
+            "c has changed",
+            "d has been removed",
+            "e has been added"
+        ]
+    }
+
+    def "reports inputs that cannot be hashed"() {
+        def previous = new ConfigurationInputs.Builder().add("a", hash1).addUnknown("b").build()
+        def current = new ConfigurationInputs.Builder().addUnknown("a").addUnknown("b").build()
+
+        expect:
+        current.changesSince(previous) == [
+            "a cannot be compared",
+            "b cannot be compared"
+        ]
+    }
+}
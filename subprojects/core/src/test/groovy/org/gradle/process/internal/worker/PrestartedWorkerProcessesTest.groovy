@@ -0,0 +1,332 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.worker
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.process.ExecResult
+import org.gradle.process.internal.ExecHandle
+import org.gradle.process.internal.ExecHandleBuilder
+import org.gradle.process.internal.ExecHandleFactory
+import org.gradle.process.internal.ExecHandleListener
+import org.gradle.process.internal.ExecHandleState
+import org.gradle.process.internal.health.memory.MemoryManager
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.test.fixtures.ConcurrentTestUtil.poll
+
+class PrestartedWorkerProcessesTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final executorFactory = new DefaultExecutorFactory()
+    final execHandleFactory = Mock(ExecHandleFactory)
+    final memoryManager = Mock(MemoryManager)
+    final started = []
+    def pool = new PrestartedWorkerProcesses(execHandleFactory, executorFactory, memoryManager, 2, 60000)
+
+    def setup() {
+        _ * execHandleFactory.newExec() >> { newBuilder() }
+    }
+
+    def cleanup() {
+        pool.stop()
+        executorFactory.stop()
+    }
+
+    def "uses requested process for a command line that has not been requested before"() {
+        def requested = handle("Worker 1")
+
+        expect:
+        pool.lease(requested, input("config")) == requested
+        started.empty
+    }
+
+    def "pre-starts a process when a command line is requested again and leases it to the next request"() {
+        pool.lease(handle("Worker 1"), input("config 1"))
+
+        when:
+        def second = handle("Worker 2")
+        def leased = pool.lease(second, input("config 2"))
+
+        then:
+        leased == second
+        poll { assert started.size() == 1 }
+
+        when:
+        def third = handle("Worker 3")
+        leased = pool.lease(third, input("config 3"))
+
+        then:
+        leased != third
+        leased.toString() == "Worker 3"
+        started[0].handle.arguments == ["-cp", "worker.jar", "Worker 2"]
+
+        when:
+        leased.start()
+
+        then:
+        started[0].stdin.text == "config 3"
+        poll { assert started.size() == 2 }
+    }
+
+    def "does not lease a process started with a different command line, environment or working directory"() {
+        pool.lease(handle("Worker 1"), input("config"))
+        pool.lease(handle("Worker 2"), input("config"))
+        poll { assert started.size() == 1 }
+
+        expect:
+        def otherArgs = handle("Worker 3", ["-Xmx1g"])
+        pool.lease(otherArgs, input("config")) == otherArgs
+        def otherEnv = handle("Worker 4", [], [VAR: "other"])
+        pool.lease(otherEnv, input("config")) == otherEnv
+        def otherDir = handle("Worker 5", [], [:], tmpDir.createDir("other"))
+        pool.lease(otherDir, input("config")) == otherDir
+    }
+
+    def "matches options files by content"() {
+        def options1 = tmpDir.file("options1.txt") << "-cp a.jar"
+        def options2 = tmpDir.file("options2.txt") << "-cp a.jar"
+        pool.lease(handle("Worker 1", ["@" + options1]), input("config"))
+        pool.lease(handle("Worker 2", ["@" + options1]), input("config"))
+        poll { assert started.size() == 1 }
+
+        when:
+        def requested = handle("Worker 3", ["@" + options2])
+
+        then:
+        pool.lease(requested, input("config")) != requested
+    }
+
+    def "discards a pre-started process as soon as it exits"() {
+        pool.lease(handle("Worker 1"), input("config"))
+        pool.lease(handle("Worker 2"), input("config"))
+        poll { assert started.size() == 1 }
+
+        when:
+        started[0].exit()
+
+        then:
+        started[0].aborted
+        started[0].stdin.read() == -1
+
+        and:
+        def requested = handle("Worker 3")
+        pool.lease(requested, input("config")) == requested
+    }
+
+    def "reports the exit of a leased process to listeners added after it exited"() {
+        def listener = Mock(ExecHandleListener)
+        pool.lease(handle("Worker 1"), input("config"))
+        pool.lease(handle("Worker 2"), input("config"))
+        poll { assert started.size() == 1 }
+        def leased = pool.lease(handle("Worker 3"), input("config"))
+
+        when:
+        def result = started[0].exit()
+        leased.addListener(listener)
+
+        then:
+        1 * listener.executionFinished(leased, result)
+        0 * listener._
+    }
+
+    def "reports the exit of a leased process to listeners added before it exited"() {
+        def listener = Mock(ExecHandleListener)
+        pool.lease(handle("Worker 1"), input("config"))
+        pool.lease(handle("Worker 2"), input("config"))
+        poll { assert started.size() == 1 }
+        def leased = pool.lease(handle("Worker 3"), input("config"))
+        leased.addListener(listener)
+
+        when:
+        leased.start()
+
+        then:
+        1 * listener.executionStarted(leased)
+        0 * listener._
+
+        when:
+        def result = started[0].exit()
+
+        then:
+        1 * listener.executionFinished(leased, result)
+        0 * listener._
+        !started[0].aborted
+    }
+
+    def "discards a pre-started process that is no longer running"() {
+        pool.lease(handle("Worker 1"), input("config"))
+        pool.lease(handle("Worker 2"), input("config"))
+        poll { assert started.size() == 1 }
+        started[0].state = ExecHandleState.FAILED
+
+        when:
+        def requested = handle("Worker 3")
+
+        then:
+        pool.lease(requested, input("config")) == requested
+        poll { assert started.size() == 2 }
+        started[0].aborted
+        started[0].stdin.read() == -1
+    }
+
+    def "stops a pre-started process that is idle for too long"() {
+        pool = new PrestartedWorkerProcesses(execHandleFactory, executorFactory, memoryManager, 2, 100)
+        pool.lease(handle("Worker 1"), input("config"))
+        pool.lease(handle("Worker 2"), input("config"))
+
+        expect:
+        poll { assert started.size() == 1 && started[0].aborted }
+        def requested = handle("Worker 3")
+        pool.lease(requested, input("config")) == requested
+    }
+
+    def "does not keep more idle processes than the maximum"() {
+        pool = new PrestartedWorkerProcesses(execHandleFactory, executorFactory, memoryManager, 1, 60000)
+        pool.lease(handle("Worker 1"), input("config"))
+        pool.lease(handle("Worker 2"), input("config"))
+        poll { assert started.size() == 1 }
+
+        when:
+        pool.lease(handle("Worker 3", ["-Xmx1g"]), input("config"))
+        pool.lease(handle("Worker 4", ["-Xmx1g"]), input("config"))
+        // Leasing the idle process makes room for one more, which is started after anything the previous requests asked for
+        pool.lease(handle("Worker 5"), input("config"))
+
+        then:
+        poll { assert started.size() == 2 }
+        started[1].handle.arguments == ["-cp", "worker.jar", "Worker 5"]
+    }
+
+    def "registers as a memory holder while enabled"() {
+        when:
+        def pool = new PrestartedWorkerProcesses(execHandleFactory, executorFactory, memoryManager, 1, 60000)
+
+        then:
+        1 * memoryManager.addMemoryHolder(_)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * memoryManager.removeMemoryHolder(pool)
+    }
+
+    def "stops the processes idle for the longest to release memory"() {
+        pool.lease(handle("Worker 1", ["-Xmx256m"]), input("config"))
+        pool.lease(handle("Worker 2", ["-Xmx256m"]), input("config"))
+        poll { assert started.size() == 1 }
+        pool.lease(handle("Worker 3", ["-Xmx512m"]), input("config"))
+        pool.lease(handle("Worker 4", ["-Xmx512m"]), input("config"))
+        poll { assert started.size() == 2 }
+
+        when:
+        def released = pool.attemptToRelease(100 * 1024 * 1024)
+
+        then:
+        released == 256 * 1024 * 1024
+        started[0].aborted
+        !started[1].aborted
+
+        when:
+        def requested = handle("Worker 5", ["-Xmx256m"])
+
+        then:
+        pool.lease(requested, input("config")) == requested
+    }
+
+    def "stops idle processes when stopped"() {
+        pool.lease(handle("Worker 1"), input("config"))
+        pool.lease(handle("Worker 2"), input("config"))
+        poll { assert started.size() == 1 }
+
+        when:
+        pool.stop()
+
+        then:
+        started[0].aborted
+        def requested = handle("Worker 3")
+        pool.lease(requested, input("config")) == requested
+    }
+
+    def "disabled pool returns requested process"() {
+        def pool = PrestartedWorkerProcesses.disabled()
+        def requested = handle("Worker 1")
+
+        expect:
+        pool.lease(requested, input("config")) == requested
+        pool.lease(requested, input("config")) == requested
+    }
+
+    private ExecHandle handle(String displayName, List<String> jvmArgs = [], Map<String, String> environment = [:], File dir = tmpDir.testDirectory) {
+        def handle = Stub(ExecHandle)
+        handle.command >> "java"
+        handle.arguments >> (jvmArgs + ["-cp", "worker.jar", displayName])
+        handle.environment >> ([PATH: "/bin"] + environment)
+        handle.directory >> dir
+        handle.toString() >> displayName
+        return handle
+    }
+
+    private static InputStream input(String text) {
+        return new ByteArrayInputStream(text.bytes)
+    }
+
+    private ExecHandleBuilder newBuilder() {
+        // Called from the pool's thread, so use coerced maps rather than mocks
+        def process = new PrestartedProcess()
+        ExecHandle handle = [
+            getArguments: { process.arguments },
+            addListener: { ExecHandleListener listener -> process.listener = listener },
+            start: {
+                synchronized (started) {
+                    started << process
+                }
+                process.handle
+            },
+            getState: { process.state },
+            abort: { process.aborted = true }
+        ] as ExecHandle
+        process.handle = handle
+        return [
+            setExecutable: { null },
+            setArgs: { List args -> process.arguments = args; null },
+            setEnvironment: { null },
+            setWorkingDir: { null },
+            setStandardInput: { InputStream stdin -> process.stdin = stdin; null },
+            build: { handle }
+        ] as ExecHandleBuilder
+    }
+
+    private static class PrestartedProcess {
+        ExecHandle handle
+        ExecHandleListener listener
+        List<String> arguments
+        InputStream stdin
+        volatile ExecHandleState state = ExecHandleState.STARTED
+        volatile boolean aborted
+
+        ExecResult exit() {
+            ExecResult result = [:] as ExecResult
+            state = ExecHandleState.SUCCEEDED
+            listener.executionFinished(handle, result)
+            return result
+        }
+    }
+}
@@ -131,6 +131,51 @@ class ParallelDownloadsIntegrationTest extends AbstractHttpDependencyResolutionT
         succeeds("resolve")
     }
 
+    def "downloads metadata for transitive dependencies of different modules in parallel"() {
+        def c = mavenRepo.module('test', 'c', '1.0').publish()
+        def d = mavenRepo.module('test', 'd', '1.0').publish()
+        def a = mavenRepo.module('test', 'a', '1.0').dependsOn(c).publish()
+        def b = mavenRepo.module('test', 'b', '1.0').dependsOn(d).publish()
+
+        buildFile << """
+            repositories {
+                maven { 
+                    url = uri('$server.uri')
+                    $authConfig
+                }
+            }
+            configurations { compile }
+            dependencies {
+                compile 'test:a:1.0'
+                compile 'test:b:1.0'
+            }
+            task resolve {
+                inputs.files configurations.compile
+                doLast {
+                    println configurations.compile.files
+                }
+            }
+"""
+
+        given:
+        server.expectConcurrent(
+            server.file(a.pom.path, a.pom.file),
+            server.file(b.pom.path, b.pom.file))
+        // Each of 'a' and 'b' has a single dependency, so these are only requested concurrently when the metadata for both is downloaded together
+        server.expectConcurrent(
+            server.file(c.pom.path, c.pom.file),
+            server.file(d.pom.path, d.pom.file))
+        server.expectConcurrent(
+            server.file(a.artifact.path, a.artifact.file),
+            server.file(b.artifact.path, b.artifact.file),
+            server.file(c.artifact.path, c.artifact.file),
+            server.file(d.artifact.path, d.artifact.file))
+
+        expect:
+        executer.withArguments('--max-workers', '4')
+        succeeds("resolve")
+    }
+
     def "parallel download honors max workers"() {
         def m1 = mavenRepo.module('test', 'test1', '1.0').publish()
         def m2 = mavenRepo.module('test', 'test2', '1.0').publish()
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.component.ArtifactType;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.nativeintegration.services.NativeServices;
+import org.gradle.internal.resource.local.FileResourceConnector;
+import org.gradle.internal.resource.local.FileResourceRepository;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the POMs of a synthetic 2,000 module Maven repository on the local file system. Every module inherits from the same
+ * parent POM and imports the same BOM, which is the case the {@link PomDocumentCache} is meant for.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class PomParsingBenchmark {
+    private static final int MODULES = 2000;
+    private static final int MANAGED_DEPENDENCIES = 400;
+    private static final int DEPENDENCIES_PER_MODULE = 5;
+    private static final String GROUP = "org.gradle.benchmark";
+    private static final String VERSION = "1.0";
+
+    @Param({"true", "false"})
+    boolean shareDocumentCache;
+
+    File repoDir;
+    List<File> modulePoms;
+    FileResourceRepository fileRepository;
+    ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    ModuleExclusions moduleExclusions;
+    DefaultVersionSelectorScheme versionSelectorScheme;
+    DescriptorParseContext parseContext;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        repoDir = Files.createTempDirectory("pom-parsing-benchmark").toFile();
+        NativeServices.initialize(repoDir);
+        fileRepository = new FileResourceConnector(FileSystems.getDefault());
+        moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory();
+        moduleExclusions = new ModuleExclusions(moduleIdentifierFactory);
+        versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator());
+        parseContext = new DescriptorParseContext() {
+            @Override
+            public LocallyAvailableExternalResource getMetaDataArtifact(ModuleComponentIdentifier componentIdentifier, ArtifactType artifactType) {
+                return fileRepository.resource(pomFile(componentIdentifier.getModule()));
+            }
+        };
+
+        writePom("parent", parentPom());
+        writePom("bom", bomPom());
+        modulePoms = new ArrayList<File>(MODULES);
+        for (int i = 0; i < MODULES; i++) {
+            modulePoms.add(writePom("module" + i, modulePom(i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        FileUtils.forceDelete(repoDir);
+    }
+
+    @Benchmark
+    public void parseModulePoms(Blackhole blackhole) {
+        GradlePomModuleDescriptorParser parser = createParser();
+        for (File pom : modulePoms) {
+            if (!shareDocumentCache) {
+                parser = createParser();
+            }
+            blackhole.consume(parser.parseMetaData(parseContext, pom, true));
+        }
+    }
+
+    private GradlePomModuleDescriptorParser createParser() {
+        return new GradlePomModuleDescriptorParser(versionSelectorScheme, moduleIdentifierFactory, moduleExclusions, fileRepository, new PomDocumentCache());
+    }
+
+    private File pomFile(String artifactId) {
+        return new File(repoDir, GROUP + "/" + artifactId + "/" + VERSION + "/" + artifactId + "-" + VERSION + ".pom");
+    }
+
+    private File writePom(String artifactId, String content) throws IOException {
+        File file = pomFile(artifactId);
+        FileUtils.writeStringToFile(file, content, Charset.forName("UTF-8"));
+        return file;
+    }
+
+    private static String parentPom() {
+        StringBuilder pom = new StringBuilder();
+        pom.append("<project><modelVersion>4.0.0</modelVersion>");
+        gav(pom, "parent").append("<packaging>pom</packaging><properties>");
+        for (int i = 0; i < MANAGED_DEPENDENCIES; i++) {
+            pom.append("<lib").append(i).append(".version>").append(i).append(".0</lib").append(i).append(".version>");
+        }
+        pom.append("</properties></project>");
+        return pom.toString();
+    }
+
+    private static String bomPom() {
+        StringBuilder pom = new StringBuilder();
+        pom.append("<project><modelVersion>4.0.0</modelVersion>");
+        pom.append("<parent><groupId>").append(GROUP).append("</groupId><artifactId>parent</artifactId><version>").append(VERSION).append("</version></parent>");
+        gav(pom, "bom").append("<packaging>pom</packaging><dependencyManagement><dependencies>");
+        for (int i = 0; i < MANAGED_DEPENDENCIES; i++) {
+            pom.append("<dependency><groupId>org.lib").append(i).append("</groupId><artifactId>lib").append(i)
+                .append("</artifactId><version>${lib").append(i).append(".version}</version></dependency>");
+        }
+        pom.append("</dependencies></dependencyManagement></project>");
+        return pom.toString();
+    }
+
+    private static String modulePom(int index) {
+        StringBuilder pom = new StringBuilder();
+        pom.append("<project><modelVersion>4.0.0</modelVersion>");
+        pom.append("<parent><groupId>").append(GROUP).append("</groupId><artifactId>parent</artifactId><version>").append(VERSION).append("</version></parent>");
+        gav(pom, "module" + index);
+        pom.append("<dependencyManagement><dependencies><dependency><groupId>").append(GROUP).append("</groupId><artifactId>bom</artifactId><version>")
+            .append(VERSION).append("</version><type>pom</type><scope>import</scope></dependency></dependencies></dependencyManagement>");
+        pom.append("<dependencies>");
+        for (int i = 0; i < DEPENDENCIES_PER_MODULE; i++) {
+            int lib = (index * DEPENDENCIES_PER_MODULE + i) % MANAGED_DEPENDENCIES;
+            pom.append("<dependency><groupId>org.lib").append(lib).append("</groupId><artifactId>lib").append(lib).append("</artifactId></dependency>");
+        }
+        if (index > 0) {
+            pom.append("<dependency><groupId>").append(GROUP).append("</groupId><artifactId>module").append(index - 1)
+                .append("</artifactId><version>").append(VERSION).append("</version></dependency>");
+        }
+        pom.append("</dependencies></project>");
+        return pom.toString();
+    }
+
+    private static StringBuilder gav(StringBuilder pom, String artifactId) {
+        return pom.append("<groupId>").append(GROUP).append("</groupId><artifactId>").append(artifactId).append("</artifactId><version>").append(VERSION).append("</version>");
+    }
+}
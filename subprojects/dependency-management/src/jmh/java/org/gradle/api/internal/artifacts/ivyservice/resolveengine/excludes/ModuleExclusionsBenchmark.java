@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
+
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.model.Exclude;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays the exclude operations that the dependency graph builder performs on a synthetic graph with heavy exclude use, like the graphs of Hadoop and Spark.
+ * Each module is reached through several incoming edges that declare up to a dozen excludes drawn from a shared pool of group, module and module id rules,
+ * with the occasional regular expression rule. As each incoming edge is added, the exclusions of the module are recalculated from all of its incoming
+ * edges and compared with those of the previous traversal, in the same way as the graph builder.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class ModuleExclusionsBenchmark {
+    private static final int MODULES = 1000;
+    private static final int INCOMING_EDGES = 8;
+    private static final int EXCLUDE_POOL = 80;
+    private static final int MAX_EXCLUDES_PER_EDGE = 12;
+    private static final String[] NO_CONFIGURATIONS = new String[0];
+
+    ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    int[][] parents;
+    List<List<List<Exclude>>> edgeExcludes;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory();
+        Random random = new Random(4711);
+
+        List<Exclude> pool = new ArrayList<Exclude>(EXCLUDE_POOL);
+        for (int i = 0; i < EXCLUDE_POOL; i++) {
+            int kind = random.nextInt(20);
+            if (kind < 8) {
+                pool.add(exclude("org.group" + i, "*", PatternMatchers.EXACT));
+            } else if (kind < 16) {
+                pool.add(exclude("org.group" + random.nextInt(EXCLUDE_POOL), "module" + i, PatternMatchers.EXACT));
+            } else if (kind < 19) {
+                pool.add(exclude("*", "module" + i, PatternMatchers.EXACT));
+            } else {
+                pool.add(exclude("org\\.group" + i + ".*", "*", "regexp"));
+            }
+        }
+
+        parents = new int[MODULES][];
+        edgeExcludes = new ArrayList<List<List<Exclude>>>(MODULES);
+        edgeExcludes.add(Collections.<List<Exclude>>emptyList());
+        parents[0] = new int[0];
+        for (int module = 1; module < MODULES; module++) {
+            int incoming = Math.min(module, 1 + random.nextInt(INCOMING_EDGES));
+            parents[module] = new int[incoming];
+            List<List<Exclude>> excludes = new ArrayList<List<Exclude>>(incoming);
+            for (int edge = 0; edge < incoming; edge++) {
+                parents[module][edge] = random.nextInt(module);
+                int count = random.nextInt(MAX_EXCLUDES_PER_EDGE + 1);
+                List<Exclude> edgeRules = new ArrayList<Exclude>(count);
+                for (int i = 0; i < count; i++) {
+                    edgeRules.add(pool.get(random.nextInt(EXCLUDE_POOL)));
+                }
+                excludes.add(edgeRules);
+            }
+            edgeExcludes.add(excludes);
+        }
+    }
+
+    @Benchmark
+    public void traverseGraph(Blackhole blackhole) {
+        ModuleExclusions moduleExclusions = new ModuleExclusions(moduleIdentifierFactory);
+        ModuleExclusion[] moduleFilters = new ModuleExclusion[MODULES];
+        moduleFilters[0] = ModuleExclusions.excludeNone();
+        for (int module = 1; module < MODULES; module++) {
+            // The filter of a module is recalculated from all of its incoming edges each time a new incoming edge is added
+            ModuleExclusion previous = null;
+            for (int added = 1; added <= parents[module].length; added++) {
+                ModuleExclusion filter = null;
+                for (int edge = 0; edge < added; edge++) {
+                    ModuleExclusion edgeFilter = moduleExclusions.intersect(moduleExclusions.excludeAny(edgeExcludes.get(module).get(edge)), moduleFilters[parents[module][edge]]);
+                    filter = filter == null ? edgeFilter : moduleExclusions.union(filter, edgeFilter);
+                }
+                filter = moduleExclusions.intersect(filter, ModuleExclusions.excludeNone());
+                if (previous != null) {
+                    blackhole.consume(previous.excludesSameModulesAs(filter));
+                }
+                previous = filter;
+            }
+            moduleFilters[module] = previous;
+        }
+        blackhole.consume(moduleFilters);
+    }
+
+    private Exclude exclude(String group, String module, String matcher) {
+        return new DefaultExclude(moduleIdentifierFactory.module(group, module), "*", "*", "*", NO_CONFIGURATIONS, matcher);
+    }
+}
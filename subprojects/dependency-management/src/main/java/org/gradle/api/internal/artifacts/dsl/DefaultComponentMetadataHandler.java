@@ -125,6 +125,10 @@ public class DefaultComponentMetadataHandler implements ComponentMetadataHandler
         return addRule(createSpecRuleActionForModule(id, ruleActionAdapter.createFromRuleSource(ComponentMetadataDetails.class, ruleSource)));
     }
 
+    public Set<SpecRuleAction<? super ComponentMetadataDetails>> getRules() {
+        return Collections.unmodifiableSet(rules);
+    }
+
     public ModuleComponentResolveMetadata processMetadata(ModuleComponentResolveMetadata metadata) {
         ModuleComponentResolveMetadata updatedMetadata;
         if (rules.isEmpty()) {
@@ -180,13 +184,17 @@ public class DefaultComponentMetadataHandler implements ComponentMetadataHandler
         }
     }
 
-    static class ComponentMetadataDetailsMatchingSpec implements Spec<ComponentMetadataDetails> {
+    public static class ComponentMetadataDetailsMatchingSpec implements Spec<ComponentMetadataDetails> {
         private ModuleIdentifier target;
 
         ComponentMetadataDetailsMatchingSpec(ModuleIdentifier target) {
             this.target = target;
         }
 
+        public ModuleIdentifier getTarget() {
+            return target;
+        }
+
         public boolean isSatisfiedBy(ComponentMetadataDetails componentMetadataDetails) {
             return componentMetadataDetails.getId().getGroup().equals(target.getGroup()) && componentMetadataDetails.getId().getName().equals(target.getName());
         }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.internal.hash.HashCode;
+
+/**
+ * Remembers the inputs of the dependency graphs resolved by earlier builds that used this Gradle user home.
+ * Lives for as long as the process, so that a build run by the daemon can tell whether a graph could have been reused.
+ */
+public class ResolvedGraphHistory {
+    private static final int MAX_ENTRIES = 10000;
+
+    private final Cache<HashCode, Boolean> resolved = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+
+    /**
+     * Records that a graph with the given inputs has been resolved.
+     *
+     * @return true if a graph with the same inputs was resolved before.
+     */
+    public boolean recordResolved(HashCode inputs) {
+        return resolved.asMap().putIfAbsent(inputs, Boolean.TRUE) != null;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts, for the current build, how many resolved dependency graphs had the same inputs as a graph resolved by an earlier build.
+ * The counts are reported when the build finishes.
+ */
+public class ResolvedGraphReuseTracker implements Stoppable {
+
+    public final static String TOGGLE_PROPERTY = "org.gradle.resolution.reportReusableGraphs";
+
+    private final static Logger LOG = Logging.getLogger(ResolvedGraphReuseTracker.class);
+
+    private final ResolvedGraphHistory history;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger ineligible = new AtomicInteger();
+
+    public ResolvedGraphReuseTracker(ResolvedGraphHistory history) {
+        this.history = history;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE_PROPERTY);
+    }
+
+    /**
+     * Records the resolution of a graph with the given inputs, or with inputs that cannot be fingerprinted when null.
+     */
+    public void resolved(@Nullable HashCode inputs) {
+        if (inputs == null) {
+            ineligible.incrementAndGet();
+        } else if (history.recordResolved(inputs)) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int getIneligible() {
+        return ineligible.get();
+    }
+
+    @Override
+    public void stop() {
+        int total = hits.get() + misses.get() + ineligible.get();
+        if (total > 0) {
+            LOG.lifecycle("Resolved {} dependency graph(s): {} hit(s) with inputs unchanged since an earlier build, {} miss(es), {} not eligible.", total, hits.get(), misses.get(), ineligible.get());
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ResolveException;
+import org.gradle.api.artifacts.dsl.RepositoryHandler;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.internal.ClosureBackedAction;
+import org.gradle.api.internal.artifacts.ComponentMetadataProcessor;
+import org.gradle.api.internal.artifacts.ConfigurationResolver;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.ResolverResults;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dsl.ComponentModuleMetadataContainer;
+import org.gradle.api.internal.artifacts.dsl.DefaultComponentMetadataHandler;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.repositories.RepositoryDescriptor;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.attributes.AttributeContainerInternal;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.rules.ClosureBackedRuleAction;
+import org.gradle.internal.rules.NoInputsRuleAction;
+import org.gradle.internal.rules.RuleAction;
+import org.gradle.internal.rules.RuleSourceBackedRuleAction;
+import org.gradle.internal.rules.SpecRuleAction;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fingerprints the inputs of each resolved dependency graph, so that the builds can report how many graphs could have been reused from an earlier build.
+ *
+ * <p>The fingerprint covers the configuration identity and attributes, the declared dependencies and excludes, the resolution strategy
+ * including component selection rules, the component metadata rules and module replacements, the repository descriptors and the
+ * offline flag. Rules are identified by their implementation class and the hash of its classloader, which changes with the script
+ * that declares them.</p>
+ *
+ * <p>Graphs whose result may differ with the same inputs are not eligible: those with dynamic, changing or snapshot versions anywhere
+ * in the graph, those with failed dependencies, those with project, file or client module dependencies, those using dependency
+ * substitution rules or local repositories, and those using rules whose implementation cannot be hashed. The metadata of the remaining
+ * fixed versions from remote repositories is cached forever, so the cached-metadata state does not need to be part of the key.</p>
+ */
+public class ReuseTrackingConfigurationResolver implements ConfigurationResolver {
+    private final ConfigurationResolver delegate;
+    private final UnstableGraphDetectingDependencyResolver unstableGraphDetector;
+    private final RepositoryHandler repositories;
+    private final GlobalDependencyResolutionRules metadataHandler;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final StartParameter startParameter;
+    private final ResolvedGraphReuseTracker tracker;
+
+    public ReuseTrackingConfigurationResolver(ConfigurationResolver delegate, UnstableGraphDetectingDependencyResolver unstableGraphDetector, RepositoryHandler repositories,
+                                              GlobalDependencyResolutionRules metadataHandler, VersionSelectorScheme versionSelectorScheme,
+                                              ClassLoaderHierarchyHasher classLoaderHierarchyHasher, StartParameter startParameter, ResolvedGraphReuseTracker tracker) {
+        this.delegate = delegate;
+        this.unstableGraphDetector = unstableGraphDetector;
+        this.repositories = repositories;
+        this.metadataHandler = metadataHandler;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+        this.startParameter = startParameter;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public void resolveBuildDependencies(ConfigurationInternal configuration, ResolverResults result) {
+        try {
+            delegate.resolveBuildDependencies(configuration, result);
+        } finally {
+            unstableGraphDetector.takeUnstable(configuration);
+        }
+    }
+
+    @Override
+    public void resolveGraph(ConfigurationInternal configuration, ResolverResults results) throws ResolveException {
+        HashCode inputs = fingerprint(configuration);
+        boolean unstable;
+        try {
+            delegate.resolveGraph(configuration, results);
+        } finally {
+            unstable = unstableGraphDetector.takeUnstable(configuration);
+        }
+        tracker.resolved(unstable || results.hasError() ? null : inputs);
+    }
+
+    @Override
+    public void resolveArtifacts(ConfigurationInternal configuration, ResolverResults results) throws ResolveException {
+        delegate.resolveArtifacts(configuration, results);
+    }
+
+    @Nullable
+    HashCode fingerprint(ConfigurationInternal configuration) {
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (startParameter.isRefreshDependencies()
+            || resolutionStrategy.getDependencySubstitution().hasRules()
+            || metadataHandler.getDependencySubstitutionRules().hasRules()) {
+            return null;
+        }
+
+        Hasher hasher = Hashing.md5().newHasher();
+        putString(hasher, configuration.getIdentityPath().toString());
+        Module module = configuration.getModule();
+        putString(hasher, module.getGroup());
+        putString(hasher, module.getName());
+        putString(hasher, module.getVersion());
+        putAttributes(hasher, configuration.getAttributes());
+        hasher.putBoolean(configuration.isTransitive());
+        for (Configuration inherited : configuration.getHierarchy()) {
+            hasher.putInt(inherited.getExcludeRules().size());
+            for (ExcludeRule excludeRule : inherited.getExcludeRules()) {
+                putExcludeRule(hasher, excludeRule);
+            }
+        }
+
+        hasher.putInt(configuration.getAllDependencies().size());
+        for (Dependency dependency : configuration.getAllDependencies()) {
+            if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule) {
+                return null;
+            }
+            ExternalModuleDependency moduleDependency = (ExternalModuleDependency) dependency;
+            String version = moduleDependency.getVersion();
+            if (version == null || moduleDependency.isChanging() || UnstableGraphDetectingDependencyResolver.isSnapshot(version) || versionSelectorScheme.parseSelector(version).isDynamic()) {
+                return null;
+            }
+            putString(hasher, moduleDependency.getGroup());
+            putString(hasher, moduleDependency.getName());
+            putString(hasher, version);
+            putString(hasher, moduleDependency.getTargetConfiguration());
+            hasher.putBoolean(moduleDependency.isTransitive());
+            hasher.putBoolean(moduleDependency.isForce());
+            hasher.putInt(moduleDependency.getExcludeRules().size());
+            for (ExcludeRule excludeRule : moduleDependency.getExcludeRules()) {
+                putExcludeRule(hasher, excludeRule);
+            }
+            hasher.putInt(moduleDependency.getArtifacts().size());
+            for (DependencyArtifact artifact : moduleDependency.getArtifacts()) {
+                putString(hasher, artifact.getName());
+                putString(hasher, artifact.getType());
+                putString(hasher, artifact.getExtension());
+                putString(hasher, artifact.getClassifier());
+                putString(hasher, artifact.getUrl());
+            }
+        }
+
+        hasher.putInt(resolutionStrategy.getForcedModules().size());
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            putString(hasher, forcedModule.getGroup());
+            putString(hasher, forcedModule.getName());
+            putString(hasher, forcedModule.getVersion());
+        }
+        putString(hasher, resolutionStrategy.getConflictResolution().name());
+        if (!putRules(hasher, resolutionStrategy.getComponentSelection().getRules())
+            || !putComponentMetadataRules(hasher, metadataHandler.getComponentMetadataProcessor())
+            || !putModuleReplacements(hasher, metadataHandler.getModuleMetadataProcessor().getModuleReplacements())) {
+            return null;
+        }
+
+        hasher.putInt(repositories.size());
+        for (Object repository : repositories) {
+            RepositoryDescriptor descriptor = ((ResolutionAwareRepository) repository).getDescriptor();
+            if (descriptor.isLocal()) {
+                return null;
+            }
+            putString(hasher, descriptor.getType());
+            putString(hasher, descriptor.getName());
+            hasher.putInt(descriptor.getProperties().size());
+            for (Map.Entry<String, String> property : descriptor.getProperties().entrySet()) {
+                putString(hasher, property.getKey());
+                putString(hasher, property.getValue());
+            }
+        }
+        hasher.putBoolean(startParameter.isOffline());
+        return hasher.hash();
+    }
+
+    private boolean putComponentMetadataRules(Hasher hasher, ComponentMetadataProcessor processor) {
+        if (processor == ComponentMetadataProcessor.NO_OP) {
+            hasher.putInt(0);
+            return true;
+        }
+        return processor instanceof DefaultComponentMetadataHandler && putRules(hasher, ((DefaultComponentMetadataHandler) processor).getRules());
+    }
+
+    private static boolean putModuleReplacements(Hasher hasher, ModuleReplacementsData replacements) {
+        if (replacements == ModuleReplacementsData.NO_OP) {
+            hasher.putInt(0);
+            return true;
+        }
+        if (!(replacements instanceof ComponentModuleMetadataContainer)) {
+            return false;
+        }
+        Map<String, String> sorted = new TreeMap<String, String>();
+        for (Map.Entry<ModuleIdentifier, ModuleIdentifier> entry : ((ComponentModuleMetadataContainer) replacements).getReplacements().entrySet()) {
+            sorted.put(entry.getKey().toString(), entry.getValue().toString());
+        }
+        hasher.putInt(sorted.size());
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            putString(hasher, entry.getKey());
+            putString(hasher, entry.getValue());
+        }
+        return true;
+    }
+
+    private <T> boolean putRules(Hasher hasher, Collection<? extends SpecRuleAction<? super T>> rules) {
+        hasher.putInt(rules.size());
+        for (SpecRuleAction<? super T> rule : rules) {
+            if (!putSpec(hasher, rule.getSpec()) || !putImplementation(hasher, ruleImplementation(rule.getAction()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean putSpec(Hasher hasher, Spec<?> spec) {
+        if (spec instanceof DefaultComponentMetadataHandler.ComponentMetadataDetailsMatchingSpec) {
+            putString(hasher, ((DefaultComponentMetadataHandler.ComponentMetadataDetailsMatchingSpec) spec).getTarget().toString());
+            return true;
+        }
+        return putImplementation(hasher, spec);
+    }
+
+    /**
+     * Identifies user code by its class and the hash of its classloader. Returns false when the classloader cannot be hashed.
+     */
+    private boolean putImplementation(Hasher hasher, Object implementation) {
+        Class<?> type = implementation.getClass();
+        putString(hasher, type.getName());
+        if (type.getClassLoader() == null) {
+            return true;
+        }
+        HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(type.getClassLoader());
+        if (classLoaderHash == null) {
+            return false;
+        }
+        hasher.putHash(classLoaderHash);
+        return true;
+    }
+
+    private static Object ruleImplementation(RuleAction<?> ruleAction) {
+        if (ruleAction instanceof ClosureBackedRuleAction) {
+            return ((ClosureBackedRuleAction<?>) ruleAction).getClosure();
+        }
+        if (ruleAction instanceof RuleSourceBackedRuleAction) {
+            return ((RuleSourceBackedRuleAction<?, ?>) ruleAction).getInstance();
+        }
+        if (ruleAction instanceof NoInputsRuleAction) {
+            Action<?> action = ((NoInputsRuleAction<?>) ruleAction).getAction();
+            return action instanceof ClosureBackedAction ? ((ClosureBackedAction<?>) action).getClosure() : action;
+        }
+        return ruleAction;
+    }
+
+    private static void putAttributes(Hasher hasher, AttributeContainerInternal attributes) {
+        Map<String, Object> sorted = new TreeMap<String, Object>();
+        for (Attribute<?> attribute : attributes.keySet()) {
+            sorted.put(attribute.getName(), attributes.getAttribute(attribute));
+        }
+        hasher.putInt(sorted.size());
+        for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+            putString(hasher, entry.getKey());
+            putString(hasher, String.valueOf(entry.getValue()));
+        }
+    }
+
+    private static void putExcludeRule(Hasher hasher, ExcludeRule excludeRule) {
+        putString(hasher, excludeRule.getGroup());
+        putString(hasher, excludeRule.getModule());
+    }
+
+    private static void putString(Hasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putBoolean(false);
+        } else {
+            hasher.putBoolean(true);
+            hasher.putInt(value.length());
+            hasher.putString(value);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.artifacts.type.ArtifactTypeRegistry;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records, for each resolved graph, whether any of its nodes may resolve differently with the same declared inputs: changing or snapshot
+ * components, dynamic, missing or snapshot versions anywhere in the graph, and failed dependencies.
+ */
+public class UnstableGraphDetectingDependencyResolver implements ArtifactDependencyResolver {
+    private final ArtifactDependencyResolver delegate;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ConcurrentMap<ResolveContext, Boolean> unstableGraphs = new ConcurrentHashMap<ResolveContext, Boolean>();
+
+    public UnstableGraphDetectingDependencyResolver(ArtifactDependencyResolver delegate, VersionSelectorScheme versionSelectorScheme) {
+        this.delegate = delegate;
+        this.versionSelectorScheme = versionSelectorScheme;
+    }
+
+    @Override
+    public void resolve(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler, Spec<? super DependencyMetadata> edgeFilter, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor, AttributesSchemaInternal consumerSchema, ArtifactTypeRegistry artifactTypeRegistry) {
+        UnstableNodesVisitor unstableNodesVisitor = new UnstableNodesVisitor();
+        delegate.resolve(resolveContext, repositories, metadataHandler, edgeFilter, new CompositeDependencyGraphVisitor(graphVisitor, unstableNodesVisitor), artifactsVisitor, consumerSchema, artifactTypeRegistry);
+        unstableGraphs.put(resolveContext, unstableNodesVisitor.unstable);
+    }
+
+    /**
+     * Returns whether the most recently resolved graph of the given context may resolve differently with the same inputs, and forgets about it.
+     * A context that was not resolved is considered unstable.
+     */
+    public boolean takeUnstable(ResolveContext resolveContext) {
+        Boolean unstable = unstableGraphs.remove(resolveContext);
+        return unstable == null || unstable;
+    }
+
+    static boolean isSnapshot(@Nullable String version) {
+        return version != null && version.endsWith("-SNAPSHOT");
+    }
+
+    private class UnstableNodesVisitor implements DependencyGraphVisitor {
+        private boolean unstable;
+
+        @Override
+        public void start(DependencyGraphNode root) {
+        }
+
+        @Override
+        public void visitNode(DependencyGraphNode node) {
+            if (node.isRoot()) {
+                return;
+            }
+            ComponentResolveMetadata metadata = node.getOwner().getMetadata();
+            if (metadata == null || metadata.isChanging() || isSnapshot(metadata.getId().getVersion())) {
+                unstable = true;
+            }
+        }
+
+        @Override
+        public void visitSelector(DependencyGraphSelector selector) {
+            ComponentSelector requested = selector.getRequested();
+            if (requested instanceof ModuleComponentSelector) {
+                String version = ((ModuleComponentSelector) requested).getVersion();
+                if (version == null || version.length() == 0 || isSnapshot(version) || versionSelectorScheme.parseSelector(version).isDynamic()) {
+                    unstable = true;
+                }
+            }
+        }
+
+        @Override
+        public void visitEdges(DependencyGraphNode node) {
+            for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                if (edge.getFailure() != null) {
+                    unstable = true;
+                }
+            }
+        }
+
+        @Override
+        public void finish(DependencyGraphNode root) {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+import org.w3c.dom.Document;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps the parsed documents of parent and imported POMs for the duration of a build, keyed by the hash of their content,
+ * so that a parent or BOM shared by many modules is parsed only once.
+ *
+ * Each caller receives its own deep copy of the cached document, as DOM instances are not safe to read concurrently and
+ * {@link PomReader} may normalize parts of the document it reads.
+ */
+public class PomDocumentCache {
+    private final Cache<HashValue, Document> documents = CacheBuilder.newBuilder().softValues().build();
+
+    public Document getDocument(LocallyAvailableExternalResource resource, final Factory<Document> parser) {
+        Document document;
+        try {
+            document = documents.get(HashUtil.sha1(resource.getFile()), new Callable<Document>() {
+                @Override
+                public Document call() {
+                    return parser.create();
+                }
+            });
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+        synchronized (document) {
+            return (Document) document.cloneNode(true);
+        }
+    }
+}
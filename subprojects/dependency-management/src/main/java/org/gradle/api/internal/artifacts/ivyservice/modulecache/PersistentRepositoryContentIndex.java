@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+
+/**
+ * Uses the missing module entries of the persistent module meta-data cache as the index. Those entries are written, one per repository and module version,
+ * when a repository is found not to contain a module.
+ */
+public class PersistentRepositoryContentIndex implements RepositoryContentIndex {
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.repositoryContentIndex";
+
+    private final ModuleMetaDataCache moduleMetaDataCache;
+
+    public PersistentRepositoryContentIndex(ModuleMetaDataCache moduleMetaDataCache) {
+        this.moduleMetaDataCache = moduleMetaDataCache;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE_PROPERTY);
+    }
+
+    @Override
+    public boolean isKnownMissing(ModuleComponentRepository repository, ModuleComponentIdentifier component, CachePolicy cachePolicy) {
+        ModuleMetaDataCache.CachedMetaData cachedMetaData = moduleMetaDataCache.getCachedModuleDescriptor(repository, component);
+        return cachedMetaData != null && cachedMetaData.isMissing() && !cachePolicy.mustRefreshMissingModule(component, cachedMetaData.getAgeMillis());
+    }
+}
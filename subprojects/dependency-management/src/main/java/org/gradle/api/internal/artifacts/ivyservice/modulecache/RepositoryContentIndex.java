@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+
+/**
+ * Knows which repositories are recorded as not containing a given module version, so that they do not need to be searched for it again.
+ */
+public interface RepositoryContentIndex {
+    RepositoryContentIndex NONE = new RepositoryContentIndex() {
+        @Override
+        public boolean isKnownMissing(ModuleComponentRepository repository, ModuleComponentIdentifier component, CachePolicy cachePolicy) {
+            return false;
+        }
+    };
+
+    /**
+     * Returns true when the repository has been recorded as not containing the given component, and that record has not expired according to the given cache policy.
+     */
+    boolean isKnownMissing(ModuleComponentRepository repository, ModuleComponentIdentifier component, CachePolicy cachePolicy);
+}
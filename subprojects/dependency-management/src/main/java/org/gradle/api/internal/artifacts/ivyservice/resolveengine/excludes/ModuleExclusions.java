@@ -31,6 +31,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.AbstractModuleExclusion.isWildcard;
 
@@ -48,6 +49,9 @@ import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.exclude
  * <ul> <li>When a module dependency has multiple exclusions, then the resulting exclusion is the _intersection_ of those exclusions (module is excluded if excluded by _any_).</li> <li>When a module
  * is depended on via a transitive path, then the resulting exclusion is the _intersection_ of the exclusions on each leg of the path (module is excluded if excluded by _any_).</li> <li>When a module
  * is depended on via multiple paths in the graph, then the resulting exclusion is the _union_ of the exclusions on each of those paths (module is excluded if excluded by _all_).</li> </ul>
+ *
+ * <p>Every spec created by this class is interned, so that specs that are equal are also identical. This lets the results of {@link #intersect} and {@link #union} be cached by the identity
+ * of their operands, and makes the identity check in {@link ModuleExclusion#excludesSameModulesAs} succeed for equal specs without comparing their structure.</p>
  */
 public class ModuleExclusions {
     private static final ExcludeNone EXCLUDE_NONE = new ExcludeNone();
@@ -61,6 +65,9 @@ public class ModuleExclusions {
     private final Map<Set<AbstractModuleExclusion>, ImmutableModuleExclusionSet> exclusionSetCache = Maps.newConcurrentMap();
     private final Map<AbstractModuleExclusion[], Map<AbstractModuleExclusion[], MergeOperation>> mergeOperationCache = Maps.newIdentityHashMap();
     private final Object mergeOperationLock = new Object();
+    private final ConcurrentMap<AbstractModuleExclusion, AbstractModuleExclusion> internedExclusions = Maps.newConcurrentMap();
+    private final Map<ExclusionPair, ModuleExclusion> intersectCache = Maps.newConcurrentMap();
+    private final Map<ExclusionPair, ModuleExclusion> unionCache = Maps.newConcurrentMap();
 
     public ModuleExclusions(ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
         this.moduleIdentifierFactory = moduleIdentifierFactory;
@@ -128,9 +135,9 @@ public class ModuleExclusions {
         }
         Set<AbstractModuleExclusion> exclusions = Sets.newHashSetWithExpectedSize(excludes.size());
         for (Exclude exclude : excludes) {
-            exclusions.add(forExclude(exclude));
+            exclusions.add(intern(forExclude(exclude)));
         }
-        exclusion = new IntersectionExclusion(asImmutable(exclusions));
+        exclusion = intern(new IntersectionExclusion(asImmutable(exclusions)));
         excludeAnyCache.put(excludes, exclusion);
         return exclusion;
     }
@@ -186,12 +193,20 @@ public class ModuleExclusions {
             return two;
         }
 
+        ExclusionPair operands = new ExclusionPair(one, two);
+        ModuleExclusion cached = intersectCache.get(operands);
+        if (cached != null) {
+            return cached;
+        }
+
         Set<AbstractModuleExclusion> builder = Sets.newHashSet();
 
         ((AbstractModuleExclusion) one).unpackIntersection(builder);
         ((AbstractModuleExclusion) two).unpackIntersection(builder);
 
-        return new IntersectionExclusion(asImmutable(builder));
+        ModuleExclusion intersection = intern(new IntersectionExclusion(asImmutable(builder)));
+        intersectCache.put(operands, intersection);
+        return intersection;
     }
 
     /**
@@ -208,6 +223,17 @@ public class ModuleExclusions {
             return one;
         }
 
+        ExclusionPair operands = new ExclusionPair(one, two);
+        ModuleExclusion cached = unionCache.get(operands);
+        if (cached != null) {
+            return cached;
+        }
+        ModuleExclusion union = doUnion(one, two);
+        unionCache.put(operands, union);
+        return union;
+    }
+
+    private ModuleExclusion doUnion(ModuleExclusion one, ModuleExclusion two) {
         List<AbstractModuleExclusion> specs = new ArrayList<AbstractModuleExclusion>();
         ((AbstractModuleExclusion) one).unpackUnion(specs);
         ((AbstractModuleExclusion) two).unpackUnion(specs);
@@ -232,7 +258,15 @@ public class ModuleExclusions {
         if (specs.size() == 1) {
             return specs.get(0);
         }
-        return new UnionExclusion(specs);
+        return intern(new UnionExclusion(specs));
+    }
+
+    /**
+     * Returns the canonical instance of the given spec.
+     */
+    private AbstractModuleExclusion intern(AbstractModuleExclusion exclusion) {
+        AbstractModuleExclusion interned = internedExclusions.putIfAbsent(exclusion, exclusion);
+        return interned == null ? exclusion : interned;
     }
 
     /**
@@ -306,7 +340,7 @@ public class ModuleExclusions {
         if (merged.isEmpty()) {
             exclusion = ModuleExclusions.EXCLUDE_NONE;
         } else {
-            exclusion = new IntersectionExclusion(asImmutable(merged));
+            exclusion = intern(new IntersectionExclusion(asImmutable(merged)));
         }
         mergeCache.put(merge, exclusion);
         return exclusion;
@@ -365,7 +399,7 @@ public class ModuleExclusions {
         } else if (spec2 instanceof ModuleNameExcludeSpec) {
             // Intersection of group & module name exclude only excludes module with matching group + name
             ModuleNameExcludeSpec moduleNameExcludeSpec = (ModuleNameExcludeSpec) spec2;
-            merged.add(new ModuleIdExcludeSpec(moduleIdentifierFactory.module(spec1.group, moduleNameExcludeSpec.module)));
+            merged.add(intern(new ModuleIdExcludeSpec(moduleIdentifierFactory.module(spec1.group, moduleNameExcludeSpec.module))));
         } else if (spec2 instanceof ModuleIdExcludeSpec) {
             // Intersection of group + module id exclude only excludes the module id if the excluded groups match
             ModuleIdExcludeSpec moduleIdExcludeSpec = (ModuleIdExcludeSpec) spec2;
@@ -430,6 +464,38 @@ public class ModuleExclusions {
         }
     }
 
+    /**
+     * The operands of an operation on interned specs, compared by identity. The order is significant, as a union keeps the order of its operands.
+     */
+    private static final class ExclusionPair {
+        private final ModuleExclusion one;
+        private final ModuleExclusion two;
+        private final int hashCode;
+
+        private ExclusionPair(ModuleExclusion one, ModuleExclusion two) {
+            this.one = one;
+            this.two = two;
+            this.hashCode = 31 * one.hashCode() + two.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ExclusionPair that = (ExclusionPair) o;
+            return one == that.one && two == that.two;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     private static final class MergeSet extends HashSet<AbstractModuleExclusion> {
         private final BitSet remaining;
         private int idx;
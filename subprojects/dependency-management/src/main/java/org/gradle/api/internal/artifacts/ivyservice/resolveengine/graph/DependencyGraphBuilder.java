@@ -132,20 +132,17 @@ public class DependencyGraphBuilder {
     private void traverseGraph(final ResolveState resolveState) {
         resolveState.onMoreSelected(resolveState.root);
         final List<EdgeState> dependencies = Lists.newArrayList();
-        final List<EdgeState> dependenciesMissingLocalMetadata = Lists.newArrayList();
+        final List<ComponentState> componentsMissingLocalMetadata = Lists.newArrayList();
         final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache = Maps.newHashMap();
 
         while (resolveState.peek() != null || conflictHandler.hasConflicts()) {
             if (resolveState.peek() != null) {
-                final NodeState node = resolveState.pop();
-                LOGGER.debug("Visiting configuration {}.", node);
-
-                // Calculate the outgoing edges of this configuration
+                // Calculate the outgoing edges of the queued configurations
                 dependencies.clear();
-                dependenciesMissingLocalMetadata.clear();
-                node.visitOutgoingDependencies(dependencies);
+                componentsMissingLocalMetadata.clear();
+                int visited = visitQueuedNodes(dependencies, resolveState);
 
-                resolveEdges(node, dependencies, dependenciesMissingLocalMetadata, resolveState, componentIdentifierCache);
+                resolveEdges(visited, dependencies, componentsMissingLocalMetadata, resolveState, componentIdentifierCache);
 
             } else {
                 // We have some batched up conflicts. Resolve the first, and continue traversing the graph
@@ -155,6 +152,30 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Visits the configurations currently in the queue, calculating their outgoing edges and selecting the target of each edge, so that the
+     * metadata for the targets of all of these edges can be downloaded together. Stops early when selecting a target queues a configuration
+     * to be visited first, so that the configurations are visited in the same order as when they are visited one at a time.
+     *
+     * @return the number of configurations visited
+     */
+    private int visitQueuedNodes(List<EdgeState> dependencies, ResolveState resolveState) {
+        List<NodeState> queued = resolveState.getQueued();
+        int visited = 0;
+        for (NodeState expected : queued) {
+            if (resolveState.peek() != expected) {
+                break;
+            }
+            NodeState node = resolveState.pop();
+            LOGGER.debug("Visiting configuration {}.", node);
+            int first = dependencies.size();
+            node.visitOutgoingDependencies(dependencies);
+            performSelectionSerially(dependencies.subList(first, dependencies.size()), resolveState);
+            visited++;
+        }
+        return visited;
+    }
+
     private void performSelection(final ResolveState resolveState, ComponentState moduleRevision) {
         ModuleIdentifier moduleId = moduleRevision.id.getModule();
 
@@ -179,17 +200,16 @@ public class DependencyGraphBuilder {
         }
     }
 
-    private void resolveEdges(final NodeState node,
+    private void resolveEdges(int nodeCount,
                               final List<EdgeState> dependencies,
-                              final List<EdgeState> dependenciesMissingMetadataLocally,
+                              final List<ComponentState> componentsMissingMetadataLocally,
                               final ResolveState resolveState,
                               final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
         if (dependencies.isEmpty()) {
             return;
         }
-        performSelectionSerially(dependencies, resolveState);
-        computePreemptiveDownloadList(dependencies, dependenciesMissingMetadataLocally, componentIdentifierCache);
-        downloadMetadataConcurrently(node, dependenciesMissingMetadataLocally);
+        computePreemptiveDownloadList(dependencies, componentsMissingMetadataLocally, componentIdentifierCache);
+        downloadMetadataConcurrently(nodeCount, componentsMissingMetadataLocally);
         attachToTargetRevisionsSerially(dependencies);
 
     }
@@ -205,16 +225,16 @@ public class DependencyGraphBuilder {
         }
     }
 
-    private void downloadMetadataConcurrently(NodeState node, final List<EdgeState> dependencies) {
-        if (dependencies.isEmpty()) {
+    private void downloadMetadataConcurrently(int nodeCount, final List<ComponentState> components) {
+        if (components.isEmpty()) {
             return;
         }
-        LOGGER.debug("Submitting {} metadata files to resolve in parallel for {}", dependencies.size(), node);
+        LOGGER.debug("Submitting {} metadata files to resolve in parallel for {} configurations", components.size(), nodeCount);
         buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
             @Override
             public void execute(BuildOperationQueue<RunnableBuildOperation> buildOperationQueue) {
-                for (final EdgeState dependency : dependencies) {
-                    buildOperationQueue.add(new DownloadMetadataOperation(dependency.targetModuleRevision));
+                for (final ComponentState component : components) {
+                    buildOperationQueue.add(new DownloadMetadataOperation(component));
                 }
             }
         });
@@ -235,20 +255,21 @@ public class DependencyGraphBuilder {
      * metadata. Determining this requires calls to `resolveModuleRevisionId`, which will *not* trigger metadata download.
      *
      * @param dependencies the dependencies to be resolved
-     * @param dependenciesToBeResolvedInParallel output, edges which will need parallel metadata download
+     * @param componentsToBeResolvedInParallel output, the target components which will need parallel metadata download, each listed once
      */
-    private void computePreemptiveDownloadList(List<EdgeState> dependencies, List<EdgeState> dependenciesToBeResolvedInParallel, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
+    private void computePreemptiveDownloadList(List<EdgeState> dependencies, List<ComponentState> componentsToBeResolvedInParallel, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
+        Set<ComponentState> seen = Sets.newHashSet();
         for (EdgeState dependency : dependencies) {
             ComponentState state = dependency.targetModuleRevision;
-            if (state != null && !state.fastResolve() && performPreemptiveDownload(state.state)) {
+            if (state != null && !state.fastResolve() && performPreemptiveDownload(state.state) && seen.add(state)) {
                 if (!metaDataResolver.isFetchingMetadataCheap(toComponentId(state.getId(), componentIdentifierCache))) {
-                    dependenciesToBeResolvedInParallel.add(dependency);
+                    componentsToBeResolvedInParallel.add(state);
                 }
             }
         }
-        if (dependenciesToBeResolvedInParallel.size() == 1) {
-            // don't bother doing anything in parallel if there's a single edge
-            dependenciesToBeResolvedInParallel.clear();
+        if (componentsToBeResolvedInParallel.size() == 1) {
+            // don't bother doing anything in parallel if there's a single component
+            componentsToBeResolvedInParallel.clear();
         }
     }
 
@@ -590,6 +611,13 @@ public class DependencyGraphBuilder {
             return queue.isEmpty() ? null : queue.getFirst();
         }
 
+        /**
+         * Returns the configurations currently queued for a visit, in visit order.
+         */
+        public List<NodeState> getQueued() {
+            return new ArrayList<NodeState>(queue);
+        }
+
         public NodeState pop() {
             NodeState next = queue.removeFirst();
             queued.remove(next);
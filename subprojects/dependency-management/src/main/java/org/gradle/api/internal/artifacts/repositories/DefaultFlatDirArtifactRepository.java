@@ -91,6 +91,15 @@ public class DefaultFlatDirArtifactRepository extends AbstractArtifactRepository
         return createRealResolver();
     }
 
+    @Override
+    public RepositoryDescriptor getDescriptor() {
+        RepositoryDescriptor.Builder descriptor = new RepositoryDescriptor.Builder(getName(), "flatDir").local(true);
+        for (File dir : getDirs()) {
+            descriptor.property("dir " + dir, dir);
+        }
+        return descriptor.build();
+    }
+
     private IvyResolver createRealResolver() {
         Set<File> dirs = getDirs();
         if (dirs.isEmpty()) {
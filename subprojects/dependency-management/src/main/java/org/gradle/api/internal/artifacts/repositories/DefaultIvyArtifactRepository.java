@@ -54,6 +54,7 @@ import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.util.ConfigureUtil;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -116,6 +117,35 @@ public class DefaultIvyArtifactRepository extends AbstractAuthenticationSupporte
         return createRealResolver();
     }
 
+    @Override
+    public RepositoryDescriptor getDescriptor() {
+        URI uri = getUrl();
+        Set<String> schemes = new LinkedHashSet<String>();
+        if (uri != null) {
+            schemes.add(uri.getScheme());
+        }
+        additionalPatternsLayout.addSchemes(uri, schemes);
+
+        RepositoryDescriptor.Builder descriptor = new RepositoryDescriptor.Builder(getName(), "ivy")
+            .local(schemes.contains("file"))
+            .property("url", uri)
+            .property("layout", layout.getClass().getName());
+        if (layout instanceof DefaultIvyPatternRepositoryLayout) {
+            DefaultIvyPatternRepositoryLayout patternLayout = (DefaultIvyPatternRepositoryLayout) layout;
+            descriptor.property("layout.artifactPatterns", patternLayout.getArtifactPatterns());
+            descriptor.property("layout.ivyPatterns", patternLayout.getIvyPatterns());
+            descriptor.property("layout.m2compatible", patternLayout.getM2Compatible());
+        }
+        descriptor.property("artifactPatterns", additionalPatternsLayout.artifactPatterns);
+        descriptor.property("ivyPatterns", additionalPatternsLayout.ivyPatterns);
+        descriptor.property("dynamicMode", metaDataProvider.dynamicResolve);
+        if (componentMetadataSupplierClass != null) {
+            descriptor.property("metadataSupplier", componentMetadataSupplierClass.getName());
+            descriptor.property("metadataSupplierParams", Arrays.asList(componentMetadataSupplierParams));
+        }
+        return descriptor.build();
+    }
+
     protected IvyResolver createRealResolver() {
         URI uri = getUrl();
 
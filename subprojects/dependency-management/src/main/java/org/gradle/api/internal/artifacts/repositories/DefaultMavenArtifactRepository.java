@@ -114,6 +114,22 @@ public class DefaultMavenArtifactRepository extends AbstractAuthenticationSuppor
         return createRealResolver();
     }
 
+    @Override
+    public RepositoryDescriptor getDescriptor() {
+        URI rootUri = getUrl();
+        RepositoryDescriptor.Builder descriptor = new RepositoryDescriptor.Builder(getName(), "maven")
+            .local(isLocal(rootUri))
+            .property("url", rootUri);
+        for (URI artifactUrl : getArtifactUrls()) {
+            descriptor.local(isLocal(artifactUrl)).property("artifactUrl " + artifactUrl, artifactUrl);
+        }
+        return descriptor.build();
+    }
+
+    private static boolean isLocal(URI uri) {
+        return uri != null && "file".equals(uri.getScheme());
+    }
+
     protected MavenResolver createRealResolver() {
         URI rootUri = getUrl();
         if (rootUri == null) {
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.repositories;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Describes the configuration of a repository that determines what it resolves, without creating a resolver for it.
+ */
+public class RepositoryDescriptor {
+    private final String name;
+    private final String type;
+    private final boolean local;
+    private final Map<String, String> properties;
+
+    private RepositoryDescriptor(String name, String type, boolean local, Map<String, String> properties) {
+        this.name = name;
+        this.type = type;
+        this.local = local;
+        this.properties = properties;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Whether the repository reads from the local file system. The metadata from such a repository is not cached, so it can change between two resolutions.
+     */
+    public boolean isLocal() {
+        return local;
+    }
+
+    /**
+     * The configuration of the repository, in the order it was added.
+     */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public static class Builder {
+        private final String name;
+        private final String type;
+        private boolean local;
+        private final Map<String, String> properties = new LinkedHashMap<String, String>();
+
+        public Builder(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public Builder local(boolean local) {
+            this.local |= local;
+            return this;
+        }
+
+        public Builder property(String key, @Nullable Object value) {
+            properties.put(key, value == null ? null : value.toString());
+            return this;
+        }
+
+        public RepositoryDescriptor build() {
+            return new RepositoryDescriptor(name, type, local, Collections.unmodifiableMap(new LinkedHashMap<String, String>(properties)));
+        }
+    }
+}
@@ -23,4 +23,9 @@ public interface ResolutionAwareRepository {
      * Creates a resolver for this repository.
      */
     ConfiguredModuleComponentRepository createResolver();
+
+    /**
+     * Describes the configuration of this repository, without creating a resolver.
+     */
+    RepositoryDescriptor getDescriptor();
 }
@@ -46,6 +46,14 @@ public class DefaultIvyPatternRepositoryLayout extends AbstractRepositoryLayout
         ivyPatterns.add(pattern);
     }
 
+    public Set<String> getArtifactPatterns() {
+        return artifactPatterns;
+    }
+
+    public Set<String> getIvyPatterns() {
+        return ivyPatterns;
+    }
+
     /**
      * {@inheritDoc}
      */
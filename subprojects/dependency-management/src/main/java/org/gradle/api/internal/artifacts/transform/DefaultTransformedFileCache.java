@@ -53,17 +53,25 @@ import static org.gradle.api.internal.artifacts.ivyservice.CacheLayout.TRANSFORM
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTransformedFileCache implements TransformedFileCache, Stoppable, RootBuildLifecycleListener {
+    /**
+     * The size in MB that the transforms file store is trimmed to when the cache is cleaned up. The least recently used results are removed first.
+     */
+    public static final String TARGET_SIZE_PROPERTY = "org.gradle.transforms.targetCacheSizeInMB";
+    private static final long DEFAULT_TARGET_SIZE_IN_MB = 5 * 1024;
+
     private final PersistentCache cache;
     private final PersistentIndexedCache<HashCode, List<File>> indexedCache;
+    private final File filesOutputDirectory;
     private final FileStore<String> fileStore;
     private final ProducerGuard<HashCode> producing = ProducerGuard.adaptive();
     private final Map<HashCode, List<File>> resultHashToResult = new ConcurrentHashMap<HashCode, List<File>>();
     private final FileSystemSnapshotter fileSystemSnapshotter;
+    private final TransformsStoreCleanup cleanup;
 
     public DefaultTransformedFileCache(ArtifactCacheMetaData artifactCacheMetaData, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory cacheDecoratorFactory, FileSystemSnapshotter fileSystemSnapshotter) {
         this.fileSystemSnapshotter = fileSystemSnapshotter;
         File transformsStoreDirectory = artifactCacheMetaData.getTransformsStoreDirectory();
-        File filesOutputDirectory = new File(transformsStoreDirectory, TRANSFORMS_STORE.getKey());
+        filesOutputDirectory = new File(transformsStoreDirectory, TRANSFORMS_STORE.getKey());
         fileStore = new DefaultPathKeyFileStore(filesOutputDirectory);
         cache = cacheRepository
                 .cache(transformsStoreDirectory)
@@ -75,11 +83,24 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
         PersistentIndexedCacheParameters<HashCode, List<File>> cacheParameters = new PersistentIndexedCacheParameters<HashCode, List<File>>(cacheName, new HashCodeSerializer(), new ListSerializer<File>(BaseSerializerFactory.FILE_SERIALIZER))
                 .cacheDecorator(cacheDecoratorFactory.decorator(1000, true));
         indexedCache = cache.createCache(cacheParameters);
+        cleanup = new TransformsStoreCleanup(cache, filesOutputDirectory, Long.getLong(TARGET_SIZE_PROPERTY, DEFAULT_TARGET_SIZE_IN_MB));
     }
 
     @Override
     public void stop() {
-        cache.close();
+        try {
+            // Not done with CacheBuilder.withCleanup(), as a cache with a clean-up action is discarded when it was not closed cleanly
+            cache.useCache(new Runnable() {
+                @Override
+                public void run() {
+                    if (cleanup.requiresCleanup()) {
+                        cleanup.cleanup();
+                    }
+                }
+            });
+        } finally {
+            cache.close();
+        }
     }
 
     @Override
@@ -113,6 +134,7 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
                 files = cache.withFileLock(new Factory<List<File>>() {
                     @Override
                     public List<File> create() {
+                        String key = inputFile.getName() + "/" + resultHash;
                         List<File> files = indexedCache.get(resultHash);
                         if (files != null) {
                             boolean allExist = true;
@@ -123,19 +145,21 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
                                 }
                             }
                             if (allExist) {
+                                // Mark the result as recently used, so that it is kept when the store is cleaned up
+                                new File(filesOutputDirectory, key).setLastModified(System.currentTimeMillis());
                                 return files;
                             }
                             // Else, recreate outputs
                         }
 
                         // File store takes care of cleaning up on failure/crash
-                        String key = inputFile.getName() + "/" + resultHash;
                         TransformAction action = new TransformAction(transformer, inputFile);
                         try {
                             fileStore.add(key, action);
                         } catch (FileStoreAddActionException e) {
                             throw UncheckedException.throwAsUncheckedException(e.getCause());
                         }
+                        cleanup.resultStored(new File(filesOutputDirectory, key));
 
                         indexedCache.put(resultHash, action.result);
                         return action.result;
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.transform;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.CacheCleanupAction;
+import org.gradle.cache.internal.DefaultPersistentDirectoryCache;
+import org.gradle.internal.resource.local.DefaultPathKeyFileStore;
+import org.gradle.util.GUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes the least recently used entries from the transforms file store, until the store is no larger than the target size.
+ * Runs as soon as the store is estimated to be larger than the target size, and otherwise at most once every
+ * {@value DefaultPersistentDirectoryCache#CLEANUP_INTERVAL} days, like the clean-up of other persistent caches.
+ *
+ * <p>The estimate is kept in the {@code gc.properties} file, whose modification time is the time of the last clean-up. It is the size measured
+ * by the last clean-up, plus the size of the results stored since then by all processes. Each process adds the results it stored when it checks
+ * whether a clean-up is required, so checking does not need to walk the store.</p>
+ *
+ * <p>Each entry is a directory at {@code <input file name>/<result hash>}. The last modified time of the entry is updated when a result is reused.
+ * Results whose outputs have been removed are recreated by {@link DefaultTransformedFileCache}.</p>
+ */
+class TransformsStoreCleanup implements CacheCleanupAction {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransformsStoreCleanup.class);
+    private static final Comparator<File> NEWEST_FIRST = Ordering.natural().onResultOf(new Function<File, Comparable<Long>>() {
+        @Override
+        public Comparable<Long> apply(File input) {
+            return input.lastModified();
+        }
+    }).reverse();
+
+    private static final String STORE_SIZE_PROPERTY = "storeSize";
+
+    private final PersistentCache persistentCache;
+    private final File filesOutputDirectory;
+    private final File gcFile;
+    private final long targetSizeInMB;
+    private final AtomicLong storedSize = new AtomicLong();
+
+    TransformsStoreCleanup(PersistentCache persistentCache, File filesOutputDirectory, long targetSizeInMB) {
+        this.persistentCache = persistentCache;
+        this.filesOutputDirectory = filesOutputDirectory;
+        this.gcFile = new File(persistentCache.getBaseDir(), "gc.properties");
+        this.targetSizeInMB = targetSizeInMB;
+    }
+
+    /**
+     * Records a result stored by this process, to be added to the size estimate of the store.
+     */
+    void resultStored(File entry) {
+        storedSize.addAndGet(FileUtils.sizeOfDirectory(entry));
+    }
+
+    /**
+     * Adds the results stored by this process to the size estimate of the store. Must be called while holding the cache lock.
+     */
+    @Override
+    public boolean requiresCleanup() {
+        long lastCleanup = gcFile.exists() ? gcFile.lastModified() : System.currentTimeMillis();
+        long storeSize = readStoreSize();
+        if (storeSize < 0) {
+            // First use, or a store created before its size was recorded
+            storeSize = sizeOf(findEntries());
+            storedSize.set(0);
+        } else {
+            storeSize += storedSize.getAndSet(0);
+        }
+        writeStoreSize(storeSize);
+        // Keep the time of the last clean-up
+        gcFile.setLastModified(lastCleanup);
+
+        if (storeSize > getTargetSize()) {
+            return true;
+        }
+        long timeInDays = TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis() - lastCleanup);
+        return timeInDays >= DefaultPersistentDirectoryCache.CLEANUP_INTERVAL;
+    }
+
+    @Override
+    public void cleanup() {
+        List<File> entries = findEntries();
+        List<File> entriesForDeletion = findEntriesToDelete(entries);
+        if (!entriesForDeletion.isEmpty()) {
+            long removedSize = deleteEntries(entriesForDeletion);
+            LOGGER.info("{} removing {} transform results ({} reclaimed).", persistentCache, entriesForDeletion.size(), FileUtils.byteCountToDisplaySize(removedSize));
+            entries.removeAll(entriesForDeletion);
+        }
+        writeStoreSize(sizeOf(entries));
+        gcFile.setLastModified(System.currentTimeMillis());
+    }
+
+    private long getTargetSize() {
+        return targetSizeInMB * 1024 * 1024;
+    }
+
+    private long readStoreSize() {
+        if (!gcFile.isFile()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(GUtil.loadProperties(gcFile).getProperty(STORE_SIZE_PROPERTY, "-1"));
+        } catch (Exception e) {
+            // Measure the store again
+            return -1;
+        }
+    }
+
+    private void writeStoreSize(long storeSize) {
+        Properties properties = new Properties();
+        properties.setProperty(STORE_SIZE_PROPERTY, String.valueOf(storeSize));
+        GUtil.saveProperties(properties, gcFile);
+    }
+
+    private static long sizeOf(List<File> entries) {
+        long size = 0;
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                size += FileUtils.sizeOfDirectory(entry);
+            }
+        }
+        return size;
+    }
+
+    List<File> findEntries() {
+        List<File> entries = Lists.newArrayList();
+        File[] inputDirs = filesOutputDirectory.listFiles();
+        if (inputDirs == null) {
+            return entries;
+        }
+        for (File inputDir : inputDirs) {
+            File[] resultDirs = inputDir.listFiles();
+            if (resultDirs == null) {
+                continue;
+            }
+            for (File resultDir : resultDirs) {
+                if (resultDir.isDirectory()) {
+                    entries.add(resultDir);
+                }
+            }
+        }
+        return entries;
+    }
+
+    List<File> findEntriesToDelete(List<File> entries) {
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<File> sortedEntries = Lists.newArrayList(entries);
+        Collections.sort(sortedEntries, NEWEST_FIRST);
+
+        // All sizes are in bytes
+        long totalSize = 0;
+        long targetSize = getTargetSize();
+        List<File> entriesForDeletion = Lists.newArrayList();
+        for (File entry : sortedEntries) {
+            totalSize += FileUtils.sizeOfDirectory(entry);
+            if (totalSize > targetSize) {
+                entriesForDeletion.add(entry);
+            }
+        }
+
+        LOGGER.info("{} transform results consuming {} (target: {} MB).", persistentCache, FileUtils.byteCountToDisplaySize(totalSize), targetSizeInMB);
+        return entriesForDeletion;
+    }
+
+    private long deleteEntries(List<File> entries) {
+        long removedSize = 0;
+        for (File entry : entries) {
+            try {
+                long size = FileUtils.sizeOfDirectory(entry);
+                FileUtils.deleteDirectory(entry);
+                FileUtils.deleteQuietly(new File(entry.getPath() + DefaultPathKeyFileStore.IN_PROGRESS_MARKER_FILE_SUFFIX));
+                removedSize += size;
+                String[] remaining = entry.getParentFile().list();
+                if (remaining != null && remaining.length == 0) {
+                    entry.getParentFile().delete();
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Could not clean up transform result " + entry, e);
+            }
+        }
+        return removedSize;
+    }
+}
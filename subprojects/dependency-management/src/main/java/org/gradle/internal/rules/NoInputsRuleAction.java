@@ -28,6 +28,10 @@ public class NoInputsRuleAction<T> implements RuleAction<T> {
         this.action = action;
     }
 
+    public Action<? super T> getAction() {
+        return action;
+    }
+
     public List<Class<?>> getInputTypes() {
         return Collections.emptyList();
     }
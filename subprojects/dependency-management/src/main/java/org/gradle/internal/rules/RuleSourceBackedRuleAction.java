@@ -80,6 +80,10 @@ public class RuleSourceBackedRuleAction<R, T> implements RuleAction<T> {
         return Arrays.asList(parameterTypes).subList(1, parameterTypes.length);
     }
 
+    public R getInstance() {
+        return instance;
+    }
+
     public List<Class<?>> getInputTypes() {
         return inputTypes;
     }
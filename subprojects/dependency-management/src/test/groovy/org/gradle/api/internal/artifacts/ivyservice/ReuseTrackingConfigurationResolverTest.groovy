@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.StartParameter
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.api.artifacts.ProjectDependency
+import org.gradle.api.artifacts.dsl.RepositoryHandler
+import org.gradle.api.internal.artifacts.ComponentSelectionRulesInternal
+import org.gradle.api.internal.artifacts.ConfigurationResolver
+import org.gradle.api.internal.artifacts.ComponentModuleMetadataProcessor
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.DefaultResolverResults
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.Module
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ConflictResolution
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.dependencies.DefaultExternalModuleDependency
+import org.gradle.api.internal.artifacts.dsl.DefaultComponentMetadataHandler
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionRules
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionsInternal
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.repositories.RepositoryDescriptor
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository
+import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.reflect.DirectInstantiator
+import org.gradle.util.Path
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ReuseTrackingConfigurationResolverTest extends Specification {
+    def delegate = Mock(ConfigurationResolver)
+    def repositories = Stub(RepositoryHandler)
+    def repositoryUrls = ["https://repo"]
+    def unstable = false
+    def unstableGraphDetector = Stub(UnstableGraphDetectingDependencyResolver) {
+        takeUnstable(_) >> { unstable }
+    }
+    def classLoaderHierarchyHasher = Stub(ClassLoaderHierarchyHasher) {
+        getClassLoaderHash(_) >> HashCode.fromInt(123)
+    }
+    def startParameter = new StartParameter()
+    def substitutions = Stub(DependencySubstitutionsInternal)
+    def resolutionStrategy = Stub(ResolutionStrategyInternal)
+    def history = new ResolvedGraphHistory()
+    def tracker = new ResolvedGraphReuseTracker(history)
+    def results = new DefaultResolverResults()
+    def resolver = resolver(GlobalDependencyResolutionRules.NO_OP, tracker)
+
+    def setup() {
+        def componentSelection = Stub(ComponentSelectionRulesInternal)
+        componentSelection.rules >> []
+        resolutionStrategy.dependencySubstitution >> substitutions
+        resolutionStrategy.componentSelection >> componentSelection
+        resolutionStrategy.forcedModules >> ([] as Set)
+        resolutionStrategy.conflictResolution >> ConflictResolution.latest
+        repositories.size() >> { repositoryUrls.size() }
+        repositories.iterator() >> { repositoryUrls.collect { repository(it) }.iterator() }
+    }
+
+    def "delegates resolution and counts a miss for a graph not seen before"() {
+        def configuration = configuration(":a:compile", module("org", "foo", "1.0"))
+
+        when:
+        resolver.resolveGraph(configuration, results)
+
+        then:
+        1 * delegate.resolveGraph(configuration, results)
+        tracker.misses == 1
+        tracker.hits == 0
+    }
+
+    def "counts a hit for a graph with the same inputs as one resolved by an earlier build"() {
+        def earlierBuild = new ResolvedGraphReuseTracker(history)
+        def earlierResolver = resolver(GlobalDependencyResolutionRules.NO_OP, earlierBuild)
+
+        when:
+        earlierResolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+        resolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+
+        then:
+        earlierBuild.misses == 1
+        tracker.hits == 1
+        tracker.misses == 0
+    }
+
+    def "counts a miss when the inputs change"() {
+        when:
+        resolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+        resolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.1")), results)
+        resolver.resolveGraph(configuration(":b:compile", module("org", "foo", "1.1")), results)
+        repositoryUrls = ["https://other"]
+        resolver.resolveGraph(configuration(":b:compile", module("org", "foo", "1.1")), results)
+
+        then:
+        tracker.misses == 4
+        tracker.hits == 0
+    }
+
+    @Unroll
+    def "graphs with #dependency that may resolve differently with the same inputs are not eligible"() {
+        when:
+        resolver.resolveGraph(configuration(":a:compile", dependency), results)
+        resolver.resolveGraph(configuration(":a:compile", dependency), results)
+
+        then:
+        tracker.ineligible == 2
+        tracker.hits == 0
+
+        where:
+        dependency << [module("org", "foo", "1.+"), module("org", "foo", "latest.release"), module("org", "foo", null), module("org", "foo", "1.0-SNAPSHOT"), changingModule(), Stub(ProjectDependency)]
+    }
+
+    def "graphs with dynamic, changing or failed nodes anywhere in the graph are not eligible"() {
+        given:
+        unstable = true
+
+        when:
+        resolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+        resolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+
+        then:
+        tracker.ineligible == 2
+        tracker.hits == 0
+    }
+
+    def "graphs are not eligible when a local repository is used"() {
+        given:
+        repositoryUrls = ["file:/repo"]
+
+        when:
+        resolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+
+        then:
+        tracker.ineligible == 1
+    }
+
+    def "component metadata rules are part of the inputs"() {
+        def earlierBuild = new ResolvedGraphReuseTracker(history)
+        def earlierRules = componentMetadataRules()
+        earlierRules.all { details -> details.changing = false }
+        def laterRules = componentMetadataRules()
+        laterRules.all { details -> details.status = "release" }
+
+        when:
+        resolver(rules(earlierRules), earlierBuild).resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+        resolver(rules(laterRules), tracker).resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+        resolver(rules(earlierRules), tracker).resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+
+        then:
+        earlierBuild.misses == 1
+        tracker.misses == 1
+        tracker.hits == 1
+    }
+
+    def "graphs are not eligible when a rule implementation cannot be hashed"() {
+        given:
+        def metadataRules = componentMetadataRules()
+        metadataRules.all { details -> details.changing = false }
+        classLoaderHierarchyHasher = Stub(ClassLoaderHierarchyHasher)
+
+        when:
+        resolver(rules(metadataRules), tracker).resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+
+        then:
+        tracker.ineligible == 1
+    }
+
+    def "graphs are not eligible when dependency substitution rules are used"() {
+        given:
+        substitutions.hasRules() >> true
+
+        when:
+        resolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+
+        then:
+        tracker.ineligible == 1
+    }
+
+    def "graphs are not eligible when dependencies are refreshed"() {
+        given:
+        startParameter.refreshDependencies = true
+
+        when:
+        resolver.resolveGraph(configuration(":a:compile", module("org", "foo", "1.0")), results)
+
+        then:
+        tracker.ineligible == 1
+    }
+
+    def module(String group, String name, String version) {
+        return new DefaultExternalModuleDependency(group, name, version)
+    }
+
+    def changingModule() {
+        def dependency = module("org", "foo", "1.0-SNAPSHOT")
+        dependency.changing = true
+        return dependency
+    }
+
+    def resolver(GlobalDependencyResolutionRules rules, ResolvedGraphReuseTracker tracker) {
+        return new ReuseTrackingConfigurationResolver(delegate, unstableGraphDetector, repositories, rules, new DefaultVersionSelectorScheme(new DefaultVersionComparator()), classLoaderHierarchyHasher, startParameter, tracker)
+    }
+
+    def componentMetadataRules() {
+        return new DefaultComponentMetadataHandler(DirectInstantiator.INSTANCE, new DefaultImmutableModuleIdentifierFactory())
+    }
+
+    def rules(DefaultComponentMetadataHandler componentMetadataRules) {
+        def rules = Stub(GlobalDependencyResolutionRules)
+        rules.componentMetadataProcessor >> componentMetadataRules
+        rules.moduleMetadataProcessor >> ComponentModuleMetadataProcessor.NO_OP
+        rules.dependencySubstitutionRules >> DependencySubstitutionRules.NO_OP
+        return rules
+    }
+
+    def repository(String url) {
+        def repository = Stub(ResolutionAwareRepository)
+        repository.descriptor >> new RepositoryDescriptor.Builder("repo", "maven").local(url.startsWith("file:")).property("url", url).build()
+        return repository
+    }
+
+    def configuration(String path, Dependency... dependencies) {
+        def dependencySet = Stub(DependencySet)
+        dependencySet.size() >> dependencies.length
+        dependencySet.iterator() >> { (dependencies as List).iterator() }
+        def configuration = Stub(ConfigurationInternal)
+        configuration.identityPath >> Path.path(path)
+        configuration.module >> Stub(Module)
+        configuration.attributes >> ImmutableAttributes.EMPTY
+        configuration.transitive >> true
+        configuration.hierarchy >> ([configuration] as Set)
+        configuration.excludeRules >> ([] as Set)
+        configuration.allDependencies >> dependencySet
+        configuration.resolutionStrategy >> resolutionStrategy
+        return configuration
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.internal.artifacts.ArtifactDependencyResolver
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.ResolveContext
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ComponentResolveMetadata
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class UnstableGraphDetectingDependencyResolverTest extends Specification {
+    def delegate = Mock(ArtifactDependencyResolver)
+    def context = Stub(ResolveContext)
+    def detector = new UnstableGraphDetectingDependencyResolver(delegate, new DefaultVersionSelectorScheme(new DefaultVersionComparator()))
+
+    def "graph with fixed versions is stable"() {
+        when:
+        resolve(node("1.0", false), selector("1.0"), null)
+
+        then:
+        !detector.takeUnstable(context)
+    }
+
+    @Unroll
+    def "graph with #description is unstable"() {
+        when:
+        resolve(node(version, changing), selector(requested), failure)
+
+        then:
+        detector.takeUnstable(context)
+
+        where:
+        description          | version        | changing | requested      | failure
+        "changing component" | "1.0"          | true     | "1.0"          | null
+        "snapshot component" | "1.0-SNAPSHOT" | false    | "1.0"          | null
+        "dynamic selector"   | "1.0"          | false    | "1.+"          | null
+        "snapshot selector"  | "1.0"          | false    | "1.0-SNAPSHOT" | null
+        "failed dependency"  | "1.0"          | false    | "1.0"          | new ModuleVersionResolveException(DefaultModuleComponentSelector.newSelector("org", "foo", "1.0"), "broken")
+    }
+
+    def "graph that was not resolved is unstable"() {
+        expect:
+        detector.takeUnstable(context)
+    }
+
+    def "forgets about a graph once queried"() {
+        given:
+        resolve(node("1.0", false), selector("1.0"), null)
+
+        expect:
+        !detector.takeUnstable(context)
+        detector.takeUnstable(context)
+    }
+
+    def resolve(DependencyGraphNode node, DependencyGraphSelector selector, ModuleVersionResolveException failure) {
+        def root = Stub(DependencyGraphNode) {
+            isRoot() >> true
+            getOutgoingEdges() >> [Stub(DependencyGraphEdge) {
+                getFailure() >> failure
+            }]
+        }
+        delegate.resolve(context, _, _, _, _, _, _, _) >> { ResolveContext c, repositories, rules, filter, DependencyGraphVisitor visitor, artifactsVisitor, schema, registry ->
+            visitor.start(root)
+            visitor.visitNode(root)
+            visitor.visitNode(node)
+            visitor.visitSelector(selector)
+            visitor.visitEdges(root)
+            visitor.visitEdges(node)
+            visitor.finish(root)
+        }
+        detector.resolve(context, [], null, null, Stub(DependencyGraphVisitor), null, null, null)
+    }
+
+    def node(String version, boolean changing) {
+        def metadata = Stub(ComponentResolveMetadata) {
+            getId() >> DefaultModuleVersionIdentifier.newId("org", "foo", version)
+            isChanging() >> changing
+        }
+        return Stub(DependencyGraphNode) {
+            getOwner() >> Stub(DependencyGraphComponent) {
+                getMetadata() >> metadata
+            }
+            getOutgoingEdges() >> []
+        }
+    }
+
+    def selector(String version) {
+        return Stub(DependencyGraphSelector) {
+            getRequested() >> DefaultModuleComponentSelector.newSelector("org", "foo", version)
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.w3c.dom.Document
+import spock.lang.Specification
+
+import javax.xml.parsers.DocumentBuilderFactory
+
+class PomDocumentCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final fileRepository = TestFiles.fileRepository()
+    final cache = new PomDocumentCache()
+
+    def "parses POMs with the same content once and hands out separate copies"() {
+        def pom1 = tmpDir.file("a/parent.pom") << "<project><artifactId>parent</artifactId></project>"
+        def pom2 = tmpDir.file("b/parent.pom") << "<project><artifactId>parent</artifactId></project>"
+        def parser = Mock(Factory)
+
+        when:
+        def document1 = cache.getDocument(fileRepository.resource(pom1), parser)
+        def document2 = cache.getDocument(fileRepository.resource(pom2), parser)
+
+        then:
+        1 * parser.create() >> parse(pom1)
+        0 * parser._
+
+        and:
+        !document1.is(document2)
+        document1.documentElement.textContent == "parent"
+        document2.documentElement.textContent == "parent"
+    }
+
+    def "parses POMs with different content separately"() {
+        def pom1 = tmpDir.file("parent.pom") << "<project><artifactId>parent</artifactId></project>"
+        def pom2 = tmpDir.file("bom.pom") << "<project><artifactId>bom</artifactId></project>"
+
+        expect:
+        cache.getDocument(fileRepository.resource(pom1), { parse(pom1) } as Factory).documentElement.textContent == "parent"
+        cache.getDocument(fileRepository.resource(pom2), { parse(pom2) } as Factory).documentElement.textContent == "bom"
+    }
+
+    def "changes to a copy are not visible to later callers"() {
+        def pom = tmpDir.file("parent.pom") << "<project><artifactId>parent</artifactId></project>"
+        def parser = { parse(pom) } as Factory
+
+        when:
+        cache.getDocument(fileRepository.resource(pom), parser).documentElement.textContent = "changed"
+
+        then:
+        cache.getDocument(fileRepository.resource(pom), parser).documentElement.textContent == "parent"
+    }
+
+    def "does not cache parse failures"() {
+        def pom = tmpDir.file("broken.pom") << "<project>"
+        def failure = new MetaDataParseException("POM", fileRepository.resource(pom), new RuntimeException("broken"))
+        def parser = Mock(Factory)
+
+        when:
+        cache.getDocument(fileRepository.resource(pom), parser)
+
+        then:
+        1 * parser.create() >> { throw failure }
+        def e = thrown(MetaDataParseException)
+        e.is(failure)
+
+        when:
+        cache.getDocument(fileRepository.resource(pom), parser)
+
+        then:
+        1 * parser.create() >> { throw failure }
+        thrown(MetaDataParseException)
+    }
+
+    private static Document parse(File file) {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file)
+    }
+}
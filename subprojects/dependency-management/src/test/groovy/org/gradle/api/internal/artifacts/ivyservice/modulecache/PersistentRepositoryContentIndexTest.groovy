@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import spock.lang.Specification
+
+class PersistentRepositoryContentIndexTest extends Specification {
+    def moduleMetaDataCache = Mock(ModuleMetaDataCache)
+    def cachePolicy = Mock(CachePolicy)
+    def repository = Stub(ModuleComponentRepository)
+    def component = DefaultModuleComponentIdentifier.newId("org", "foo", "1.0")
+    def index = new PersistentRepositoryContentIndex(moduleMetaDataCache)
+
+    def "module is known to be missing while the cached missing entry has not expired"() {
+        given:
+        moduleMetaDataCache.getCachedModuleDescriptor(repository, component) >> Stub(ModuleMetaDataCache.CachedMetaData) {
+            isMissing() >> true
+            getAgeMillis() >> 1000
+        }
+
+        when:
+        def missing = index.isKnownMissing(repository, component, cachePolicy)
+
+        then:
+        1 * cachePolicy.mustRefreshMissingModule(component, 1000) >> expired
+        missing == !expired
+
+        where:
+        expired << [true, false]
+    }
+
+    def "module is not known to be missing when nothing is cached"() {
+        given:
+        moduleMetaDataCache.getCachedModuleDescriptor(repository, component) >> null
+
+        expect:
+        !index.isKnownMissing(repository, component, cachePolicy)
+    }
+
+    def "module is not known to be missing when its meta-data is cached"() {
+        given:
+        moduleMetaDataCache.getCachedModuleDescriptor(repository, component) >> Stub(ModuleMetaDataCache.CachedMetaData) {
+            isMissing() >> false
+        }
+
+        when:
+        def missing = index.isKnownMissing(repository, component, cachePolicy)
+
+        then:
+        !missing
+        0 * cachePolicy._
+    }
+}
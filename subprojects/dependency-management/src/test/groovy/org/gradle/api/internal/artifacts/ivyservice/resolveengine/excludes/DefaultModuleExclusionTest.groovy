@@ -720,6 +720,28 @@ class DefaultModuleExclusionTest extends Specification {
         !intersect(spec1, spec2).excludesSameModulesAs(intersect(spec1, spec3))
     }
 
+    def "equal specs are the same instance"() {
+        def rule1 = excludeRule("org", "module")
+        def rule2 = excludeRule("org", "module2")
+        def rule3 = regexpExcludeRule("org", "module3")
+
+        expect:
+        excludeAny(rule1, rule2).is(excludeAny(rule2, rule1))
+        intersect(excludeAny(rule1), excludeAny(rule2)).is(excludeAny(rule1, rule2))
+        intersect(excludeAny(rule1), excludeAny(rule2)).is(intersect(excludeAny(rule2), excludeAny(rule1)))
+        union(excludeAny(rule1), excludeAny(rule3)).is(union(excludeAny(rule1), excludeAny(rule3)))
+        union(excludeAny(excludeGroupRule("org")), excludeAny(excludeModuleRule("module"))).is(excludeAny(rule1))
+    }
+
+    def "equal specs exclude the same modules without comparing their rules"() {
+        def spec1 = union(excludeAny(regexpExcludeRule("org", "module")), excludeAny(regexpExcludeRule("org", "module2")))
+        def spec2 = union(excludeAny(regexpExcludeRule("org", "module")), excludeAny(regexpExcludeRule("org", "module2")))
+
+        expect:
+        spec1.is(spec2)
+        spec1.excludesSameModulesAs(spec2)
+    }
+
     def "does not accept artifact that matches specific exclude rule"() {
         def rule1 = excludeArtifactRule("a", "jar", "jar")
         def rule2 = excludeArtifactRule("b", "jar", "jar")
@@ -304,6 +304,30 @@ class DefaultTransformedFileCacheTest extends ConcurrentSpec {
         0 * transform._
     }
 
+    def "marks result as recently used when reused by a later build"() {
+        def transform = Mock(BiFunction)
+        def inputFile = tmpDir.file("a")
+
+        given:
+        _ * snapshotter.snapshotAll(inputFile) >> snapshot(HashCode.fromInt(456))
+        1 * transform.apply(inputFile, _) >>  { File file, File dir -> def r = new File(dir, "a.1"); r.text = "result"; [r] }
+
+        def result = cache.getResult(inputFile, HashCode.fromInt(123), transform)
+        def entryDir = result.first().parentFile
+        entryDir.lastModified = 0
+
+        when:
+        cache.beforeComplete()
+        def result2 = cache.getResult(inputFile, HashCode.fromInt(123), transform)
+
+        then:
+        result2 == result
+        entryDir.lastModified() > 0
+
+        and:
+        0 * transform._
+    }
+
     def snapshot(HashCode hashCode) {
         FileCollectionSnapshot snapshot = Stub(FileCollectionSnapshot)
         snapshot.appendToHasher(_) >> { BuildCacheHasher hasher -> hasher.putHash(hashCode) }
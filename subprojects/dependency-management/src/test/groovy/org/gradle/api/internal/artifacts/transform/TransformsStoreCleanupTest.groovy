@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.transform
+
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.internal.DefaultPersistentDirectoryCache
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.util.concurrent.TimeUnit
+
+@Subject(TransformsStoreCleanup)
+class TransformsStoreCleanupTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheDir = temporaryFolder.file("transforms").createDir()
+    def filesDir = cacheDir.file("files").createDir()
+    def persistentCache = Stub(PersistentCache) {
+        getBaseDir() >> cacheDir
+    }
+    def cleanupAction = new TransformsStoreCleanup(persistentCache, filesDir, 10)
+
+    def "does not require cleanup when first used"() {
+        expect:
+        !cleanupAction.requiresCleanup()
+        cacheDir.file("gc.properties").assertIsFile()
+    }
+
+    def "requires cleanup when not cleaned up recently"() {
+        def gcFile = cacheDir.file("gc.properties").touch()
+
+        expect:
+        !cleanupAction.requiresCleanup()
+
+        when:
+        gcFile.lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(DefaultPersistentDirectoryCache.CLEANUP_INTERVAL + 1)
+
+        then:
+        cleanupAction.requiresCleanup()
+    }
+
+    def "requires cleanup as soon as the results stored make the store larger than the target size"() {
+        expect:
+        !cleanupAction.requiresCleanup()
+
+        when:
+        cleanupAction.resultStored(createEntry("a.jar", 1024 * 1024 * 6))
+
+        then:
+        !cleanupAction.requiresCleanup()
+
+        when:
+        cleanupAction.resultStored(createEntry("b.jar", 1024 * 1024 * 6))
+
+        then:
+        cleanupAction.requiresCleanup()
+    }
+
+    def "adds the results stored by other processes to the size of the store"() {
+        def otherProcess = new TransformsStoreCleanup(persistentCache, filesDir, 10)
+        !cleanupAction.requiresCleanup()
+
+        when:
+        otherProcess.resultStored(createEntry("a.jar", 1024 * 1024 * 6))
+        otherProcess.requiresCleanup()
+        cleanupAction.resultStored(createEntry("b.jar", 1024 * 1024 * 6))
+
+        then:
+        cleanupAction.requiresCleanup()
+    }
+
+    def "measures a store whose size was not recorded"() {
+        createEntry("a.jar", 1024 * 1024 * 11)
+        cacheDir.file("gc.properties").touch()
+
+        expect:
+        cleanupAction.requiresCleanup()
+    }
+
+    def "finds result directories"() {
+        def entries = [
+            createEntry("a.jar", 1024),
+            createEntry("a.jar", 1024),
+            createEntry("b.jar", 1024)
+        ]
+        filesDir.file("b.jar/" + "0" * 32 + ".fslck").touch()
+
+        expect:
+        def found = cleanupAction.findEntries()
+        found.size() == entries.size()
+        found.containsAll(entries)
+    }
+
+    def "finds least recently used entries to delete when store is larger than target"() {
+        def entries = [
+            createEntry("a.jar", 1024, 1000), // 1KB, newest entry
+            createEntry("b.jar", 1024 * 1024, 500), // 1MB
+            createEntry("c.jar", 1024 * 1024 * 5, 250), // 5MB
+            createEntry("d.jar", 1024 * 1024 * 10, 0), // 10MB, oldest entry
+        ]
+
+        expect:
+        cleanupAction.findEntriesToDelete(entries) == [entries.last()]
+    }
+
+    def "finds no entries to delete when store is smaller than target"() {
+        def entries = [
+            createEntry("a.jar", 1024),
+            createEntry("b.jar", 1024 * 1024),
+            createEntry("c.jar", 1024 * 1024 * 5),
+        ]
+
+        expect:
+        cleanupAction.findEntriesToDelete(entries).empty
+    }
+
+    def "deletes least recently used entries and records cleanup"() {
+        def kept = createEntry("a.jar", 1024 * 1024 * 8, 1000)
+        def deleted = createEntry("b.jar", 1024 * 1024 * 8, 0)
+        def gcFile = cacheDir.file("gc.properties").touch()
+        gcFile.lastModified = 0
+
+        when:
+        cleanupAction.cleanup()
+
+        then:
+        kept.assertIsDir()
+        deleted.assertDoesNotExist()
+        filesDir.file("b.jar").assertDoesNotExist()
+        !cleanupAction.requiresCleanup()
+    }
+
+    TestFile createEntry(String inputFileName, int size, long timestamp = 0) {
+        def entry = filesDir.file(inputFileName, UUID.randomUUID().toString().replace("-", ""))
+        def data = new byte[size]
+        new Random().nextBytes(data)
+        entry.file(inputFileName + ".out").bytes = data
+        entry.lastModified = timestamp
+        return entry
+    }
+}
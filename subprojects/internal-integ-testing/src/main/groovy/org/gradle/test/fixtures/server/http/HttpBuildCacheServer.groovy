@@ -31,6 +31,8 @@ class HttpBuildCacheServer extends ExternalResource implements HttpServerFixture
     private TestFile cacheDir
     private long dropConnectionForPutBytes = -1
     private int blockIncomingConnectionsForSeconds = 0
+    private int latencyMillis = 0
+    private LatencyFilter latencyFilter
 
     HttpBuildCacheServer(TestDirectoryProvider provider) {
         this.provider = provider
@@ -53,6 +55,10 @@ class HttpBuildCacheServer extends ExternalResource implements HttpServerFixture
         if (blockIncomingConnectionsForSeconds > 0) {
             this.webapp.addFilter(new FilterHolder(new BlockFilter(blockIncomingConnectionsForSeconds)), "/*", 1)
         }
+        if (latencyMillis > 0) {
+            latencyFilter = new LatencyFilter(latencyMillis)
+            this.webapp.addFilter(new FilterHolder(latencyFilter), "/*", 1)
+        }
         this.webapp.addFilter(RestFilter, "/*", 1)
     }
 
@@ -60,6 +66,17 @@ class HttpBuildCacheServer extends ExternalResource implements HttpServerFixture
         this.dropConnectionForPutBytes = numBytes
     }
 
+    void simulateLatency(int millis) {
+        this.latencyMillis = millis
+    }
+
+    /**
+     * Returns the largest number of requests that were handled at the same time. Requires latency to be simulated.
+     */
+    int getMaxConcurrentRequests() {
+        Preconditions.checkNotNull(latencyFilter).maxConcurrentRequests
+    }
+
     @Override
     void start() {
         cacheDir = provider.testDirectory.createDir('http-cache-dir')
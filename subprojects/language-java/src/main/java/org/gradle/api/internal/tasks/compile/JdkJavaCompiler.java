@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.compile;
 
+import com.google.common.collect.Iterables;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.internal.tasks.compile.reflect.SourcepathIgnoringProxy;
 import org.gradle.api.tasks.WorkResult;
@@ -25,28 +26,48 @@ import org.gradle.language.base.internal.compile.Compiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
+import java.io.File;
 import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdkJavaCompiler.class);
     private final Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory;
+    // Not available when running in a compiler daemon
+    private final transient StandardFileManagerCache fileManagerCache;
 
-    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory) {
+    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, @Nullable StandardFileManagerCache fileManagerCache) {
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
+        this.fileManagerCache = fileManagerCache;
     }
 
     @Override
     public WorkResult execute(JavaCompileSpec spec) {
         LOGGER.info("Compiling with JDK Java compiler API.");
 
-        JavaCompiler.CompilationTask task = createCompileTask(spec);
-        boolean success = task.call();
+        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
+        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
+        CompileOptions compileOptions = spec.getCompileOptions();
+        Charset charset = compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null;
+
+        boolean success;
+        if (fileManagerCache != null && StandardFileManagerCache.canReuseFileManager(options)) {
+            StandardJavaFileManager standardFileManager = fileManagerCache.acquire(compiler, charset, archivesOf(spec));
+            try {
+                success = createCompileTask(spec, options, compiler, standardFileManager).call();
+            } finally {
+                fileManagerCache.release(standardFileManager);
+            }
+        } else {
+            success = createCompileTask(spec, options, compiler, compiler.getStandardFileManager(null, null, charset)).call();
+        }
         if (!success) {
             throw new CompilationFailedException();
         }
@@ -54,11 +75,7 @@ public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable
         return WorkResults.didWork(true);
     }
 
-    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec) {
-        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
-        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
-        CompileOptions compileOptions = spec.getCompileOptions();
-        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null);
+    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, List<String> options, JavaCompiler compiler, StandardJavaFileManager standardFileManager) {
         Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(spec.getSource());
         StandardJavaFileManager fileManager = standardFileManager;
         if (JavaVersion.current().isJava9Compatible() && emptySourcepathIn(options)) {
@@ -67,6 +84,14 @@ public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable
         return compiler.getTask(null, fileManager, null, options, null, compilationUnits);
     }
 
+    private static Iterable<File> archivesOf(JavaCompileSpec spec) {
+        List<File> classpath = spec.getCompileClasspath();
+        List<File> annotationProcessorPath = spec.getAnnotationProcessorPath();
+        return Iterables.concat(
+            classpath == null ? Collections.<File>emptyList() : classpath,
+            annotationProcessorPath == null ? Collections.<File>emptyList() : annotationProcessorPath);
+    }
+
     private static boolean emptySourcepathIn(List<String> options) {
         Iterator<String> optionsIter = options.iterator();
         while (optionsIter.hasNext()) {
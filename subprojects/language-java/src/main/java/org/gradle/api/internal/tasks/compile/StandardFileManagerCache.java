@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.compile;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.internal.changedetection.state.FileContentSnapshot;
+import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.os.OperatingSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the file managers of the JDK Java compiler between the compilations of a build session, so that the jars on the class path do not have to be opened
+ * and indexed again by each compilation. All file managers are closed when the build session ends.
+ *
+ * <p>A file manager is only used by one compilation at a time. The locations set by the options of the previous compilation are reset before it is reused.
+ * A file manager is discarded when the content of a jar it may have opened has changed since, based on the snapshots of the jars. A file manager keeps
+ * each jar it has opened open until it is closed, so a file manager that has opened more than {@value #MAX_ARCHIVES} jars is closed instead of being reused.</p>
+ *
+ * <p>Only used on Java 9 and later, as the Java 8 compiler does not reset its locations and already shares the index of the jars between compilations.
+ * Not used on Windows, as the open jars could not be replaced by later builds. Can be disabled with the {@value #REUSE_PROPERTY} system property.</p>
+ */
+public class StandardFileManagerCache implements Stoppable {
+    public static final String REUSE_PROPERTY = "org.gradle.java.compile.reuseFileManagers";
+    private static final Logger LOGGER = LoggerFactory.getLogger(StandardFileManagerCache.class);
+    static final int MAX_ARCHIVES = 500;
+    private static final StandardLocation[] RESET_LOCATIONS = {
+        StandardLocation.CLASS_PATH,
+        StandardLocation.SOURCE_PATH,
+        StandardLocation.CLASS_OUTPUT,
+        StandardLocation.SOURCE_OUTPUT,
+        StandardLocation.ANNOTATION_PROCESSOR_PATH,
+        StandardLocation.PLATFORM_CLASS_PATH
+    };
+    // Options that set locations which cannot be reset
+    private static final Set<String> MODULE_OPTIONS = ImmutableSet.of(
+        "--module-path", "-p", "--module-source-path", "--upgrade-module-path", "--system", "--patch-module", "--processor-module-path"
+    );
+
+    private final FileSystemSnapshotter fileSystemSnapshotter;
+    private final int maxIdle;
+    private final Map<String, LinkedList<CachedFileManager>> idle = new HashMap<String, LinkedList<CachedFileManager>>();
+    private final Map<StandardJavaFileManager, CachedFileManager> inUse = new HashMap<StandardJavaFileManager, CachedFileManager>();
+    private int idleCount;
+    private boolean stopped;
+
+    public StandardFileManagerCache(FileSystemSnapshotter fileSystemSnapshotter) {
+        this(fileSystemSnapshotter, Runtime.getRuntime().availableProcessors());
+    }
+
+    StandardFileManagerCache(FileSystemSnapshotter fileSystemSnapshotter, int maxIdle) {
+        this.fileSystemSnapshotter = fileSystemSnapshotter;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns true when the file manager for a compilation with the given options can be taken from this cache.
+     */
+    public static boolean canReuseFileManager(List<String> options) {
+        if (!JavaVersion.current().isJava9Compatible() || OperatingSystem.current().isWindows() || "false".equals(System.getProperty(REUSE_PROPERTY))) {
+            return false;
+        }
+        for (String option : options) {
+            if (MODULE_OPTIONS.contains(option) || option.startsWith("--patch-module=")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes a file manager from this cache, or creates one. The file manager must be returned using {@link #release(StandardJavaFileManager)} when the compilation is complete.
+     *
+     * @param archives the files on the class path and annotation processor path of the compilation.
+     */
+    public StandardJavaFileManager acquire(JavaCompiler compiler, Charset charset, Iterable<File> archives) {
+        String key = charset == null ? "" : charset.name();
+        Map<File, FileContentSnapshot> archiveStates = snapshot(archives);
+        CachedFileManager fileManager = null;
+        synchronized (this) {
+            LinkedList<CachedFileManager> candidates = idle.get(key);
+            if (candidates != null) {
+                fileManager = candidates.poll();
+                if (fileManager != null) {
+                    idleCount--;
+                }
+            }
+        }
+        if (fileManager != null && !fileManager.isUpToDate(archiveStates)) {
+            LOGGER.debug("Discarding Java compiler file manager as a jar on the class path has changed.");
+            close(fileManager.fileManager);
+            fileManager = null;
+        }
+        if (fileManager == null) {
+            fileManager = new CachedFileManager(key, compiler.getStandardFileManager(null, null, charset));
+        } else {
+            try {
+                for (StandardLocation location : RESET_LOCATIONS) {
+                    fileManager.fileManager.setLocation(location, null);
+                }
+            } catch (IOException e) {
+                close(fileManager.fileManager);
+                fileManager = new CachedFileManager(key, compiler.getStandardFileManager(null, null, charset));
+            }
+        }
+        fileManager.archives.putAll(archiveStates);
+        synchronized (this) {
+            inUse.put(fileManager.fileManager, fileManager);
+        }
+        return fileManager.fileManager;
+    }
+
+    /**
+     * Returns a file manager to this cache, once the compilation using it is complete.
+     */
+    public void release(StandardJavaFileManager fileManager) {
+        CachedFileManager cachedFileManager;
+        boolean keep = false;
+        synchronized (this) {
+            cachedFileManager = inUse.remove(fileManager);
+            if (cachedFileManager != null && !stopped && idleCount < maxIdle && cachedFileManager.archives.size() <= MAX_ARCHIVES) {
+                LinkedList<CachedFileManager> candidates = idle.get(cachedFileManager.key);
+                if (candidates == null) {
+                    candidates = new LinkedList<CachedFileManager>();
+                    idle.put(cachedFileManager.key, candidates);
+                }
+                candidates.addFirst(cachedFileManager);
+                idleCount++;
+                keep = true;
+            }
+        }
+        if (!keep) {
+            close(fileManager);
+        }
+    }
+
+    /**
+     * Closes all idle file managers. File managers that are in use are closed when they are released.
+     */
+    @Override
+    public void stop() {
+        List<CachedFileManager> discarded = new ArrayList<CachedFileManager>();
+        synchronized (this) {
+            stopped = true;
+            for (LinkedList<CachedFileManager> candidates : idle.values()) {
+                discarded.addAll(candidates);
+            }
+            idle.clear();
+            idleCount = 0;
+        }
+        for (CachedFileManager fileManager : discarded) {
+            close(fileManager.fileManager);
+        }
+    }
+
+    private Map<File, FileContentSnapshot> snapshot(Iterable<File> archives) {
+        Map<File, FileContentSnapshot> states = new HashMap<File, FileContentSnapshot>();
+        for (File archive : archives) {
+            if (archive.isFile()) {
+                states.put(archive, fileSystemSnapshotter.snapshotSelf(archive).getContent());
+            }
+        }
+        return states;
+    }
+
+    private static void close(StandardJavaFileManager fileManager) {
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close Java compiler file manager.", e);
+        }
+    }
+
+    private static class CachedFileManager {
+        private final String key;
+        private final StandardJavaFileManager fileManager;
+        // The jars this file manager may have opened, and their content at the time
+        private final Map<File, FileContentSnapshot> archives = new HashMap<File, FileContentSnapshot>();
+
+        CachedFileManager(String key, StandardJavaFileManager fileManager) {
+            this.key = key;
+            this.fileManager = fileManager;
+        }
+
+        boolean isUpToDate(Map<File, FileContentSnapshot> current) {
+            for (Map.Entry<File, FileContentSnapshot> entry : current.entrySet()) {
+                FileContentSnapshot previous = archives.get(entry.getKey());
+                if (previous != null && !previous.isContentUpToDate(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
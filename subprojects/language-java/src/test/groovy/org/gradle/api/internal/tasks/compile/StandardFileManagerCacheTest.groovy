@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.api.internal.changedetection.state.FileHashSnapshot
+import org.gradle.api.internal.changedetection.state.FileSnapshot
+import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter
+import org.gradle.internal.hash.Hashing
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import javax.tools.JavaCompiler
+import javax.tools.StandardJavaFileManager
+import javax.tools.StandardLocation
+import java.nio.charset.Charset
+
+class StandardFileManagerCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def compiler = Mock(JavaCompiler)
+    def fileSystemSnapshotter = Stub(FileSystemSnapshotter) {
+        snapshotSelf(_) >> { File file ->
+            Stub(FileSnapshot) {
+                getContent() >> new FileHashSnapshot(Hashing.md5().hashBytes(file.bytes))
+            }
+        }
+    }
+    def cache = new StandardFileManagerCache(fileSystemSnapshotter, 1)
+    def jar = tmpDir.file("lib.jar").createFile()
+
+    def "reuses released file manager after resetting its locations"() {
+        def fileManager = Mock(StandardJavaFileManager)
+
+        when:
+        def first = cache.acquire(compiler, null, [jar])
+        cache.release(first)
+
+        then:
+        first == fileManager
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+
+        when:
+        def second = cache.acquire(compiler, null, [jar])
+
+        then:
+        second == fileManager
+        0 * compiler._
+        1 * fileManager.setLocation(StandardLocation.CLASS_PATH, null)
+        1 * fileManager.setLocation(StandardLocation.ANNOTATION_PROCESSOR_PATH, null)
+        1 * fileManager.setLocation(StandardLocation.PLATFORM_CLASS_PATH, null)
+        0 * fileManager.close()
+    }
+
+    def "does not share file manager between concurrent compilations"() {
+        def fileManager1 = Mock(StandardJavaFileManager)
+        def fileManager2 = Mock(StandardJavaFileManager)
+
+        when:
+        def first = cache.acquire(compiler, null, [jar])
+        def second = cache.acquire(compiler, null, [jar])
+
+        then:
+        first == fileManager1
+        second == fileManager2
+        2 * compiler.getStandardFileManager(null, null, null) >>> [fileManager1, fileManager2]
+
+        when:
+        cache.release(first)
+        cache.release(second)
+
+        then:
+        0 * fileManager1.close()
+        1 * fileManager2.close()
+    }
+
+    def "uses separate file managers for each charset"() {
+        def fileManager1 = Mock(StandardJavaFileManager)
+        def fileManager2 = Mock(StandardJavaFileManager)
+        def charset = Charset.forName("UTF-16")
+
+        given:
+        compiler.getStandardFileManager(null, null, null) >> fileManager1
+        compiler.getStandardFileManager(null, null, charset) >> fileManager2
+        cache.release(cache.acquire(compiler, null, [jar]))
+
+        expect:
+        cache.acquire(compiler, charset, [jar]) == fileManager2
+    }
+
+    def "discards file manager when a jar has changed"() {
+        def fileManager1 = Mock(StandardJavaFileManager)
+        def fileManager2 = Mock(StandardJavaFileManager)
+        def otherJar = tmpDir.file("other.jar").createFile()
+
+        when:
+        cache.release(cache.acquire(compiler, null, [jar]))
+        otherJar << "changed"
+        cache.release(cache.acquire(compiler, null, [otherJar]))
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager1
+        0 * fileManager1.close()
+
+        when:
+        jar << "changed"
+        def fileManager = cache.acquire(compiler, null, [jar])
+
+        then:
+        fileManager == fileManager2
+        1 * fileManager1.close()
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager2
+    }
+
+    def "does not discard file manager when a jar is rewritten with the same content"() {
+        def fileManager = Mock(StandardJavaFileManager)
+
+        given:
+        compiler.getStandardFileManager(null, null, null) >> fileManager
+        cache.release(cache.acquire(compiler, null, [jar]))
+
+        when:
+        jar.bytes = jar.bytes
+        jar.lastModified = jar.lastModified() + 10000
+        def reused = cache.acquire(compiler, null, [jar])
+
+        then:
+        reused == fileManager
+        0 * fileManager.close()
+    }
+
+    def "does not keep more idle file managers than the maximum across charsets"() {
+        def fileManager1 = Mock(StandardJavaFileManager)
+        def fileManager2 = Mock(StandardJavaFileManager)
+        def charset = Charset.forName("UTF-16")
+
+        given:
+        compiler.getStandardFileManager(null, null, null) >> fileManager1
+        compiler.getStandardFileManager(null, null, charset) >> fileManager2
+        def first = cache.acquire(compiler, null, [jar])
+        def second = cache.acquire(compiler, charset, [jar])
+
+        when:
+        cache.release(first)
+        cache.release(second)
+
+        then:
+        0 * fileManager1.close()
+        1 * fileManager2.close()
+    }
+
+    def "closes file manager that has opened too many jars instead of reusing it"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        def jars = (0..StandardFileManagerCache.MAX_ARCHIVES).collect { tmpDir.file("lib${it}.jar").createFile() }
+
+        given:
+        compiler.getStandardFileManager(null, null, null) >> fileManager
+
+        when:
+        cache.release(cache.acquire(compiler, null, jars))
+
+        then:
+        1 * fileManager.close()
+    }
+
+    def "closes idle file managers when stopped and file managers in use when released"() {
+        def fileManager1 = Mock(StandardJavaFileManager)
+        def fileManager2 = Mock(StandardJavaFileManager)
+
+        given:
+        compiler.getStandardFileManager(null, null, null) >>> [fileManager1, fileManager2]
+        def idle = cache.acquire(compiler, null, [jar])
+        def inUse = cache.acquire(compiler, null, [jar])
+        cache.release(idle)
+
+        when:
+        cache.stop()
+
+        then:
+        1 * fileManager1.close()
+        0 * fileManager2.close()
+
+        when:
+        cache.release(inUse)
+
+        then:
+        1 * fileManager2.close()
+    }
+
+    def "does not reuse file manager when module path is set"() {
+        expect:
+        !StandardFileManagerCache.canReuseFileManager(["--module-path", "lib"])
+        !StandardFileManagerCache.canReuseFileManager(["--patch-module=a=b"])
+    }
+}
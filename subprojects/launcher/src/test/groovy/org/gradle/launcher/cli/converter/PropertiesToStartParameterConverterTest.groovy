@@ -35,6 +35,7 @@ class PropertiesToStartParameterConverterTest extends Specification {
         converter.convert([(StartParameterBuildOptionFactory.BuildCacheOption.GRADLE_PROPERTY): "true"], new StartParameter()).buildCacheEnabled
         converter.convert([(StartParameterBuildOptionFactory.ConfigureOnDemandOption.GRADLE_PROPERTY): "TRUE"], new StartParameter()).configureOnDemand
         !converter.convert([(StartParameterBuildOptionFactory.ConfigureOnDemandOption.GRADLE_PROPERTY): "xxx"], new StartParameter()).configureOnDemand
+        converter.convert([(StartParameterBuildOptionFactory.CriticalPathSchedulingOption.GRADLE_PROPERTY): "true"], new StartParameter()).criticalPathSchedulingEnabled
     }
 
     def invalidMaxWorkersProperty() {
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.remote.internal.hub;
+
+import org.gradle.api.Action;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.remote.ConnectionAcceptor;
+import org.gradle.internal.remote.MessagingClient;
+import org.gradle.internal.remote.MessagingServer;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.remote.services.MessagingServices;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.DefaultSerializerRegistry;
+import org.gradle.internal.serialize.SerializerRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends messages between a client and a server connected over loopback.
+ *
+ * <p>{@link #streamOutput()} reports the number of messages per second for a stream of log lines, such as the output of a chatty test suite.
+ * {@link #roundTrip()} reports the latency percentiles of a single message and its reply.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class MessageHubBenchmark {
+    private static final int MESSAGES_PER_STREAM = 1000;
+    private static final String LINE = "[Test worker] INFO org.gradle.sample.SampleTest - some output printed by a test, long enough to look like a log line";
+
+    private MessagingServices serverServices;
+    private MessagingServices clientServices;
+    private ConnectionAcceptor acceptor;
+    private ObjectConnection serverConnection;
+    private ObjectConnection clientConnection;
+    private Protocol protocol;
+    private final Semaphore acknowledged = new Semaphore(0);
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        serverServices = new MessagingServices();
+        clientServices = new MessagingServices();
+
+        final SynchronousQueue<ObjectConnection> accepted = new SynchronousQueue<ObjectConnection>();
+        acceptor = serverServices.get(MessagingServer.class).accept(new Action<ObjectConnection>() {
+            @Override
+            public void execute(ObjectConnection connection) {
+                try {
+                    accepted.put(connection);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        clientConnection = clientServices.get(MessagingClient.class).getConnection(acceptor.getAddress());
+        clientConnection.useParameterSerializers(serializers());
+        clientConnection.addIncoming(Acknowledgement.class, new Acknowledgement() {
+            @Override
+            public void acknowledge() {
+                acknowledged.release();
+            }
+        });
+        protocol = clientConnection.addOutgoing(Protocol.class);
+        clientConnection.connect();
+
+        serverConnection = accepted.take();
+        serverConnection.useParameterSerializers(serializers());
+        final Acknowledgement acknowledgement = serverConnection.addOutgoing(Acknowledgement.class);
+        serverConnection.addIncoming(Protocol.class, new Protocol() {
+            @Override
+            public void output(String line) {
+            }
+
+            @Override
+            public void ping() {
+                acknowledgement.acknowledge();
+            }
+        });
+        serverConnection.connect();
+    }
+
+    private static SerializerRegistry serializers() {
+        // Workers register serializers for the messages they send, rather than using Java serialization
+        DefaultSerializerRegistry registry = new DefaultSerializerRegistry();
+        registry.register(String.class, BaseSerializerFactory.STRING_SERIALIZER);
+        return registry;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CompositeStoppable.stoppable(clientConnection, serverConnection, acceptor, clientServices, serverServices).stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(MESSAGES_PER_STREAM)
+    public void streamOutput() throws InterruptedException {
+        for (int i = 1; i < MESSAGES_PER_STREAM; i++) {
+            protocol.output(LINE);
+        }
+        // Handled after all the output, as it is sent on the same channel
+        protocol.ping();
+        acknowledged.acquire();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void roundTrip() throws InterruptedException {
+        protocol.ping();
+        acknowledged.acquire();
+    }
+
+    public interface Protocol {
+        void output(String line);
+
+        void ping();
+    }
+
+    public interface Acknowledgement {
+        void acknowledge();
+    }
+}
@@ -30,6 +30,7 @@ import org.gradle.internal.remote.internal.hub.queue.EndPointQueue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -45,6 +46,8 @@ public class MessageHub implements AsyncStoppable {
     private enum State {Running, Stopping, Stopped}
 
     private static final Discard DISCARD = new Discard();
+    private static final int MAX_MESSAGES_PER_FLUSH = 512;
+    private static final long MAX_FLUSH_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
     private final ManagedExecutor workers;
     private final String displayName;
     private final Action<? super Throwable> errorHandler;
@@ -293,6 +296,13 @@ public class MessageHub implements AsyncStoppable {
         }
     }
 
+    /**
+     * Writes the outgoing messages to a connection, sharing a flush between as many messages as possible.
+     *
+     * <p>Messages that are queued while a batch is being written are added to the batch before flushing. The flush is not delayed by more than
+     * {@link #MAX_FLUSH_DELAY_NANOS}, or once {@link #MAX_MESSAGES_PER_FLUSH} messages have been written. The connection writes its buffer whenever it
+     * is full, so large batches are streamed rather than held in memory.</p>
+     */
     private class ConnectionDispatch implements Runnable {
         private final RemoteConnection<InterHubMessage> connection;
         private final EndPointQueue queue;
@@ -315,19 +325,27 @@ public class MessageHub implements AsyncStoppable {
                         } finally {
                             lock.unlock();
                         }
-                        for (InterHubMessage message : messages) {
-                            try {
-                                connection.dispatch(message);
-                            } catch (RecoverableMessageIOException e) {
-                                addToIncoming(new StreamFailureMessage(e));
+                        long firstMessageTime = System.nanoTime();
+                        int flushSize = 0;
+                        while (true) {
+                            for (InterHubMessage message : messages) {
+                                try {
+                                    connection.dispatch(message);
+                                } catch (RecoverableMessageIOException e) {
+                                    addToIncoming(new StreamFailureMessage(e));
+                                }
+                                if (message instanceof EndOfStream) {
+                                    connection.flush();
+                                    return;
+                                }
                             }
-                            if (message instanceof EndOfStream) {
-                                connection.flush();
-                                return;
+                            flushSize += messages.size();
+                            messages.clear();
+                            if (flushSize >= MAX_MESSAGES_PER_FLUSH || System.nanoTime() - firstMessageTime >= MAX_FLUSH_DELAY_NANOS || !pollQueued(messages)) {
+                                break;
                             }
                         }
                         connection.flush();
-                        messages.clear();
                     }
                 } finally {
                     lock.lock();
@@ -341,6 +359,15 @@ public class MessageHub implements AsyncStoppable {
                 errorHandler.execute(t);
             }
         }
+
+        private boolean pollQueued(List<InterHubMessage> messages) {
+            lock.lock();
+            try {
+                return queue.poll(messages);
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 
     private class ChannelDispatch<T> implements Dispatch<T> {
@@ -55,6 +55,23 @@ public class EndPointQueue implements Dispatch<InterHubMessage> {
         queue.clear();
     }
 
+    /**
+     * Takes the queued messages, without waiting when nothing is queued.
+     *
+     * @return true if any messages were taken.
+     */
+    public boolean poll(Collection<InterHubMessage> drainTo) {
+        if (queue.isEmpty()) {
+            owner.empty(this);
+            if (queue.isEmpty()) {
+                return false;
+            }
+        }
+        drainTo.addAll(queue);
+        queue.clear();
+        return true;
+    }
+
     public void stop() {
         owner.stopped(this);
     }
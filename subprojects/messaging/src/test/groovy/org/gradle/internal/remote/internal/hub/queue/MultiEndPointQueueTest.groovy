@@ -162,4 +162,68 @@ class MultiEndPointQueueTest extends AbstractQueueTest {
         messages.size() == 1
         messages[0] instanceof EndOfStream
     }
+
+    def "poll returns queued messages"() {
+        given:
+        def message1 = unicast()
+        def message2 = broadcast()
+        def endpoint = queue.newEndpoint()
+
+        and:
+        queue.dispatch(message1)
+        queue.dispatch(message2)
+
+        when:
+        def messages = []
+        def result = endpoint.poll(messages)
+
+        then:
+        result
+        messages == [message1, message2]
+    }
+
+    def "poll returns when nothing is queued and forwards later messages to endpoint"() {
+        given:
+        def message = unicast()
+        def endpoint = queue.newEndpoint()
+
+        when:
+        def messages = []
+        def result = endpoint.poll(messages)
+
+        then:
+        !result
+        messages.empty
+
+        when:
+        queue.dispatch(message)
+        result = endpoint.poll(messages)
+
+        then:
+        result
+        messages == [message]
+    }
+
+    def "does not forward messages to stopped endpoint that waited several times"() {
+        given:
+        def message = unicast()
+        def endpoint1 = queue.newEndpoint()
+        def endpoint2 = queue.newEndpoint()
+        endpoint1.poll([])
+        endpoint1.poll([])
+
+        when:
+        endpoint1.stop()
+        queue.empty(endpoint2)
+        queue.dispatch(message)
+        def messages1 = []
+        endpoint1.take(messages1)
+        def messages2 = []
+        endpoint2.take(messages2)
+
+        then:
+        messages1.size() == 1
+        messages1[0] instanceof EndOfStream
+        messages2.last() == message
+    }
 }
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.os.OperatingSystem;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link BlockStore} that reads and writes blocks through memory mapped regions of the cache file, instead of seeking and reading the file for each block.
+ *
+ * <p>Uses the same file layout as {@link FileBackedBlockStore}, so that a cache file can be used with either store. The file is mapped in regions of
+ * {@link #DEFAULT_REGION_SIZE} bytes, and new regions are mapped as the file grows. Mapping a region extends the file to the end of the region,
+ * so the file is truncated to the end of the last block when the store is closed.</p>
+ *
+ * <p>Blocks can be read by multiple threads while a single thread writes blocks.</p>
+ *
+ * <p>The mapped regions can only be released by the garbage collector, which prevents the cache file from being truncated on Windows.
+ * The store is therefore only used when enabled with the {@value #ENABLED_PROPERTY} system property, and not on Windows.</p>
+ */
+public class MappedBlockStore implements BlockStore {
+    public static final String ENABLED_PROPERTY = "org.gradle.cache.internal.btree.mapped";
+    static final int DEFAULT_REGION_SIZE = 1024 * 1024;
+    private static final MappedByteBuffer[] NO_REGIONS = new MappedByteBuffer[0];
+
+    private final File cacheFile;
+    private final int regionSize;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private volatile MappedByteBuffer[] regions = NO_REGIONS;
+    private volatile long currentFileSize;
+    private long nextBlock;
+    private Factory factory;
+
+    public MappedBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    MappedBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY) && !OperatingSystem.current().isWindows();
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            currentFileSize = file.length();
+            nextBlock = currentFileSize;
+            ensureMapped(currentFileSize);
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        regions = NO_REGIONS;
+        try {
+            try {
+                // Remove the unused part of the last region
+                channel.truncate(currentFileSize);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        regions = NO_REGIONS;
+        try {
+            file.setLength(0);
+            currentFileSize = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(BlockPointer.pos(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Maps regions until the given number of bytes of the file are mapped. Only called by the writing thread.
+     */
+    private void ensureMapped(long size) throws IOException {
+        MappedByteBuffer[] current = regions;
+        long mappedSize = (long) current.length * regionSize;
+        if (mappedSize >= size) {
+            return;
+        }
+        int regionCount = (int) ((size + regionSize - 1) / regionSize);
+        MappedByteBuffer[] grown = new MappedByteBuffer[regionCount];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        for (int i = current.length; i < regionCount; i++) {
+            grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * regionSize, regionSize);
+        }
+        // Publish the new regions to readers only once they are all mapped
+        regions = grown;
+    }
+
+    private ByteBuffer regionAt(MappedByteBuffer[] regions, long pos) {
+        // Use a duplicate, so that concurrent readers do not share a position
+        ByteBuffer region = regions[(int) (pos / regionSize)].duplicate();
+        region.position((int) (pos % regionSize));
+        return region;
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
+        private static final int TAIL_SIZE = INT_SIZE;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = BlockPointer.pos(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+            ensureMapped(finalSize);
+
+            RegionOutputStream output = new RegionOutputStream(pos);
+            DataOutputStream outputStream = new DataOutputStream(output);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            long bytesWritten = output.getPos() - pos;
+            if (bytesWritten > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Block payload exceeds maximum size");
+            }
+            outputStream.writeInt((int) bytesWritten);
+            outputStream.flush();
+
+            if (currentFileSize < finalSize) {
+                currentFileSize = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            long fileSize = currentFileSize;
+            if (pos + HEADER_SIZE >= fileSize) {
+                throw blockCorruptedException();
+            }
+
+            RegionInputStream input = new RegionInputStream(pos, fileSize);
+            DataInputStream inputStream = new DataInputStream(input);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = inputStream.readByte();
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = inputStream.readInt();
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > fileSize) {
+                throw blockCorruptedException();
+            }
+            payload.read(inputStream);
+
+            // Read and verify count
+            long actualCount = input.getPos() - pos;
+            long count = inputStream.readInt();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedBlockStore.this));
+        }
+    }
+
+    /**
+     * Reads the mapped regions from a given position, up to the given end of the file.
+     */
+    private class RegionInputStream extends InputStream {
+        private final MappedByteBuffer[] regions = MappedBlockStore.this.regions;
+        private final long end;
+        private long pos;
+
+        RegionInputStream(long pos, long end) {
+            this.pos = pos;
+            this.end = end;
+        }
+
+        long getPos() {
+            return pos;
+        }
+
+        @Override
+        public int read() {
+            if (pos >= end) {
+                return -1;
+            }
+            int value = regionAt(regions, pos).get() & 0xff;
+            pos++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= end) {
+                return -1;
+            }
+            ByteBuffer region = regionAt(regions, pos);
+            int count = (int) Math.min(Math.min(len, region.remaining()), end - pos);
+            region.get(b, off, count);
+            pos += count;
+            return count;
+        }
+    }
+
+    /**
+     * Writes to the mapped regions from a given position, mapping more regions when required.
+     */
+    private class RegionOutputStream extends OutputStream {
+        private long pos;
+
+        RegionOutputStream(long pos) {
+            this.pos = pos;
+        }
+
+        long getPos() {
+            return pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureMapped(pos + 1);
+            regionAt(regions, pos).put((byte) b);
+            pos++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureMapped(pos + len);
+            while (len > 0) {
+                ByteBuffer region = regionAt(regions, pos);
+                int count = Math.min(len, region.remaining());
+                region.put(b, off, count);
+                pos += count;
+                off += count;
+                len -= count;
+            }
+        }
+    }
+}
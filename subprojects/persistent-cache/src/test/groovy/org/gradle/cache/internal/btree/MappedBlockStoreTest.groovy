@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@Requires(TestPrecondition.NOT_WINDOWS)
+class MappedBlockStoreTest extends Specification {
+    private static final int REGION_SIZE = 64
+
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.bin")
+
+    def "can read and update entries"() {
+        def cache = mappedCache()
+
+        when:
+        (1..100).each { cache.put("key$it", "value$it") }
+        (1..100).step(3) { cache.remove("key$it") }
+        (1..100).step(5) { cache.put("key$it", "updated value$it".padRight(200, "-")) }
+
+        then:
+        cache.verify()
+        cache.get("key1") == "updated value1".padRight(200, "-")
+        cache.get("key4") == null
+        cache.get("key2") == "value2"
+
+        cleanup:
+        cache?.close()
+    }
+
+    @Unroll
+    def "can read cache written by #writer store with #reader store"() {
+        def cache = writer == "mapped" ? mappedCache() : fileBackedCache()
+        (1..100).each { cache.put("key$it", "value$it".padRight(it, "-")) }
+        (1..100).step(3) { cache.remove("key$it") }
+        cache.close()
+
+        when:
+        cache = reader == "mapped" ? mappedCache() : fileBackedCache()
+
+        then:
+        cache.verify()
+        (1..100).each {
+            assert cache.get("key$it") == (it % 3 == 1 ? null : "value$it".padRight(it, "-"))
+        }
+
+        cleanup:
+        cache?.close()
+
+        where:
+        writer        | reader
+        "mapped"      | "file backed"
+        "file backed" | "mapped"
+        "mapped"      | "mapped"
+    }
+
+    def "removes unused part of the last mapped region on close"() {
+        def fileBacked = fileBackedCache(tmpDir.file("file-backed.bin"))
+        def mapped = mappedCache()
+
+        when:
+        [fileBacked, mapped].each { cache ->
+            (1..20).each { cache.put("key$it", "value$it") }
+            cache.close()
+        }
+
+        then:
+        cacheFile.length() == tmpDir.file("file-backed.bin").length()
+        cacheFile.length() % REGION_SIZE != 0
+    }
+
+    private BTreePersistentIndexedCache<String, String> mappedCache() {
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER, (short) 4, 100, new MappedBlockStore(cacheFile, REGION_SIZE))
+    }
+
+    private BTreePersistentIndexedCache<String, String> fileBackedCache(File file = cacheFile) {
+        return new BTreePersistentIndexedCache<String, String>(file, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER, (short) 4, 100, new FileBackedBlockStore(file))
+    }
+}
@@ -27,26 +27,63 @@ import org.gradle.internal.actor.ActorFactory;
 import org.gradle.internal.dispatch.DispatchException;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors.
+ *
+ * <p>When the durations of the test classes from a previous run are not known, uses a simple round-robin algorithm to assign test classes to
+ * processors as they are received.</p>
+ *
+ * <p>When the durations are known, collects the test classes in batches of {@link #BATCH_SIZE_PER_PROCESSOR} classes per processor, and assigns
+ * each batch longest first to the processor with the least estimated work, so that slow test classes do not end up in the same processor.
+ * Batching lets the processors start on the first test classes while the rest are still being found. Test classes without a known duration
+ * are assumed to take the average duration of the known test classes and are assigned first in their batch, as they may be slow.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
+    static final int BATCH_SIZE_PER_PROCESSOR = 8;
+
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousDurations;
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
+    private final List<TestClassRunInfo> pending = new ArrayList<TestClassRunInfo>();
+    private final long unknownDuration;
+    private final long[] assignedDurations;
     private Actor resultProcessorActor;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * @param previousDurations the duration in milliseconds of each test class from a previous run, by test class name.
+     */
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousDurations) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
+        this.unknownDuration = averageDuration(previousDurations);
+        this.assignedDurations = new long[maxProcessors];
+    }
+
+    private static long averageDuration(Map<String, Long> durations) {
+        if (durations.isEmpty()) {
+            return 1;
+        }
+        long total = 0;
+        for (Long duration : durations.values()) {
+            total += duration;
+        }
+        return Math.max(1, total / durations.size());
     }
 
     @Override
@@ -58,14 +95,16 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
 
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
+        if (isBalancing()) {
+            pending.add(testClass);
+            if (pending.size() >= maxProcessors * BATCH_SIZE_PER_PROCESSOR) {
+                assignPending();
+            }
+            return;
+        }
         TestClassProcessor processor;
         if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
+            processor = startProcessor();
         } else {
             processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
@@ -73,10 +112,65 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
         processor.processTestClass(testClass);
     }
 
+    private boolean isBalancing() {
+        return maxProcessors > 1 && !previousDurations.isEmpty();
+    }
+
+    private TestClassProcessor startProcessor() {
+        TestClassProcessor processor = factory.create();
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        processor.startProcessing(resultProcessor);
+        return processor;
+    }
+
+    private void assignPending() {
+        // Stable sort, so that unknown test classes keep the order in which they were found
+        Collections.sort(pending, new Comparator<TestClassRunInfo>() {
+            @Override
+            public int compare(TestClassRunInfo left, TestClassRunInfo right) {
+                boolean leftKnown = previousDurations.containsKey(left.getTestClassName());
+                boolean rightKnown = previousDurations.containsKey(right.getTestClassName());
+                if (leftKnown != rightKnown) {
+                    return leftKnown ? 1 : -1;
+                }
+                if (!leftKnown) {
+                    return 0;
+                }
+                long leftDuration = previousDurations.get(left.getTestClassName());
+                long rightDuration = previousDurations.get(right.getTestClassName());
+                return leftDuration > rightDuration ? -1 : leftDuration == rightDuration ? 0 : 1;
+            }
+        });
+
+        for (TestClassRunInfo testClass : pending) {
+            // A processor that has not been started yet has no work, so it is picked before the started ones
+            int processor = 0;
+            for (int i = 1; i < Math.min(processors.size() + 1, maxProcessors); i++) {
+                if (assignedDurations[i] < assignedDurations[processor]) {
+                    processor = i;
+                }
+            }
+            if (processor == processors.size()) {
+                startProcessor();
+            }
+            Long duration = previousDurations.get(testClass.getTestClassName());
+            assignedDurations[processor] += duration == null ? unknownDuration : Math.max(1, duration);
+            processors.get(processor).processTestClass(testClass);
+        }
+        pending.clear();
+    }
+
     @Override
     public void stop() {
         try {
-            CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+            try {
+                assignPending();
+            } finally {
+                CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+            }
         } catch (DispatchException e) {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
         }
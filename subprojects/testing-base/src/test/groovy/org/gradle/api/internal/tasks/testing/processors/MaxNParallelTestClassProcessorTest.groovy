@@ -167,4 +167,141 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         then:
         1 * asyncProcessor2.processTestClass(test)
     }
+
+    def assignsTestClassesLongestFirstToLeastLoadedProcessorWhenDurationsAreKnown() {
+        def balancingProcessor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [A: 100L, B: 60L, C: 50L, D: 10L])
+        def testA = testClass("A")
+        def testB = testClass("B")
+        def testC = testClass("C")
+        def testD = testClass("D")
+        def testE = testClass("E")
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        balancingProcessor.startProcessing(resultProcessor)
+
+        when:
+        [testD, testA, testE, testC, testB].each { balancingProcessor.processTestClass(it) }
+
+        then:
+        0 * factory._
+        0 * asyncProcessor1._
+        0 * asyncProcessor2._
+
+        when:
+        balancingProcessor.stop()
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.processTestClass(testE)
+
+        then:
+        1 * factory.create() >> processor2
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.processTestClass(testA)
+
+        then:
+        1 * asyncProcessor1.processTestClass(testB)
+
+        then:
+        1 * asyncProcessor2.processTestClass(testC)
+
+        then:
+        1 * asyncProcessor1.processTestClass(testD)
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    def startsOnlyAsManyProcessorsAsThereAreTestClassesWhenDurationsAreKnown() {
+        def balancingProcessor = new MaxNParallelTestClassProcessor(4, factory, actorFactory, [A: 100L])
+        def testA = testClass("A")
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        Actor actor1 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        balancingProcessor.startProcessing(resultProcessor)
+
+        when:
+        balancingProcessor.processTestClass(testA)
+        balancingProcessor.stop()
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.processTestClass(testA)
+        1 * asyncProcessor1.stop()
+        0 * factory.create()
+    }
+
+    def assignsTestClassesInBatchesWhenDurationsAreKnown() {
+        def balancingProcessor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [A: 100L])
+        def batch = (1..<2 * MaxNParallelTestClassProcessor.BATCH_SIZE_PER_PROCESSOR).collect { testClass("Test" + it) }
+        def testA = testClass("A")
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        balancingProcessor.startProcessing(resultProcessor)
+
+        when:
+        batch.each { balancingProcessor.processTestClass(it) }
+
+        then:
+        0 * factory._
+
+        when:
+        balancingProcessor.processTestClass(testA)
+
+        then:
+        2 * factory.create() >>> [processor1, processor2]
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.processTestClass(testA)
+        8 * asyncProcessor1.processTestClass(_)
+        7 * asyncProcessor2.processTestClass(_)
+
+        when:
+        balancingProcessor.stop()
+
+        then:
+        0 * factory._
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    private TestClassRunInfo testClass(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.junit.result;
 
+import org.gradle.api.Action;
 import org.gradle.api.tasks.testing.*;
 import org.gradle.internal.serialize.PlaceholderException;
 
@@ -26,17 +27,27 @@ import java.util.Map;
 
 /**
  * Collects the test results into memory and spools the test output to file during execution (to avoid holding it all in memory).
+ *
+ * <p>When given an action for completed classes, the results of a class are removed from memory and passed to the action as soon as
+ * its suite completes, so that only the results of the classes in flight are kept in memory.</p>
  */
 public class TestReportDataCollector implements TestListener, TestOutputListener {
 
     private final Map<String, TestClassResult> results;
     private final TestOutputStore.Writer outputWriter;
+    private final Action<? super TestClassResult> completedClassAction;
     private final Map<TestDescriptor, TestMethodResult> currentTestMethods = new HashMap<TestDescriptor, TestMethodResult>();
+    private final Map<String, Long> completedClassIds = new HashMap<String, Long>();
     private long internalIdCounter = 1;
 
     public TestReportDataCollector(Map<String, TestClassResult> results, TestOutputStore.Writer outputWriter) {
+        this(results, outputWriter, null);
+    }
+
+    public TestReportDataCollector(Map<String, TestClassResult> results, TestOutputStore.Writer outputWriter, Action<? super TestClassResult> completedClassAction) {
         this.results = results;
         this.outputWriter = outputWriter;
+        this.completedClassAction = completedClassAction;
     }
 
     @Override
@@ -45,6 +56,18 @@ public class TestReportDataCollector implements TestListener, TestOutputListener
 
     @Override
     public void afterSuite(TestDescriptor suite, TestResult result) {
+        afterSuiteResults(suite, result);
+        String className = suite.getClassName();
+        if (completedClassAction != null && className != null) {
+            TestClassResult classResult = results.remove(className);
+            if (classResult != null) {
+                completedClassIds.put(className, classResult.getId());
+                completedClassAction.execute(classResult);
+            }
+        }
+    }
+
+    private void afterSuiteResults(TestDescriptor suite, TestResult result) {
         if (result.getResultType() == TestResult.ResultType.FAILURE && !result.getExceptions().isEmpty()) {
             //there are some exceptions attached to the suite. Let's make sure they are reported to the user.
             //this may happen for example when suite initialisation fails and no tests are executed
@@ -53,7 +76,7 @@ public class TestReportDataCollector implements TestListener, TestOutputListener
                 methodResult.addFailure(failureMessage(throwable), stackTrace(throwable), exceptionClassName(throwable));
             }
             methodResult.completed(result);
-            TestClassResult classResult = new TestClassResult(internalIdCounter++, suite.getName(), result.getStartTime());
+            TestClassResult classResult = new TestClassResult(classId(suite.getName()), suite.getName(), result.getStartTime());
             classResult.add(methodResult);
             results.put(suite.getName(), classResult);
         }
@@ -74,7 +97,7 @@ public class TestReportDataCollector implements TestListener, TestOutputListener
         }
         TestClassResult classResult = results.get(className);
         if (classResult == null) {
-            classResult = new TestClassResult(internalIdCounter++, className, result.getStartTime());
+            classResult = new TestClassResult(classId(className), className, result.getStartTime());
             results.put(className, classResult);
         } else if (classResult.getStartTime() == 0) {
             //class results may be created earlier, where we don't yet have access to the start time
@@ -83,6 +106,12 @@ public class TestReportDataCollector implements TestListener, TestOutputListener
         classResult.add(methodResult);
     }
 
+    private long classId(String className) {
+        // Events for a class may arrive after its suite has completed, keep them with the results already written for the class
+        Long completedClassId = completedClassIds.get(className);
+        return completedClassId != null ? completedClassId : internalIdCounter++;
+    }
+
     private String failureMessage(Throwable throwable) {
         try {
             return throwable.toString();
@@ -130,7 +159,7 @@ public class TestReportDataCollector implements TestListener, TestOutputListener
             //it's possible that we receive an output for a suite here
             //in this case we will create the test result for a suite that normally would not be created
             //feels like this scenario should modelled more explicitly
-            classResult = new TestClassResult(internalIdCounter++, className, 0);
+            classResult = new TestClassResult(classId(className), className, 0);
             results.put(className, classResult);
         }
 
@@ -26,11 +26,29 @@ import org.gradle.internal.serialize.FlushableEncoder;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
-import java.io.*;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Stores test class results in a binary file. Results are streamed to the file one class at a time, so they do not need to be kept in memory.
+ *
+ * <p>The file contains the version, then each class result preceded by a {@code true} marker, then a {@code false} marker, then a flag telling
+ * whether some class was written more than once. Such classes are merged when the file is read.</p>
+ */
 public class TestResultSerializer {
-    private static final int RESULT_VERSION = 3;
+    private static final int RESULT_VERSION = 4;
 
     private final File resultsFile;
 
@@ -39,27 +57,68 @@ public class TestResultSerializer {
     }
 
     public void write(Collection<TestClassResult> results) {
+        Writer writer = writer();
         try {
-            OutputStream outputStream = new FileOutputStream(resultsFile);
-            try {
-                if (!results.isEmpty()) { // only write if we have results, otherwise truncate
-                    FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
-                    encoder.writeSmallInt(RESULT_VERSION);
-                    write(results, encoder);
-                    encoder.flush();
-                }
-            } finally {
-                outputStream.close();
+            for (TestClassResult result : results) {
+                writer.write(result);
             }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Starts writing a new results file, replacing any existing file. The file is left empty when no results are written.
+     */
+    public Writer writer() {
+        try {
+            return new Writer(new FileOutputStream(resultsFile));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-    private void write(Collection<TestClassResult> results, Encoder encoder) throws IOException {
-        encoder.writeSmallInt(results.size());
-        for (TestClassResult result : results) {
-            write(result, encoder);
+    public class Writer implements Closeable {
+        private final OutputStream outputStream;
+        private final Set<Long> writtenIds = new HashSet<Long>();
+        private FlushableEncoder encoder;
+        private boolean hasDuplicates;
+
+        private Writer(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        public void write(TestClassResult result) {
+            try {
+                if (encoder == null) {
+                    encoder = new KryoBackedEncoder(outputStream);
+                    encoder.writeSmallInt(RESULT_VERSION);
+                }
+                if (!writtenIds.add(result.getId())) {
+                    hasDuplicates = true;
+                }
+                encoder.writeBoolean(true);
+                TestResultSerializer.this.write(result, encoder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                try {
+                    if (encoder != null) {
+                        encoder.writeBoolean(false);
+                        encoder.writeBoolean(hasDuplicates);
+                        encoder.flush();
+                    }
+                } finally {
+                    outputStream.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
     }
 
@@ -94,12 +153,49 @@ public class TestResultSerializer {
         try {
             InputStream inputStream = new FileInputStream(resultsFile);
             try {
-                Decoder decoder = new KryoBackedDecoder(inputStream);
-                int version = decoder.readSmallInt();
-                if (version != RESULT_VERSION) {
-                    throw new IllegalArgumentException(String.format("Unexpected result file version %d found in %s.", version, resultsFile));
+                readResults(openDecoder(inputStream), hasDuplicates(), visitor);
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Reads the duration in milliseconds of each test class, by test class name, without keeping the results of the test methods.
+     */
+    public Map<String, Long> readClassDurations() {
+        Map<String, Long> durations = new HashMap<String, Long>();
+        if (!isHasResults()) {
+            return durations;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(resultsFile);
+            try {
+                Decoder decoder = openDecoder(inputStream);
+                // The start and end time of each class. A class written more than once starts with its first result, like when it is merged
+                Map<String, long[]> times = new HashMap<String, long[]>();
+                while (decoder.readBoolean()) {
+                    decoder.readSmallLong();
+                    String className = decoder.readString();
+                    long startTime = decoder.readLong();
+                    long endTime = startTime;
+                    int testMethodCount = decoder.readSmallInt();
+                    for (int i = 0; i < testMethodCount; i++) {
+                        endTime = Math.max(endTime, skipMethodResult(decoder));
+                    }
+                    long[] classTimes = times.get(className);
+                    if (classTimes == null) {
+                        times.put(className, new long[]{startTime, endTime});
+                    } else {
+                        classTimes[1] = Math.max(classTimes[1], endTime);
+                    }
+                }
+                for (Map.Entry<String, long[]> entry : times.entrySet()) {
+                    durations.put(entry.getKey(), entry.getValue()[1] - entry.getValue()[0]);
                 }
-                readResults(decoder, visitor);
+                return durations;
             } finally {
                 inputStream.close();
             }
@@ -108,14 +204,49 @@ public class TestResultSerializer {
         }
     }
 
+    private Decoder openDecoder(InputStream inputStream) throws IOException {
+        Decoder decoder = new KryoBackedDecoder(inputStream);
+        int version = decoder.readSmallInt();
+        if (version != RESULT_VERSION) {
+            throw new IllegalArgumentException(String.format("Unexpected result file version %d found in %s.", version, resultsFile));
+        }
+        return decoder;
+    }
+
     public boolean isHasResults() {
         return resultsFile.exists() && resultsFile.length() > 0;
     }
 
-    private void readResults(Decoder decoder, Action<? super TestClassResult> visitor) throws ClassNotFoundException, IOException {
-        int classCount = decoder.readSmallInt();
-        for (int i = 0; i < classCount; i++) {
+    private boolean hasDuplicates() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(resultsFile, "r");
+        try {
+            file.seek(file.length() - 1);
+            return file.read() != 0;
+        } finally {
+            file.close();
+        }
+    }
+
+    private void readResults(Decoder decoder, boolean hasDuplicates, Action<? super TestClassResult> visitor) throws ClassNotFoundException, IOException {
+        if (!hasDuplicates) {
+            while (decoder.readBoolean()) {
+                visitor.execute(readClassResult(decoder));
+            }
+            return;
+        }
+        Map<Long, TestClassResult> merged = new LinkedHashMap<Long, TestClassResult>();
+        while (decoder.readBoolean()) {
             TestClassResult classResult = readClassResult(decoder);
+            TestClassResult previous = merged.get(classResult.getId());
+            if (previous == null) {
+                merged.put(classResult.getId(), classResult);
+            } else {
+                for (TestMethodResult methodResult : classResult.getResults()) {
+                    previous.add(methodResult);
+                }
+            }
+        }
+        for (TestClassResult classResult : merged.values()) {
             visitor.execute(classResult);
         }
     }
@@ -133,6 +264,22 @@ public class TestResultSerializer {
         return result;
     }
 
+    /**
+     * Reads past a test method result, and returns its end time.
+     */
+    private long skipMethodResult(Decoder decoder) throws IOException {
+        decoder.readSmallLong();
+        decoder.readString();
+        decoder.readSmallInt();
+        decoder.readSmallLong();
+        long endTime = decoder.readLong();
+        int failures = decoder.readSmallInt();
+        for (int i = 0; i < failures * 3; i++) {
+            decoder.readString();
+        }
+        return endTime;
+    }
+
     private TestMethodResult readMethodResult(Decoder decoder) throws ClassNotFoundException, IOException {
         long id = decoder.readSmallLong();
         String name = decoder.readString();
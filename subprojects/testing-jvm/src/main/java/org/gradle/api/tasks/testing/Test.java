@@ -42,7 +42,7 @@ import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
 import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
 import org.gradle.api.internal.tasks.testing.junit.result.Binary2JUnitXmlReportGenerator;
-import org.gradle.api.internal.tasks.testing.junit.result.InMemoryTestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.BinaryResultBackedTestResultsProvider;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputAssociation;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
@@ -107,6 +107,7 @@ import org.gradle.util.SingleMessageLogger;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -637,6 +638,8 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         File binaryResultsDir = getBinResultsDir();
+        // The durations are only used to balance the test classes across several test processes
+        Map<String, Long> previousTestClassDurations = getMaxParallelForks() > 1 ? readPreviousTestClassDurations(binaryResultsDir) : Collections.<String, Long>emptyMap();
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -644,7 +647,14 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestOutputStore testOutputStore = new TestOutputStore(binaryResultsDir);
 
         TestOutputStore.Writer outputWriter = testOutputStore.writer();
-        TestReportDataCollector testReportDataCollector = new TestReportDataCollector(results, outputWriter);
+        final TestResultSerializer.Writer resultsWriter = new TestResultSerializer(binaryResultsDir).writer();
+        // Stream the results of each class to the binary store as soon as the class completes
+        TestReportDataCollector testReportDataCollector = new TestReportDataCollector(results, outputWriter, new Action<TestClassResult>() {
+            @Override
+            public void execute(TestClassResult result) {
+                resultsWriter.write(result);
+            }
+        });
 
         addTestListener(testReportDataCollector);
         addTestOutputListener(testReportDataCollector);
@@ -667,7 +677,8 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 getServices().get(WorkerLeaseRegistry.class),
                 getServices().get(BuildOperationExecutor.class),
                 getServices().get(StartParameter.class).getMaxWorkerCount(),
-                getServices().get(Clock.class));
+                getServices().get(Clock.class),
+                previousTestClassDurations);
         }
 
         JavaVersion javaVersion = getJavaVersion();
@@ -685,11 +696,17 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
             testOutputListenerBroadcaster.removeAll();
             testListenerInternalBroadcaster.removeAll();
             outputWriter.close();
+            try {
+                for (TestClassResult result : results.values()) {
+                    resultsWriter.write(result);
+                }
+            } finally {
+                resultsWriter.close();
+            }
         }
+        results.clear();
 
-        new TestResultSerializer(binaryResultsDir).write(results.values());
-
-        TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore);
+        TestResultsProvider testResultsProvider = new BinaryResultBackedTestResultsProvider(binaryResultsDir);
 
         try {
             if (testReporter == null) {
@@ -722,6 +739,16 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
     }
 
+    private Map<String, Long> readPreviousTestClassDurations(File binaryResultsDir) {
+        try {
+            return new TestResultSerializer(binaryResultsDir).readClassDurations();
+        } catch (Exception e) {
+            // The durations are only used to balance the test classes across the test processes, so run without them
+            getLogger().debug("Could not read the results of the previous test run from {}.", binaryResultsDir, e);
+            return Collections.emptyMap();
+        }
+    }
+
     private String createNoMatchingTestErrorMessage() {
         String msg = "No tests found for given includes: ";
         if (!getIncludes().isEmpty()) {
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.junit.result
 
+import org.gradle.api.Action
 import org.gradle.api.internal.tasks.testing.*
 import org.gradle.api.internal.tasks.testing.results.DefaultTestResult
 import org.gradle.internal.serialize.PlaceholderException
@@ -219,4 +220,42 @@ class TestReportDataCollectorSpec extends Specification {
         then:
         results.get("FooTest").startTime == 100
     }
+
+    def "hands over the results of a class when its suite completes"() {
+        def completed = []
+        def collector = new TestReportDataCollector(results, writer, { completed << it } as Action)
+        def root = new DefaultTestSuiteDescriptor("1", "Suite")
+        def clazz = new DecoratingTestDescriptor(new DefaultTestClassDescriptor("1.1", "FooTest"), root)
+        def test1 = new DecoratingTestDescriptor(new DefaultTestDescriptor("1.1.1", "FooTest", "testMethod"), clazz)
+        def test2 = new DecoratingTestDescriptor(new DefaultTestDescriptor("1.1.2", "FooTest", "testMethod2"), clazz)
+
+        when:
+        collector.beforeSuite(root)
+        collector.beforeSuite(clazz)
+        collector.beforeTest(test1)
+        collector.afterTest(test1, new DefaultTestResult(SUCCESS, 100, 200, 1, 1, 0, []))
+
+        then:
+        completed.empty
+        results.size() == 1
+
+        when:
+        collector.afterSuite(clazz, new DefaultTestResult(SUCCESS, 100, 200, 1, 1, 0, []))
+
+        then:
+        completed*.className == ['FooTest']
+        completed[0].results*.name == ['testMethod']
+        results.isEmpty()
+
+        when:
+        collector.beforeTest(test2)
+        collector.onOutput(test2, new DefaultTestOutputEvent(StdOut, "late"))
+        collector.afterTest(test2, new DefaultTestResult(SUCCESS, 300, 400, 1, 1, 0, []))
+
+        then:
+        1 * writer.onOutput(completed[0].id, 3, new DefaultTestOutputEvent(StdOut, "late"))
+        results.size() == 1
+        results.FooTest.id == completed[0].id
+        results.FooTest.results*.name == ['testMethod2']
+    }
 }
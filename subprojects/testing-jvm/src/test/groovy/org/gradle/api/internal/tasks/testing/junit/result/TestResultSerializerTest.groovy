@@ -74,4 +74,65 @@ class TestResultSerializerTest extends Specification {
         serializer.read({ result << it } as Action)
         return result
     }
+
+    def "streams results written one class at a time"() {
+        def serializer = new TestResultSerializer(tmp.createDir("results"))
+
+        when:
+        def writer = serializer.writer()
+        writer.write(new TestClassResult(1, 'Class1', 1234).add(new TestMethodResult(1, "method1", TestResult.ResultType.SUCCESS, 100, 2300)))
+        writer.write(new TestClassResult(2, 'Class2', 5678))
+        writer.close()
+        def read = []
+        serializer.read({ read << it } as Action)
+
+        then:
+        read*.className == ['Class1', 'Class2']
+        read[0].results*.name == ['method1']
+    }
+
+    def "merges classes written more than once"() {
+        def class1 = new TestClassResult(1, 'Class1', 1234).add(new TestMethodResult(1, "method1", TestResult.ResultType.SUCCESS, 100, 2300))
+        def class2 = new TestClassResult(2, 'Class2', 5678)
+        def class1Again = new TestClassResult(1, 'Class1', 3000).add(new TestMethodResult(3, "method2", TestResult.ResultType.FAILURE, 100, 3100))
+
+        when:
+        def read = serialize([class1, class2, class1Again])
+
+        then:
+        read*.className == ['Class1', 'Class2']
+        read[0].startTime == 1234
+        read[0].results*.name == ['method1', 'method2']
+        read[0].failuresCount == 1
+    }
+
+    def "reads the duration of each class"() {
+        def serializer = new TestResultSerializer(tmp.createDir("results"))
+        def class1 = new TestClassResult(1, 'Class1', 1000)
+            .add(new TestMethodResult(1, "method1", TestResult.ResultType.SUCCESS, 100, 1100))
+            .add(new TestMethodResult(2, "method2", TestResult.ResultType.FAILURE, 200, 1300).addFailure("message", "stack-trace", "ExceptionType"))
+        def class2 = new TestClassResult(2, 'Class2', 5000)
+        def class1Again = new TestClassResult(1, 'Class1', 3000).add(new TestMethodResult(3, "method3", TestResult.ResultType.SUCCESS, 100, 3100))
+
+        when:
+        serializer.write([class1, class2, class1Again])
+
+        then:
+        serializer.readClassDurations() == [Class1: 2100L, Class2: 0L]
+    }
+
+    def "reads no durations when there are no results"() {
+        expect:
+        new TestResultSerializer(tmp.createDir("results")).readClassDurations().isEmpty()
+    }
+
+    def "writes empty file when there are no results"() {
+        def serializer = new TestResultSerializer(tmp.createDir("results"))
+
+        when:
+        serializer.write([])
+
+        then:
+        !serializer.hasResults
+    }
 }
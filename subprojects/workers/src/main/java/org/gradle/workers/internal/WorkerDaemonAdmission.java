@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.workers.internal;
+
+import org.gradle.process.internal.health.memory.MemoryAmount;
+import org.gradle.process.internal.health.memory.OsMemoryStatus;
+import org.gradle.process.internal.health.memory.OsMemoryStatusListener;
+
+import java.util.List;
+
+/**
+ * Decides whether a new worker daemon may be started while compatible daemons are busy, or whether the request should instead
+ * wait for one of those daemons to be released.
+ *
+ * A new daemon is refused once the configured number of compatible daemons is running or starting, or when the memory the
+ * new daemon and the daemons still starting are expected to use is more than the OS currently has free. The expected usage
+ * of a daemon is taken from the committed memory reported by the compatible daemons, falling back to the maximum heap size
+ * of the fork options.
+ *
+ * Disabled unless the maximum number of compatible daemons is set using the {@value #MAX_COMPATIBLE_DAEMONS_PROPERTY} system property.
+ */
+class WorkerDaemonAdmission implements OsMemoryStatusListener {
+    static final String MAX_COMPATIBLE_DAEMONS_PROPERTY = "org.gradle.workers.internal.max-compatible-daemons";
+
+    private final int maxCompatibleDaemons;
+    private volatile long freePhysicalMemory = -1;
+
+    WorkerDaemonAdmission() {
+        this(Integer.getInteger(MAX_COMPATIBLE_DAEMONS_PROPERTY, -1));
+    }
+
+    WorkerDaemonAdmission(int maxCompatibleDaemons) {
+        this.maxCompatibleDaemons = maxCompatibleDaemons;
+    }
+
+    boolean isEnabled() {
+        return maxCompatibleDaemons > 0;
+    }
+
+    @Override
+    public void onOsMemoryStatus(OsMemoryStatus osMemoryStatus) {
+        freePhysicalMemory = osMemoryStatus.getFreePhysicalMemory();
+    }
+
+    /**
+     * Returns true when a new daemon may be started alongside the given busy compatible daemons and the given number of compatible daemons that are still starting.
+     */
+    boolean canStartNewDaemon(List<WorkerDaemonClient> busyCompatibleClients, int startingCompatibleDaemons) {
+        if (busyCompatibleClients.size() + startingCompatibleDaemons >= maxCompatibleDaemons) {
+            return false;
+        }
+        long freeMemory = freePhysicalMemory;
+        // Daemons that are still starting are not yet using the memory they are expected to use
+        return freeMemory < 0 || getExpectedMemoryUsage(busyCompatibleClients) * (startingCompatibleDaemons + 1) <= freeMemory;
+    }
+
+    private static long getExpectedMemoryUsage(List<WorkerDaemonClient> compatibleClients) {
+        long expected = 0;
+        for (WorkerDaemonClient client : compatibleClients) {
+            try {
+                expected = Math.max(expected, client.getJvmMemoryStatus().getCommittedMemory());
+            } catch (UnsupportedOperationException e) {
+                // This means the client does not support reporting jvm memory info
+            } catch (IllegalStateException e) {
+                // This means the client has not reported memory usage yet
+            }
+        }
+        if (expected == 0 && !compatibleClients.isEmpty()) {
+            String maxHeapSize = compatibleClients.get(0).getForkOptions().getJavaForkOptions().getMaxHeapSize();
+            expected = Math.max(0, MemoryAmount.parseNotation(maxHeapSize));
+        }
+        return expected;
+    }
+}
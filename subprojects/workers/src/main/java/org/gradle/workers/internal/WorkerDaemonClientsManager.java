@@ -22,6 +22,7 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.specs.Spec;
 import org.gradle.initialization.SessionLifecycleListener;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.event.ListenerManager;
@@ -43,6 +44,8 @@ public class WorkerDaemonClientsManager implements Stoppable {
     private final Object lock = new Object();
     private final List<WorkerDaemonClient> allClients = new ArrayList<WorkerDaemonClient>();
     private final List<WorkerDaemonClient> idleClients = new ArrayList<WorkerDaemonClient>();
+    // The fork options of the daemons being started by reserveIdleOrNewClient()
+    private final List<DaemonForkOptions> startingDaemons = new ArrayList<DaemonForkOptions>();
 
     private final WorkerDaemonStarter workerDaemonStarter;
     private final ListenerManager listenerManager;
@@ -78,6 +81,7 @@ public class WorkerDaemonClientsManager implements Stoppable {
                         // TODO: Send a message to workers to change their log level rather than stopping
                         LOGGER.info("Log level has changed, stopping idle worker daemon with out-of-date log level.");
                         candidate.stop();
+                        allClients.remove(candidate);
                     } else {
                         return candidate;
                     }
@@ -87,6 +91,58 @@ public class WorkerDaemonClientsManager implements Stoppable {
         }
     }
 
+    /**
+     * Reserves an idle client, waiting for a busy compatible client to be released for as long as starting another daemon is not admitted.
+     * Starts a new daemon once it is admitted. Daemons that are still being started count towards the compatible daemons, so that
+     * concurrent requests do not start more daemons than admitted.
+     */
+    public WorkerDaemonClient reserveIdleOrNewClient(Class<? extends WorkerProtocol<ActionExecutionSpec>> workerProtocolImplementationClass, DaemonForkOptions forkOptions, WorkerDaemonAdmission admission) {
+        synchronized (lock) {
+            while (true) {
+                WorkerDaemonClient client = reserveIdleClient(forkOptions, idleClients);
+                if (client != null) {
+                    return client;
+                }
+                List<WorkerDaemonClient> busyCompatibleClients = new ArrayList<WorkerDaemonClient>();
+                for (WorkerDaemonClient candidate : allClients) {
+                    if (candidate.isCompatibleWith(forkOptions)) {
+                        busyCompatibleClients.add(candidate);
+                    }
+                }
+                int startingCompatibleDaemons = 0;
+                for (DaemonForkOptions candidate : startingDaemons) {
+                    if (candidate.isCompatibleWith(forkOptions)) {
+                        startingCompatibleDaemons++;
+                    }
+                }
+                if ((busyCompatibleClients.isEmpty() && startingCompatibleDaemons == 0) || admission.canStartNewDaemon(busyCompatibleClients, startingCompatibleDaemons)) {
+                    startingDaemons.add(forkOptions);
+                    break;
+                }
+                LOGGER.debug("Waiting for one of {} busy and {} starting worker daemon(s) to become available.", busyCompatibleClients.size(), startingCompatibleDaemons);
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        WorkerDaemonClient client = null;
+        try {
+            client = workerDaemonStarter.startDaemon(workerProtocolImplementationClass, forkOptions);
+        } finally {
+            synchronized (lock) {
+                startingDaemons.remove(forkOptions);
+                if (client != null) {
+                    allClients.add(client);
+                }
+                lock.notifyAll();
+            }
+        }
+        return client;
+    }
+
     public WorkerDaemonClient reserveNewClient(Class<? extends WorkerProtocol<ActionExecutionSpec>> workerProtocolImplementationClass, DaemonForkOptions forkOptions) {
         //allow the daemon to be started concurrently
         WorkerDaemonClient client = workerDaemonStarter.startDaemon(workerProtocolImplementationClass, forkOptions);
@@ -99,6 +155,7 @@ public class WorkerDaemonClientsManager implements Stoppable {
     public void release(WorkerDaemonClient client) {
         synchronized (lock) {
             idleClients.add(client);
+            lock.notifyAll();
         }
     }
 
@@ -140,6 +197,7 @@ public class WorkerDaemonClientsManager implements Stoppable {
             LOGGER.info("Stopped {} worker daemon(s).", clientsToStop.size());
             idleClients.removeAll(clientsToStop);
             allClients.removeAll(clientsToStop);
+            lock.notifyAll();
         }
     }
 
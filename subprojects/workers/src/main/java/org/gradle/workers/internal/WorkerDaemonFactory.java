@@ -37,6 +37,7 @@ public class WorkerDaemonFactory implements WorkerFactory, Stoppable {
     private final WorkerDaemonClientsManager clientsManager;
     private final MemoryManager memoryManager;
     private final WorkerDaemonExpiration workerDaemonExpiration;
+    private final WorkerDaemonAdmission workerDaemonAdmission;
     private final WorkerLeaseRegistry workerLeaseRegistry;
     private final BuildOperationExecutor buildOperationExecutor;
 
@@ -45,6 +46,10 @@ public class WorkerDaemonFactory implements WorkerFactory, Stoppable {
         this.memoryManager = memoryManager;
         this.workerDaemonExpiration = new WorkerDaemonExpiration(clientsManager, getTotalPhysicalMemory());
         memoryManager.addMemoryHolder(workerDaemonExpiration);
+        this.workerDaemonAdmission = new WorkerDaemonAdmission();
+        if (workerDaemonAdmission.isEnabled()) {
+            memoryManager.addListener(workerDaemonAdmission);
+        }
         this.workerLeaseRegistry = workerLeaseRegistry;
         this.buildOperationExecutor = buildOperationExecutor;
     }
@@ -56,6 +61,9 @@ public class WorkerDaemonFactory implements WorkerFactory, Stoppable {
                 WorkerLeaseRegistry.WorkerLeaseCompletion workerLease = parentWorkerWorkerLease.startChild();
                 try {
                     WorkerDaemonClient client = clientsManager.reserveIdleClient(forkOptions);
+                    if (client == null && workerDaemonAdmission.isEnabled()) {
+                        client = clientsManager.reserveIdleOrNewClient(WorkerDaemonServer.class, forkOptions, workerDaemonAdmission);
+                    }
                     if (client == null) {
                         client = clientsManager.reserveNewClient(WorkerDaemonServer.class, forkOptions);
                     }
@@ -99,6 +107,9 @@ public class WorkerDaemonFactory implements WorkerFactory, Stoppable {
     @Override
     public void stop() {
         memoryManager.removeMemoryHolder(workerDaemonExpiration);
+        if (workerDaemonAdmission.isEnabled()) {
+            memoryManager.removeListener(workerDaemonAdmission);
+        }
     }
 
     private static long getTotalPhysicalMemory() {
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.workers.internal
+
+import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.health.memory.JvmMemoryStatus
+import org.gradle.process.internal.health.memory.OsMemoryStatus
+import spock.lang.Specification
+
+class WorkerDaemonAdmissionTest extends Specification {
+    static final long GB = 1024 * 1024 * 1024
+
+    def "is disabled unless a maximum number of compatible daemons is configured"() {
+        expect:
+        !new WorkerDaemonAdmission().enabled
+        !new WorkerDaemonAdmission(-1).enabled
+        new WorkerDaemonAdmission(2).enabled
+    }
+
+    def "admits new daemons up to the maximum number of compatible daemons"() {
+        def admission = new WorkerDaemonAdmission(2)
+
+        expect:
+        admission.canStartNewDaemon([], 0)
+        admission.canStartNewDaemon([client(GB)], 0)
+        !admission.canStartNewDaemon([client(GB), client(GB)], 0)
+    }
+
+    def "counts daemons that are still starting towards the maximum number of compatible daemons"() {
+        def admission = new WorkerDaemonAdmission(3)
+
+        expect:
+        admission.canStartNewDaemon([], 2)
+        admission.canStartNewDaemon([client(GB)], 1)
+        !admission.canStartNewDaemon([], 3)
+        !admission.canStartNewDaemon([client(GB)], 2)
+    }
+
+    def "admits new daemons when no OS memory status is known"() {
+        expect:
+        new WorkerDaemonAdmission(10).canStartNewDaemon([client(4 * GB)], 0)
+    }
+
+    def "does not admit a new daemon when its reported memory usage exceeds free OS memory"() {
+        def admission = new WorkerDaemonAdmission(10)
+
+        when:
+        admission.onOsMemoryStatus(osMemory(3 * GB))
+
+        then:
+        admission.canStartNewDaemon([client(GB), client(2 * GB)], 0)
+        !admission.canStartNewDaemon([client(GB), client(4 * GB)], 0)
+    }
+
+    def "includes expected memory usage of daemons that are still starting"() {
+        def admission = new WorkerDaemonAdmission(10)
+
+        when:
+        admission.onOsMemoryStatus(osMemory(3 * GB))
+
+        then:
+        admission.canStartNewDaemon([client(GB)], 2)
+        !admission.canStartNewDaemon([client(GB)], 3)
+    }
+
+    def "uses maximum heap size of fork options when daemons have not reported memory usage"() {
+        def admission = new WorkerDaemonAdmission(10)
+        admission.onOsMemoryStatus(osMemory(3 * GB))
+
+        expect:
+        admission.canStartNewDaemon([unreportedClient("2g")], 0)
+        !admission.canStartNewDaemon([unreportedClient("4g")], 0)
+        admission.canStartNewDaemon([unreportedClient(null)], 0)
+    }
+
+    private OsMemoryStatus osMemory(long free) {
+        return Stub(OsMemoryStatus) {
+            getFreePhysicalMemory() >> free
+        }
+    }
+
+    private WorkerDaemonClient client(long committed) {
+        return Stub(WorkerDaemonClient) {
+            getJvmMemoryStatus() >> Stub(JvmMemoryStatus) {
+                getCommittedMemory() >> committed
+            }
+        }
+    }
+
+    private WorkerDaemonClient unreportedClient(String maxHeapSize) {
+        return Stub(WorkerDaemonClient) {
+            getJvmMemoryStatus() >> { throw new IllegalStateException() }
+            getForkOptions() >> Stub(DaemonForkOptions) {
+                getJavaForkOptions() >> Stub(JavaForkOptions) {
+                    getMaxHeapSize() >> maxHeapSize
+                }
+            }
+        }
+    }
+}
@@ -27,6 +27,10 @@ import org.gradle.internal.logging.events.OutputEventListener
 import org.gradle.util.ConcurrentSpecification
 import spock.lang.Subject
 
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
 class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
 
     def workingDir = new File("some-dir")
@@ -230,4 +234,106 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         0 * client2.stop()
         1 * client3.stop()
     }
+
+    def "starts a new client without waiting when there are no busy compatible clients"() {
+        def incompatible = Stub(WorkerDaemonClient) { isCompatibleWith(_) >> false }
+        def client = Stub(WorkerDaemonClient)
+        def daemonStarter = Mock(WorkerDaemonStarter)
+        def clientsManager = new WorkerDaemonClientsManager(daemonStarter, listenerManager, loggingManager)
+
+        when:
+        clientsManager.reserveNewClient(serverImpl.class, options)
+        def reserved = clientsManager.reserveIdleOrNewClient(serverImpl.class, options, new WorkerDaemonAdmission(1))
+
+        then:
+        2 * daemonStarter.startDaemon(serverImpl.class, options) >>> [incompatible, client]
+        reserved == client
+    }
+
+    def "starts a new client when it is admitted alongside busy compatible clients"() {
+        def busy = Stub(WorkerDaemonClient) { isCompatibleWith(_) >> true }
+        def client = Stub(WorkerDaemonClient)
+        def daemonStarter = Mock(WorkerDaemonStarter)
+        def clientsManager = new WorkerDaemonClientsManager(daemonStarter, listenerManager, loggingManager)
+
+        when:
+        clientsManager.reserveNewClient(serverImpl.class, options)
+        def reserved = clientsManager.reserveIdleOrNewClient(serverImpl.class, options, new WorkerDaemonAdmission(2))
+
+        then:
+        2 * daemonStarter.startDaemon(serverImpl.class, options) >>> [busy, client]
+        reserved == client
+    }
+
+    def "waits for a busy compatible client to be released when a new client is not admitted"() {
+        def client = Stub(WorkerDaemonClient) { isCompatibleWith(_) >> true }
+        starter.startDaemon(serverImpl.class, options) >> client
+        def reserved = null
+
+        when:
+        manager.reserveNewClient(serverImpl.class, options)
+        def waiting = start { reserved = manager.reserveIdleOrNewClient(serverImpl.class, options, new WorkerDaemonAdmission(1)) }
+        Thread.sleep(100)
+        waiting.running()
+        manager.release(client)
+        waiting.completed()
+
+        then:
+        reserved == client
+    }
+
+    def "starts a new client when busy compatible clients are stopped"() {
+        def client = Stub(WorkerDaemonClient) { isCompatibleWith(_) >> true }
+        def newClient = Stub(WorkerDaemonClient)
+        def daemonStarter = Mock(WorkerDaemonStarter)
+        def clientsManager = new WorkerDaemonClientsManager(daemonStarter, listenerManager, loggingManager)
+        def reserved = null
+
+        given:
+        1 * daemonStarter.startDaemon(serverImpl.class, options) >> client
+        clientsManager.reserveNewClient(serverImpl.class, options)
+
+        when:
+        def waiting = start { reserved = clientsManager.reserveIdleOrNewClient(serverImpl.class, options, new WorkerDaemonAdmission(1)) }
+        Thread.sleep(100)
+        waiting.running()
+        clientsManager.stop()
+        waiting.completed()
+
+        then:
+        1 * daemonStarter.startDaemon(serverImpl.class, options) >> newClient
+        reserved == newClient
+    }
+
+    def "does not start more compatible clients than admitted when requests arrive concurrently"() {
+        def compatibleOptions = Stub(DaemonForkOptions) { isCompatibleWith(_) >> true }
+        def clients = new ConcurrentLinkedQueue<WorkerDaemonClient>((1..6).collect { Stub(WorkerDaemonClient) { isCompatibleWith(_) >> true } })
+        def started = new AtomicInteger()
+        def daemonStarter = Stub(WorkerDaemonStarter) {
+            startDaemon(serverImpl.class, compatibleOptions) >> {
+                started.incrementAndGet()
+                // Give the other requests the chance to start daemons while this one is still starting
+                Thread.sleep(100)
+                clients.poll()
+            }
+        }
+        def clientsManager = new WorkerDaemonClientsManager(daemonStarter, listenerManager, loggingManager)
+        def admission = new WorkerDaemonAdmission(2)
+        def requests = new CountDownLatch(6)
+
+        when:
+        6.times {
+            start {
+                def client = clientsManager.reserveIdleOrNewClient(serverImpl.class, compatibleOptions, admission)
+                Thread.sleep(50)
+                clientsManager.release(client)
+                requests.countDown()
+            }
+        }
+        finished()
+
+        then:
+        requests.count == 0
+        started.get() == 2
+    }
 }